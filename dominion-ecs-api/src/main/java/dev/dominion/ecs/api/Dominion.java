@@ -8,8 +8,11 @@ package dev.dominion.ecs.api;
 import dev.dominion.ecs.api.Results.*;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 /**
  * A Dominion is an independent container for all ECS data. The User Application can create more than one Dominion with
@@ -88,6 +91,22 @@ public interface Dominion {
      */
     Entity createPreparedEntity(Composition.OfTypes withValues);
 
+    /**
+     * Creates many entities of the same prepared composition in bulk, with the component values provided by index.
+     * Entities are laid out in whole chunk ranges reserved at once, and the component columns are filled by bulk copies,
+     * so that spawning a large number of entities is much cheaper than creating them one by one.
+     * <pre>
+     *     Composition.Of2&lt;Position, Velocity&gt; composition = dominion.composition().of(Position.class, Velocity.class);
+     *     dominion.createPreparedEntities(100_000, i -&gt; composition.withValue(new Position(i, 0), new Velocity(0, 1)));
+     * </pre>
+     *
+     * @param count      the number of entities to create
+     * @param withValues provides the prepared composition with the components of the entity at each index
+     * @return the new entities, in index order
+     * @throws IllegalArgumentException if the count is negative or the prepared compositions differ
+     */
+    Entity[] createPreparedEntities(int count, IntFunction<Composition.OfTypes> withValues);
+
     /**
      * Creates a new Entity by using another Entity as prefab and adding zero or more POJO components.
      *
@@ -105,6 +124,102 @@ public interface Dominion {
      */
     boolean deleteEntity(Entity entity);
 
+    /**
+     * Provides the entity with the given stable handle, without locking.
+     * Network and persistence layers can keep the {@link Entity#getHandle()} value instead of the entity and detect
+     * stale references.
+     *
+     * @param handle the handle of the entity
+     * @return the entity, or null if the entity has been deleted or the handle is unknown
+     */
+    Entity getEntity(long handle);
+
+    /**
+     * Deletes all the entities of a composition at once, by releasing the chunks of the composition and restarting it
+     * from an empty chunk. Disabled entities are not deleted.
+     * <pre>
+     *     dominion.clear(dominion.composition().of(Position.class, Velocity.class));
+     * </pre>
+     *
+     * @param composition the composition to clear, as provided by {@link #composition()}
+     * @return the number of deleted entities
+     */
+    int clear(Composition.OfTypes composition);
+
+    /**
+     * Compacts the chunks left with the slots of deleted entities. With the deferred deletion mode of the
+     * implementation, deleting an entity only leaves a tombstone in its chunk, so that no other entity is moved and
+     * the iterations in progress stay valid: tombstones are skipped by iterations, and they are filled in bulk by
+     * moving the last entities of each chunk at the end of every {@link Scheduler} tick or by calling this method.
+     * Entities must not be iterated or changed by other threads during the compaction.
+     *
+     * @return the number of compacted slots, always 0 with the immediate deletion mode
+     */
+    int compact();
+
+    /**
+     * Returns the current change version and starts a new one: the components changed from now on are stamped with a
+     * greater version, so that a system can find the entities changed since its last run by passing the version
+     * returned at that run to {@link Results#changedSince(long, Class[])}.
+     *
+     * @return the current change version
+     */
+    long version();
+
+    /**
+     * Adds an observer of the entity lifecycle. Creations, deletions and component types added or removed are recorded
+     * in per-thread buffers while there is at least one observer, and they are only delivered in batches by
+     * {@link #notifyObservers()}, so that no callback runs on the path of every change.
+     *
+     * @param observer the observer to add
+     */
+    void addObserver(Observer observer);
+
+    /**
+     * Removes an observer of the entity lifecycle.
+     *
+     * @param observer the observer to remove
+     * @return false if the observer has not been added
+     */
+    boolean removeObserver(Observer observer);
+
+    /**
+     * Delivers the entity events recorded by all the threads since the last delivery to the observers, from the
+     * calling thread. This is done at the end of every {@link Scheduler} tick, or on demand by calling this method.
+     *
+     * @return the number of delivered events
+     */
+    int notifyObservers();
+
+    /**
+     * Creates a hash index of the entities with a component of the given type, by the key extracted from the component,
+     * so that the entities with a given key are found without scanning the results:
+     * <pre>
+     *     Dominion.Index&lt;PlayerId, Integer&gt; byPlayerId = dominion.createIndex(PlayerId.class, PlayerId::id);
+     *     Entity player = byPlayerId.findFirst(42);
+     *     dominion.findEntitiesWith(Position.class, PlayerId.class).where(byPlayerId, 42).forEach(...);
+     * </pre>
+     * The index is kept up to date when entities are created, deleted, and when their components are added, removed or
+     * replaced, one by one or in bulk. A component mutated in place is only indexed again by its new key when it is
+     * marked by {@link Entity#markChanged(Class)}. Components whose key is null are not indexed.
+     *
+     * @param componentType the indexed component type, neither {@link Sparse} nor {@link Tag}
+     * @param keyFunction   the function extracting the key from a component
+     * @param <T>           the indexed component type
+     * @param <K>           the key type
+     * @return the index
+     * @throws IllegalArgumentException if the component type is sparse or a tag
+     */
+    <T, K> Index<T, K> createIndex(Class<T> componentType, Function<T, K> keyFunction);
+
+    /**
+     * Drops an index, that is no longer kept up to date.
+     *
+     * @param index the index to drop
+     * @return false if the index has not been created by this Dominion or has already been dropped
+     */
+    boolean dropIndex(Index<?, ?> index);
+
     /**
      * Modifies the entity composition by adding components and/or removing component types
      *
@@ -145,15 +260,15 @@ public interface Dominion {
      * @param <T2>  the 2nd component type
      * @return the results
      */
-    <T1, T2> Results<With2<T1, T2>> findCompositionsWith(Class<T1> type1, Class<T2> type2);
+    <T1, T2> Of2<T1, T2> findCompositionsWith(Class<T1> type1, Class<T2> type2);
 
-    <T1, T2, T3> Results<With3<T1, T2, T3>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3);
+    <T1, T2, T3> Of3<T1, T2, T3> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3);
 
-    <T1, T2, T3, T4> Results<With4<T1, T2, T3, T4>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4);
+    <T1, T2, T3, T4> Of4<T1, T2, T3, T4> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4);
 
-    <T1, T2, T3, T4, T5> Results<With5<T1, T2, T3, T4, T5>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5);
+    <T1, T2, T3, T4, T5> Of5<T1, T2, T3, T4, T5> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5);
 
-    <T1, T2, T3, T4, T5, T6> Results<With6<T1, T2, T3, T4, T5, T6>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6);
+    <T1, T2, T3, T4, T5, T6> Of6<T1, T2, T3, T4, T5, T6> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6);
 
     /**
      * Finds all entities.
@@ -169,7 +284,7 @@ public interface Dominion {
      * @param <T>  the component type
      * @return the results
      */
-    <T> Results<With1<T>> findEntitiesWith(Class<T> type);
+    <T> Of1<T> findEntitiesWith(Class<T> type);
 
     /**
      * Finds all entities with components of the specified types.
@@ -180,15 +295,15 @@ public interface Dominion {
      * @param <T2>  the 2nd component type
      * @return the results
      */
-    <T1, T2> Results<With2<T1, T2>> findEntitiesWith(Class<T1> type1, Class<T2> type2);
+    <T1, T2> Of2<T1, T2> findEntitiesWith(Class<T1> type1, Class<T2> type2);
 
-    <T1, T2, T3> Results<With3<T1, T2, T3>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3);
+    <T1, T2, T3> Of3<T1, T2, T3> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3);
 
-    <T1, T2, T3, T4> Results<With4<T1, T2, T3, T4>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4);
+    <T1, T2, T3, T4> Of4<T1, T2, T3, T4> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4);
 
-    <T1, T2, T3, T4, T5> Results<With5<T1, T2, T3, T4, T5>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5);
+    <T1, T2, T3, T4, T5> Of5<T1, T2, T3, T4, T5> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5);
 
-    <T1, T2, T3, T4, T5, T6> Results<With6<T1, T2, T3, T4, T5, T6>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6);
+    <T1, T2, T3, T4, T5, T6> Of6<T1, T2, T3, T4, T5, T6> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6);
 
     /**
      * Check if it is already closed.
@@ -207,4 +322,87 @@ public interface Dominion {
 
         Dominion create(String name);
     }
+
+    /**
+     * An Index maps the keys extracted from the components of a type to the entities having them. Disabled entities are
+     * kept in the index, but they are not found until they are enabled again.
+     *
+     * @param <T> the indexed component type
+     * @param <K> the key type
+     */
+    interface Index<T, K> {
+
+        /**
+         * Provides the indexed component type.
+         *
+         * @return the component type
+         */
+        Class<T> getComponentType();
+
+        /**
+         * Finds the enabled entities whose component has the given key.
+         *
+         * @param key the key
+         * @return the entities with the key, an empty list if none
+         */
+        List<Entity> find(K key);
+
+        /**
+         * Finds an enabled entity whose component has the given key, such as the only entity with a unique key.
+         *
+         * @param key the key
+         * @return an entity with the key or null
+         */
+        Entity findFirst(K key);
+
+        /**
+         * Provides the number of indexed entities.
+         *
+         * @return the number of entities
+         */
+        int size();
+    }
+
+    /**
+     * An Observer receives the entity lifecycle events in batches, grouped by kind: for every delivery, the created
+     * entities come first, then the entities grouped by added and by removed component type, and finally the deleted
+     * entities. The entities may have changed again since the events were recorded, and an entity created and deleted
+     * within the same batch is found in both lists.
+     */
+    interface Observer {
+
+        /**
+         * Receives the entities created since the last delivery.
+         *
+         * @param entities the created entities
+         */
+        default void onCreated(List<Entity> entities) {
+        }
+
+        /**
+         * Receives the entities that gained a component type since the last delivery.
+         *
+         * @param componentType the added component type
+         * @param entities      the entities with the added component type
+         */
+        default void onAdded(Class<?> componentType, List<Entity> entities) {
+        }
+
+        /**
+         * Receives the entities that lost a component type since the last delivery.
+         *
+         * @param componentType the removed component type
+         * @param entities      the entities without the removed component type
+         */
+        default void onRemoved(Class<?> componentType, List<Entity> entities) {
+        }
+
+        /**
+         * Receives the entities deleted since the last delivery.
+         *
+         * @param entities the deleted entities
+         */
+        default void onDeleted(List<Entity> entities) {
+        }
+    }
 }
@@ -70,7 +70,8 @@ public interface Entity {
     <T> T get(Class<T> componentType);
 
     /**
-     * Sets a state to the entity or remove the current state by passing a null value.
+     * Sets a state to the entity, replacing the current state of the same enumeration type, or removes all the states
+     * of the entity by passing a null value. An entity can have a state of each enumeration type at the same time.
      *
      * @param state the state, it can be null
      * @param <S>   the state enumeration type
@@ -78,6 +79,24 @@ public interface Entity {
      */
     <S extends Enum<S>> Entity setState(S state);
 
+    /**
+     * Gets the current state of the specified enumeration type if any.
+     *
+     * @param stateType the state enumeration type
+     * @param <S>       the state enumeration type
+     * @return the state or null
+     */
+    <S extends Enum<S>> S getState(Class<S> stateType);
+
+    /**
+     * Removes the current state of the specified enumeration type, keeping the states of the other types.
+     *
+     * @param stateType the state enumeration type
+     * @param <S>       the state enumeration type
+     * @return true if the entity had a state of the type
+     */
+    <S extends Enum<S>> boolean removeState(Class<S> stateType);
+
     /**
      * Checks if the entity is enabled.
      *
@@ -99,4 +118,23 @@ public interface Entity {
      * @return true if deleted
      */
     boolean isDeleted();
+
+    /**
+     * Returns the stable handle of the entity: a value that identifies the entity for its whole life, regardless of
+     * the component changes, and that can be resolved back with {@link Dominion#getEntity(long)}.
+     * Handles are never reused by other entities of the same Dominion, so the handle of a deleted entity becomes stale.
+     *
+     * @return the handle, never 0 for an entity created by a Dominion
+     */
+    long getHandle();
+
+    /**
+     * Marks a component of the entity as changed, so that the entity is found by
+     * {@link Results#changedSince(long, Class[])} with an earlier version. Components added through the Dominion
+     * are marked automatically, while components mutated in place must be marked by this method.
+     *
+     * @param componentType the type of the changed component
+     * @return true if the entity has the component
+     */
+    boolean markChanged(Class<?> componentType);
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Flat marks a component type as a record whose fields are all int, long, float or double values.
+ * Instead of keeping a reference to each component object, Dominion stores the fields of a flat component in per-chunk
+ * primitive columns (struct-of-arrays), so that systems can iterate them through a {@link Results.Cursor} and its
+ * {@link Results.FlatView} views without boxing or pointer chasing.
+ * Reading a flat component as an object (e.g. with {@link Entity#get(Class)} or by iterating the Results) provides a
+ * new record instance built from the stored fields.
+ * <pre>
+ *     &#64;Flat
+ *     record Position(float x, float y) {
+ *     }
+ * </pre>
+ * The record must be accessible to the engine: public or declared in a package that is open to the engine module.
+ *
+ * @author Enrico Stara
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Flat {
+
+    /**
+     * Stores the component values off-heap, as fixed-size structs in native memory owned by each chunk.
+     * Off-heap components are out of the garbage collector scope: they do not add to the heap size and to GC pauses,
+     * and their memory is released when the Dominion is closed.
+     *
+     * @return true to store the component values off-heap
+     */
+    boolean offHeap() default false;
+}
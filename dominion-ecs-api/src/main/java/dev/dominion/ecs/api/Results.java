@@ -5,7 +5,10 @@
 
 package dev.dominion.ecs.api;
 
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -35,6 +38,8 @@ public interface Results<T> extends Iterable<T> {
 
     /**
      * Creates a parallel stream to supports functional-style operations on found entities.
+     * The work is split across compositions, chunks of entities and index ranges within large chunks, so that each
+     * core can process a contiguous block of entities.
      *
      * @return the stream
      */
@@ -57,7 +62,7 @@ public interface Results<T> extends Iterable<T> {
     Results<T> withAlso(Class<?>... componentTypes);
 
     /**
-     * Provides a filtered Results with only entities having the required state.
+     * Provides a filtered Results with only entities having the required state, replacing any previous state filter.
      *
      * @param state the requested state
      * @param <S>   the state enumeration type
@@ -65,6 +70,486 @@ public interface Results<T> extends Iterable<T> {
      */
     <S extends Enum<S>> Results<T> withState(S state);
 
+    /**
+     * Provides a filtered Results with only entities having all the required states at the same time, in addition to
+     * the states already required. As an entity has at most a state of each enumeration type, the required states are
+     * usually of different types:
+     * <pre>
+     *     dominion.findEntitiesWith(Position.class).withAllStates(Mood.ANGRY, Stance.CROUCHED).forEach(...);
+     * </pre>
+     * The states are tested on each entity while walking the results, without building an intermediate set of entities
+     * for each state.
+     *
+     * @param states the required states
+     * @return the Results with only entities having all the required states
+     */
+    Results<T> withAllStates(Enum<?>... states);
+
+    /**
+     * Provides a filtered Results with only entities having at least one of the given states, in addition to the
+     * states already required, so that filters in the form (A or B) and C can be composed:
+     * <pre>
+     *     dominion.findEntitiesWith(Position.class)
+     *             .withAnyState(Mood.ANGRY, Mood.SCARED)
+     *             .withAllStates(Stance.CROUCHED)
+     *             .forEach(...);
+     * </pre>
+     *
+     * @param states the alternative states
+     * @return the Results with only entities having one of the given states
+     */
+    Results<T> withAnyState(Enum<?>... states);
+
+    /**
+     * Provides a filtered Results with only entities whose indexed component has the given key, in addition to the
+     * other filters. The entities with the key are taken from the index instead of walking the chunks of the results,
+     * so the Results cannot be walked by chunks, through a {@link Cursor} or by {@link #forEachChunk(Consumer)}, nor
+     * sorted.
+     *
+     * @param index the index created by the Dominion of the Results
+     * @param key   the key
+     * @param <K>   the key type
+     * @return the Results with only entities having the key
+     * @throws IllegalArgumentException if the index has not been created by a Dominion of this implementation
+     */
+    <K> Results<T> where(Dominion.Index<?, K> index, K key);
+
+    /**
+     * Provides a filtered Results with only the entities whose components changed after the given version, as
+     * returned by {@link Dominion#version()}:
+     * <pre>
+     *     long since = lastVersion;
+     *     lastVersion = dominion.version();
+     *     dominion.findEntitiesWith(Position.class).changedSince(since, Position.class).forEach(this::onMoved);
+     * </pre>
+     * Changes are tracked per chunk and per component type: writing components through the Dominion, accessing a
+     * {@link Batch} column or a {@link FlatView} setter, or calling {@link Entity#markChanged(Class)} marks the whole
+     * chunk of the entity as changed, so that unchanged chunks are skipped at once and entities sharing a chunk with a
+     * changed entity are found too. Components mutated in place must be marked by {@link Entity#markChanged(Class)}.
+     * Results filtered by state cannot be filtered by changes.
+     *
+     * @param version        the version after which the changes are found, 0 to find all the entities
+     * @param componentTypes the component types whose changes are checked, or none to check every component type of
+     *                       the found entities
+     * @return the Results with only entities changed after the given version
+     * @throws UnsupportedOperationException if the Results are filtered by state
+     */
+    Results<T> changedSince(long version, Class<?>... componentTypes);
+
+    /**
+     * Provides a cursor to walk found entities one at a time and to access their {@link Flat} components in place
+     * through reusable views, without allocating any result object along the way.
+     * <pre>
+     *     var cursor = dominion.findEntitiesWith(Position.class, Velocity.class).cursor();
+     *     var position = cursor.view(Position.class);
+     *     var velocity = cursor.view(Velocity.class);
+     *     while (cursor.next()) {
+     *         position.setFloat(0, position.getFloat(0) + velocity.getFloat(0));
+     *     }
+     * </pre>
+     *
+     * @return the cursor
+     */
+    Cursor cursor();
+
+    /**
+     * Performs the given action once per chunk of found entities, providing a batch view on the chunk columns.
+     * A batch gives direct access to the arrays that back the requested component columns, so that bulk math can run
+     * in tight loops over primitive arrays that the JIT can vectorize.
+     * <pre>
+     *     dominion.findEntitiesWith(Position.class, Velocity.class).forEachChunk(batch -&gt; {
+     *         float[] x = batch.floatColumn(Position.class, 0);
+     *         float[] dx = batch.floatColumn(Velocity.class, 0);
+     *         for (int i = 0; i &lt; batch.size(); i++) {
+     *             x[i] += dx[i];
+     *         }
+     *     });
+     * </pre>
+     * Batches are not available for Results filtered by state, whose entities are spread across chunks.
+     *
+     * @param action the action to be performed for each chunk
+     * @throws UnsupportedOperationException if the Results are filtered by state
+     */
+    void forEachChunk(Consumer<Batch> action);
+
+    /**
+     * Deletes all the found entities at once. The compositions of the found entities are cleared as a whole by
+     * releasing their chunks, instead of removing the entities one by one. Results filtered by state can only delete
+     * their entities one by one.
+     * Disabled entities are not found and then not deleted. The found entities must not be modified or iterated by
+     * other threads during the deletion.
+     *
+     * @return the number of deleted entities
+     */
+    int deleteAll();
+
+    /**
+     * Modifies all the found entities at once, providing the {@link Composition.Modifier} of each entity by the given
+     * function:
+     * <pre>
+     *     var addVelocity = dominion.composition().byAdding1AndRemoving(Velocity.class);
+     *     dominion.findEntitiesWith(Position.class).modifyAll(entity -&gt; addVelocity.withValue(entity, new Velocity()));
+     * </pre>
+     * The entities of each found composition are moved to the new composition as a whole, by copying the columns of
+     * their chunks and then releasing the chunks, instead of modifying the entities one by one. All the entities of a
+     * composition must then be moved to the same new composition. Results filtered by state can only modify their
+     * entities one by one.
+     * Disabled entities are not found and then not modified. The function must not modify entities, and the found
+     * compositions must not be changed or iterated by other threads during the modification.
+     *
+     * @param modifier the function providing the modifier of each entity
+     * @return the number of modified entities
+     * @throws IllegalArgumentException if the entities of a composition are moved to different compositions, or if
+     *                                  the entities moved to a found composition would be moved again
+     */
+    int modifyAll(Function<Entity, Composition.Modifier> modifier);
+
+    /**
+     * Sorts the found entities of each composition by the given comparator, so that entities close in the sort order
+     * are also close in memory and the next iterations of each composition follow the sort order:
+     * <pre>
+     *     dominion.findEntitiesWith(Position.class).sortBy(Comparator.comparingDouble(rs -&gt; rs.comp().x()));
+     * </pre>
+     * The entities are moved across the slots of the chunks of their composition, while the order of the compositions
+     * is not affected. Results filtered by state cannot be sorted.
+     * The comparator must not modify entities, and the found compositions must not be changed or iterated by other
+     * threads during the sorting.
+     *
+     * @param comparator the comparator of the found results
+     * @return the number of sorted entities
+     * @throws UnsupportedOperationException if the Results are filtered by state
+     */
+    int sortBy(Comparator<? super T> comparator);
+
+    /**
+     * A Batch is a view on the columns of a chunk of found entities. The entities of the chunk are at the indexes from
+     * 0 (inclusive) to {@link #size()} (exclusive) of every column. Columns are backing arrays, not copies: they are
+     * only valid within the {@link #forEachChunk(Consumer)} action and must not be accessed beyond the batch size.
+     * Adding or removing entities while the action runs can replace the arrays of the chunk.
+     * With the deferred deletion mode, a batch also holds the slots of the entities deleted since the last
+     * {@link Dominion#compact()}: their entity is null and their stale values must be ignored.
+     * Accessing a column marks its component type as changed for the whole chunk, as seen by
+     * {@link #changedSince(long, Class[])}.
+     */
+    interface Batch {
+
+        /**
+         * Provides the number of entities in this batch.
+         *
+         * @return the batch size
+         */
+        int size();
+
+        /**
+         * Provides the entity at the given index.
+         *
+         * @param index the index within the batch
+         * @return the entity, or null for the slot of a deleted entity not yet compacted
+         */
+        Entity entity(int index);
+
+        /**
+         * Provides the column of a component type, to be cast element by element.
+         *
+         * @param componentType a component type of the batch, not annotated with {@link Flat}
+         * @return the backing array of the column
+         * @throws IllegalArgumentException if the type is not in the batch or it is a flat component type
+         */
+        Object[] column(Class<?> componentType);
+
+        /**
+         * Provides the array of an int field of a {@link Flat} component type.
+         *
+         * @param flatType a flat component type of the batch
+         * @param field    the field index, following the declaration order of the record components
+         * @return the backing array of the field
+         * @throws IllegalArgumentException      if the type is not a flat component of the batch or the field is not
+         *                                       an int field
+         * @throws UnsupportedOperationException if the flat component type is stored off-heap
+         */
+        int[] intColumn(Class<?> flatType, int field);
+
+        long[] longColumn(Class<?> flatType, int field);
+
+        float[] floatColumn(Class<?> flatType, int field);
+
+        double[] doubleColumn(Class<?> flatType, int field);
+    }
+
+    /**
+     * A Cursor walks the found entities and moves every view it has provided along with it.
+     */
+    interface Cursor {
+
+        /**
+         * Moves the cursor to the next found entity.
+         *
+         * @return false if there are no more entities
+         */
+        boolean next();
+
+        /**
+         * Provides the entity at the current position of the cursor.
+         *
+         * @return the current entity
+         */
+        Entity entity();
+
+        /**
+         * Provides a view on a flat component type, following the cursor position.
+         *
+         * @param flatType a component type annotated with {@link Flat}
+         * @return the view
+         * @throws IllegalArgumentException if the type is not a flat component type
+         */
+        FlatView view(Class<?> flatType);
+    }
+
+    /**
+     * A FlatView reads and writes the fields of a {@link Flat} component stored at the current cursor position.
+     * Fields are addressed by their index, following the declaration order of the record components.
+     */
+    interface FlatView {
+
+        int getInt(int field);
+
+        long getLong(int field);
+
+        float getFloat(int field);
+
+        double getDouble(int field);
+
+        void setInt(int field, int value);
+
+        void setLong(int field, long value);
+
+        void setFloat(int field, float value);
+
+        void setDouble(int field, double value);
+    }
+
+    /**
+     * Results of one component type that can also be iterated by a {@link Consumer1} callback.
+     * <pre>
+     *     dominion.findEntitiesWith(Position.class)
+     *             .forEach((position, entity) -&gt; position.x += 1);
+     * </pre>
+     * The callback receives the components straight from the chunk columns, without allocating a result per entity.
+     *
+     * @param <T> the component type
+     */
+    interface Of1<T> extends Results<With1<T>> {
+
+        /**
+         * Performs the given action for each result, in the same order as the iterator.
+         *
+         * @param consumer the action to be performed for each result
+         */
+        void forEach(Consumer1<T> consumer);
+
+        @Override
+        Of1<T> without(Class<?>... componentTypes);
+
+        @Override
+        Of1<T> withAlso(Class<?>... componentTypes);
+
+        @Override
+        <S extends Enum<S>> Of1<T> withState(S state);
+
+        @Override
+        Of1<T> withAllStates(Enum<?>... states);
+
+        @Override
+        Of1<T> withAnyState(Enum<?>... states);
+
+        @Override
+        <K> Of1<T> where(Dominion.Index<?, K> index, K key);
+
+        @Override
+        Of1<T> changedSince(long version, Class<?>... componentTypes);
+    }
+
+    /**
+     * Results of 2 component types that can also be iterated by a {@link Consumer2} callback.
+     */
+    interface Of2<T1, T2> extends Results<With2<T1, T2>> {
+
+        void forEach(Consumer2<T1, T2> consumer);
+
+        @Override
+        Of2<T1, T2> without(Class<?>... componentTypes);
+
+        @Override
+        Of2<T1, T2> withAlso(Class<?>... componentTypes);
+
+        @Override
+        <S extends Enum<S>> Of2<T1, T2> withState(S state);
+
+        @Override
+        Of2<T1, T2> withAllStates(Enum<?>... states);
+
+        @Override
+        Of2<T1, T2> withAnyState(Enum<?>... states);
+
+        @Override
+        <K> Of2<T1, T2> where(Dominion.Index<?, K> index, K key);
+
+        @Override
+        Of2<T1, T2> changedSince(long version, Class<?>... componentTypes);
+    }
+
+    /**
+     * Results of 3 component types that can also be iterated by a {@link Consumer3} callback.
+     */
+    interface Of3<T1, T2, T3> extends Results<With3<T1, T2, T3>> {
+
+        void forEach(Consumer3<T1, T2, T3> consumer);
+
+        @Override
+        Of3<T1, T2, T3> without(Class<?>... componentTypes);
+
+        @Override
+        Of3<T1, T2, T3> withAlso(Class<?>... componentTypes);
+
+        @Override
+        <S extends Enum<S>> Of3<T1, T2, T3> withState(S state);
+
+        @Override
+        Of3<T1, T2, T3> withAllStates(Enum<?>... states);
+
+        @Override
+        Of3<T1, T2, T3> withAnyState(Enum<?>... states);
+
+        @Override
+        <K> Of3<T1, T2, T3> where(Dominion.Index<?, K> index, K key);
+
+        @Override
+        Of3<T1, T2, T3> changedSince(long version, Class<?>... componentTypes);
+    }
+
+    /**
+     * Results of 4 component types that can also be iterated by a {@link Consumer4} callback.
+     */
+    interface Of4<T1, T2, T3, T4> extends Results<With4<T1, T2, T3, T4>> {
+
+        void forEach(Consumer4<T1, T2, T3, T4> consumer);
+
+        @Override
+        Of4<T1, T2, T3, T4> without(Class<?>... componentTypes);
+
+        @Override
+        Of4<T1, T2, T3, T4> withAlso(Class<?>... componentTypes);
+
+        @Override
+        <S extends Enum<S>> Of4<T1, T2, T3, T4> withState(S state);
+
+        @Override
+        Of4<T1, T2, T3, T4> withAllStates(Enum<?>... states);
+
+        @Override
+        Of4<T1, T2, T3, T4> withAnyState(Enum<?>... states);
+
+        @Override
+        <K> Of4<T1, T2, T3, T4> where(Dominion.Index<?, K> index, K key);
+
+        @Override
+        Of4<T1, T2, T3, T4> changedSince(long version, Class<?>... componentTypes);
+    }
+
+    /**
+     * Results of 5 component types that can also be iterated by a {@link Consumer5} callback.
+     */
+    interface Of5<T1, T2, T3, T4, T5> extends Results<With5<T1, T2, T3, T4, T5>> {
+
+        void forEach(Consumer5<T1, T2, T3, T4, T5> consumer);
+
+        @Override
+        Of5<T1, T2, T3, T4, T5> without(Class<?>... componentTypes);
+
+        @Override
+        Of5<T1, T2, T3, T4, T5> withAlso(Class<?>... componentTypes);
+
+        @Override
+        <S extends Enum<S>> Of5<T1, T2, T3, T4, T5> withState(S state);
+
+        @Override
+        Of5<T1, T2, T3, T4, T5> withAllStates(Enum<?>... states);
+
+        @Override
+        Of5<T1, T2, T3, T4, T5> withAnyState(Enum<?>... states);
+
+        @Override
+        <K> Of5<T1, T2, T3, T4, T5> where(Dominion.Index<?, K> index, K key);
+
+        @Override
+        Of5<T1, T2, T3, T4, T5> changedSince(long version, Class<?>... componentTypes);
+    }
+
+    /**
+     * Results of 6 component types that can also be iterated by a {@link Consumer6} callback.
+     */
+    interface Of6<T1, T2, T3, T4, T5, T6> extends Results<With6<T1, T2, T3, T4, T5, T6>> {
+
+        void forEach(Consumer6<T1, T2, T3, T4, T5, T6> consumer);
+
+        @Override
+        Of6<T1, T2, T3, T4, T5, T6> without(Class<?>... componentTypes);
+
+        @Override
+        Of6<T1, T2, T3, T4, T5, T6> withAlso(Class<?>... componentTypes);
+
+        @Override
+        <S extends Enum<S>> Of6<T1, T2, T3, T4, T5, T6> withState(S state);
+
+        @Override
+        Of6<T1, T2, T3, T4, T5, T6> withAllStates(Enum<?>... states);
+
+        @Override
+        Of6<T1, T2, T3, T4, T5, T6> withAnyState(Enum<?>... states);
+
+        @Override
+        <K> Of6<T1, T2, T3, T4, T5, T6> where(Dominion.Index<?, K> index, K key);
+
+        @Override
+        Of6<T1, T2, T3, T4, T5, T6> changedSince(long version, Class<?>... componentTypes);
+    }
+
+    /**
+     * Receives the component and the entity of each result.
+     * The entity can be used to modify or delete the current result, as with the iterator.
+     *
+     * @param <T> the component type
+     */
+    @FunctionalInterface
+    interface Consumer1<T> {
+        void accept(T comp, Entity entity);
+    }
+
+    @FunctionalInterface
+    interface Consumer2<T1, T2> {
+        void accept(T1 comp1, T2 comp2, Entity entity);
+    }
+
+    @FunctionalInterface
+    interface Consumer3<T1, T2, T3> {
+        void accept(T1 comp1, T2 comp2, T3 comp3, Entity entity);
+    }
+
+    @FunctionalInterface
+    interface Consumer4<T1, T2, T3, T4> {
+        void accept(T1 comp1, T2 comp2, T3 comp3, T4 comp4, Entity entity);
+    }
+
+    @FunctionalInterface
+    interface Consumer5<T1, T2, T3, T4, T5> {
+        void accept(T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5, Entity entity);
+    }
+
+    @FunctionalInterface
+    interface Consumer6<T1, T2, T3, T4, T5, T6> {
+        void accept(T1 comp1, T2 comp2, T3 comp3, T4 comp4, T5 comp5, T6 comp6, Entity entity);
+    }
+
     /**
      * Represents the unpacked result
      *
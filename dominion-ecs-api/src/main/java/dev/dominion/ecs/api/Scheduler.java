@@ -131,6 +131,16 @@ public interface Scheduler {
      */
     void tickAtFixedRate(int ticksPerSecond);
 
+    /**
+     * Provides the command buffer of the calling thread, to record structural changes that are applied at the end of
+     * the current tick, once all the systems have been executed. Systems running in parallel or forking subsystems
+     * can then change entities without contending on the compositions they are iterating.
+     *
+     * @return the command buffer of the calling thread
+     * @throws UnsupportedOperationException if this scheduler has not been created by a Dominion
+     */
+    Commands commands();
+
     /**
      * DeltaTime is the time in seconds between the last tick and the current tick.
      *
@@ -144,4 +154,57 @@ public interface Scheduler {
      * @return true if this scheduler terminated and false if the timeout elapsed before termination
      */
     boolean shutDown();
+
+    /**
+     * Commands record structural changes to be applied later, all at once, at the end of a tick.
+     * Every thread records in its own buffer. Changes to the same entity are merged, so that the entity is moved to
+     * its final composition with a single migration, and an added component replaces any previous component of the
+     * same type. Changes to an entity that is deleted, or disabled, by the end of the tick are discarded.
+     * <pre>
+     *     scheduler.schedule(() -&gt; dominion.findEntitiesWith(Health.class).stream()
+     *             .filter(result -&gt; result.comp().value() &lt;= 0)
+     *             .forEach(result -&gt; scheduler.commands().add(result.entity(), new Dead())));
+     * </pre>
+     */
+    interface Commands {
+
+        /**
+         * Records the creation of an entity with the given components.
+         *
+         * @param components the components of the new entity
+         */
+        void createEntity(Object... components);
+
+        /**
+         * Records the deletion of an entity. Any other change recorded for the entity is discarded.
+         *
+         * @param entity the entity to be deleted
+         */
+        void deleteEntity(Entity entity);
+
+        /**
+         * Records the addition of a component to an entity.
+         *
+         * @param entity    the entity to be changed
+         * @param component the component to be added
+         */
+        void add(Entity entity, Object component);
+
+        /**
+         * Records the removal of a component type from an entity.
+         *
+         * @param entity        the entity to be changed
+         * @param componentType the component type to be removed
+         */
+        void removeType(Entity entity, Class<?> componentType);
+
+        /**
+         * Records the state of an entity, or the removal of its state if null.
+         *
+         * @param entity the entity to be changed
+         * @param state  the new state
+         * @param <S>    the state enumeration type
+         */
+        <S extends Enum<S>> void setState(Entity entity, S state);
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Sparse marks a component type that is added to and removed from entities so often that moving the entity to another
+ * composition every time would dominate the cost, such as a short-lived status effect or a selection marker.
+ * Instead of being stored in the chunks of the entity composition, the components of a sparse type are stored in a
+ * sparse set of their own: adding or removing them through {@link Entity#add(Object)}, {@link Entity#remove(Object)}
+ * and {@link Entity#removeType(Class)} is O(1) and never moves the entity.
+ * <pre>
+ *     &#64;Sparse
+ *     record Stunned(int ticks) {
+ *     }
+ *
+ *     dominion.findEntitiesWith(Position.class, Stunned.class).forEach((position, stunned, entity) -&gt; {...});
+ *     dominion.findEntitiesWith(Position.class, Velocity.class).without(Stunned.class).forEach(...);
+ * </pre>
+ * Queries can mix sparse and regular component types, both as found types and in {@link Results#withAlso(Class[])} and
+ * {@link Results#without(Class[])} filters: a query that finds a sparse type walks the smallest sparse set instead of
+ * the chunks of the compositions. Results with a sparse type cannot be walked by chunks, through a
+ * {@link Results.Cursor} or by {@link Results#forEachChunk(java.util.function.Consumer)}, nor sorted, and sparse types
+ * cannot be part of a prepared {@link Composition}.
+ *
+ * @author Enrico Stara
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Sparse {
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.api;
+
+import java.lang.annotation.*;
+
+/**
+ * Tag marks a component type without fields, such as a marker of a team, a visibility flag or a status, that is only
+ * ever tested for presence. Instead of taking a column and a composition of its own for every combination of tags,
+ * each tag type is assigned a bit, and the tags of an entity are stored as a bitset in the chunk slot of the entity:
+ * adding or removing a tag through {@link Entity#add(Object)}, {@link Entity#remove(Object)} and
+ * {@link Entity#removeType(Class)} only flips a bit and never moves the entity.
+ * <pre>
+ *     &#64;Tag
+ *     record Enemy() {
+ *     }
+ *
+ *     dominion.findEntitiesWith(Position.class, Velocity.class).withAlso(Enemy.class).forEach(...);
+ *     dominion.findEntitiesWith(Position.class).without(Enemy.class).forEach(...);
+ * </pre>
+ * The {@link Results#withAlso(Class[])} and {@link Results#without(Class[])} filters on tag types are tested against
+ * the bitset of each slot, a whole word at a time, while walking the chunks. A Dominion supports up to 64 tag types,
+ * the instance returned by {@link Entity#get(Class)} is the first one added for the type, and tag types cannot be part
+ * of a prepared {@link Composition}. Results filtered by tag types cannot be walked by
+ * {@link Results#forEachChunk(java.util.function.Consumer)}, nor sorted.
+ *
+ * @author Enrico Stara
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Tag {
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 public class DominionTest {
 
@@ -61,6 +63,11 @@ public class DominionTest {
             return null;
         }
 
+        @Override
+        public Entity[] createPreparedEntities(int count, IntFunction<Composition.OfTypes> withValues) {
+            return new Entity[0];
+        }
+
         @Override
         public Entity createEntityAs(Entity prefab, Object... components) {
             return null;
@@ -71,6 +78,50 @@ public class DominionTest {
             return false;
         }
 
+        @Override
+        public Entity getEntity(long handle) {
+            return null;
+        }
+
+        @Override
+        public int clear(Composition.OfTypes composition) {
+            return 0;
+        }
+
+        @Override
+        public int compact() {
+            return 0;
+        }
+
+        @Override
+        public long version() {
+            return 0;
+        }
+
+        @Override
+        public void addObserver(Observer observer) {
+        }
+
+        @Override
+        public boolean removeObserver(Observer observer) {
+            return false;
+        }
+
+        @Override
+        public int notifyObservers() {
+            return 0;
+        }
+
+        @Override
+        public <T, K> Index<T, K> createIndex(Class<T> componentType, Function<T, K> keyFunction) {
+            return null;
+        }
+
+        @Override
+        public boolean dropIndex(Index<?, ?> index) {
+            return false;
+        }
+
         @Override
         public boolean modifyEntity(Composition.Modifier modifier) {
             return false;
@@ -92,27 +143,27 @@ public class DominionTest {
         }
 
         @Override
-        public <T1, T2> Results<Results.With2<T1, T2>> findCompositionsWith(Class<T1> type1, Class<T2> type2) {
+        public <T1, T2> Results.Of2<T1, T2> findCompositionsWith(Class<T1> type1, Class<T2> type2) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3> Results<Results.With3<T1, T2, T3>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
+        public <T1, T2, T3> Results.Of3<T1, T2, T3> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3, T4> Results<Results.With4<T1, T2, T3, T4>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
+        public <T1, T2, T3, T4> Results.Of4<T1, T2, T3, T4> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3, T4, T5> Results<Results.With5<T1, T2, T3, T4, T5>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
+        public <T1, T2, T3, T4, T5> Results.Of5<T1, T2, T3, T4, T5> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3, T4, T5, T6> Results<Results.With6<T1, T2, T3, T4, T5, T6>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
+        public <T1, T2, T3, T4, T5, T6> Results.Of6<T1, T2, T3, T4, T5, T6> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
             return null;
         }
 
@@ -122,32 +173,32 @@ public class DominionTest {
         }
 
         @Override
-        public <T> Results<Results.With1<T>> findEntitiesWith(Class<T> type) {
+        public <T> Results.Of1<T> findEntitiesWith(Class<T> type) {
             return null;
         }
 
         @Override
-        public <T1, T2> Results<Results.With2<T1, T2>> findEntitiesWith(Class<T1> type1, Class<T2> type2) {
+        public <T1, T2> Results.Of2<T1, T2> findEntitiesWith(Class<T1> type1, Class<T2> type2) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3> Results<Results.With3<T1, T2, T3>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
+        public <T1, T2, T3> Results.Of3<T1, T2, T3> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3, T4> Results<Results.With4<T1, T2, T3, T4>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
+        public <T1, T2, T3, T4> Results.Of4<T1, T2, T3, T4> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3, T4, T5> Results<Results.With5<T1, T2, T3, T4, T5>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
+        public <T1, T2, T3, T4, T5> Results.Of5<T1, T2, T3, T4, T5> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
             return null;
         }
 
         @Override
-        public <T1, T2, T3, T4, T5, T6> Results<Results.With6<T1, T2, T3, T4, T5, T6>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
+        public <T1, T2, T3, T4, T5, T6> Results.Of6<T1, T2, T3, T4, T5, T6> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
             return null;
         }
 
@@ -6,6 +6,7 @@
 package dev.dominion.ecs.engine.benchmarks;
 
 import dev.dominion.ecs.engine.DataComposition;
+import dev.dominion.ecs.engine.EntityRepository;
 import dev.dominion.ecs.engine.IntEntity;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.system.ClassIndex;
@@ -13,7 +14,10 @@ import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.Logging;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 @OutputTimeUnit(TimeUnit.NANOSECONDS)
@@ -141,6 +145,41 @@ public class DataCompositionBenchmark extends DominionBenchmark {
         }
     }
 
+    public static class CompositionFootprint {
+        public static void main(String[] args) {
+            System.out.println(VM.current().details());
+            Object[] components = {new C1(0), new C2(0), new C3(0), new C4(0), new C5(0), new C6(0)};
+            System.out.printf("%-12s%12s%16s%16s%n", "components", "entities", "EAGER (bytes)", "LAZY (bytes)");
+            for (int length : new int[]{1, 2, 4, 6}) {
+                for (int entities : new int[]{1, 10, 100, 1000, 10000}) {
+                    System.out.printf("%-12d%12d%16d%16d%n", length, entities
+                            , footprint(Config.ChunkAllocation.EAGER, Arrays.copyOf(components, length), entities)
+                            , footprint(Config.ChunkAllocation.LAZY, Arrays.copyOf(components, length), entities)
+                    );
+                }
+            }
+        }
+
+        // heap bytes added to a fresh repository by one composition and its entities (component instances are shared)
+        private static long footprint(Config.ChunkAllocation chunkAllocation, Object[] components, int entities) {
+            EntityRepository entityRepository = new EntityRepository("footprint"
+                    , Config.DominionSize.MEDIUM.classIndexBit()
+                    , Config.DominionSize.MEDIUM.chunkBit()
+                    , chunkAllocation
+                    , Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS
+                    , Logging.Context.TEST);
+            try {
+                long empty = GraphLayout.parseInstance(entityRepository).totalSize();
+                for (int i = 0; i < entities; i++) {
+                    entityRepository.createEntity(components);
+                }
+                return GraphLayout.parseInstance(entityRepository).totalSize() - empty;
+            } finally {
+                entityRepository.close();
+            }
+        }
+    }
+
     record C1(int id) {
     }
 
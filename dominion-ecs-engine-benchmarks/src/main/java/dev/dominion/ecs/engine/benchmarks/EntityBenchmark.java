@@ -292,6 +292,12 @@ public class EntityBenchmark extends DominionBenchmark {
             }
         }
 
+        @Benchmark
+        public void modifyAll(Blackhole bh) {
+            bh.consume(entityRepository.findEntitiesWith(C1.class)
+                    .modifyAll(entity -> modifier.withValue(entity, new C0(0))));
+        }
+
         public Object[] getInput() {
             return input;
         }
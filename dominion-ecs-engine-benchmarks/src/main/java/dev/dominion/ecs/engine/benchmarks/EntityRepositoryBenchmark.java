@@ -8,9 +8,13 @@ package dev.dominion.ecs.engine.benchmarks;
 import dev.dominion.ecs.api.Composition;
 import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.engine.EntityRepository;
+import dev.dominion.ecs.engine.system.Config;
+import dev.dominion.ecs.engine.system.Logging;
 import org.openjdk.jmh.annotations.*;
 import org.openjdk.jmh.infra.Blackhole;
 
+import java.util.concurrent.TimeUnit;
+
 public class EntityRepositoryBenchmark extends DominionBenchmark {
 
     public static void main(String[] args) throws Exception {
@@ -96,6 +100,14 @@ public class EntityRepositoryBenchmark extends DominionBenchmark {
             }
         }
 
+        @Benchmark
+        public void createPreparedEntities(Blackhole bh) {
+            if (getPreparedInput() == null) {
+                return;
+            }
+            bh.consume(entities = entityRepository.createPreparedEntities(size, i -> getPreparedInput()));
+        }
+
         public void onSetup() {
         }
 
@@ -110,6 +122,8 @@ public class EntityRepositoryBenchmark extends DominionBenchmark {
         @TearDown(Level.Iteration)
         public void tearDown() {
             entityRepository.close();
+            // entities of a closed repository must not be deleted by the next iteration
+            entities = null;
         }
     }
 
@@ -223,6 +237,48 @@ public class EntityRepositoryBenchmark extends DominionBenchmark {
     }
 
 
+    // one thread per core creates entities of the same composition in a shared repository, with the synchronized
+    // creation mode as the baseline of the lock-free one
+    @State(Scope.Benchmark)
+    @Threads(Threads.MAX)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public static class CreateEntityConcurrently extends DominionBenchmark {
+        EntityRepository entityRepository;
+
+        @Param(value = {"100000"})
+        int size;
+
+        @Param(value = {"LOCK_FREE", "SYNCHRONIZED"})
+        Config.CreationMode creationMode;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(CreateEntityConcurrently.class)}
+            );
+        }
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            entityRepository = new EntityRepository("create-concurrently",
+                    Config.DominionSize.MEDIUM.classIndexBit(), Config.DominionSize.MEDIUM.chunkBit(),
+                    Config.ChunkAllocation.EAGER, Config.DeletionMode.IMMEDIATE, Config.StateMode.TENANT, creationMode,
+                    Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Logging.Context.TEST);
+        }
+
+        @Benchmark
+        public void createEntityOf2(Blackhole bh) {
+            for (int i = 0; i < size; i++) {
+                bh.consume(entityRepository.createEntity(new C1(i), new C2(i)));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            entityRepository.close();
+        }
+    }
+
+
     public static class DeleteEntity extends DominionBenchmark {
         private final Object[] input1 = new Object[]{
                 new C1(0)
@@ -306,12 +362,113 @@ public class EntityRepositoryBenchmark extends DominionBenchmark {
             }
         }
 
+        @Benchmark
+        public void deleteAllOf2(Blackhole bh) {
+            bh.consume(entityRepository.clear(entityRepository.composition().of(C1.class, C2.class)));
+        }
+
+        @Benchmark
+        public void deleteAllOf8(Blackhole bh) {
+            bh.consume(entityRepository.findEntitiesWith(C8.class).deleteAll());
+        }
+
         @TearDown(Level.Iteration)
         public void tearDown() {
             entityRepository.close();
         }
     }
 
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public static class DeleteEntityWhileIterating extends DominionBenchmark {
+        EntityRepository entityRepository;
+        @Param(value = {"1000000"})
+        int size;
+        @Param(value = {"IMMEDIATE", "DEFERRED"})
+        Config.DeletionMode deletionMode;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(DeleteEntityWhileIterating.class)}
+            );
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() {
+            entityRepository = new EntityRepository("delete-while-iterating",
+                    Config.DominionSize.MEDIUM.classIndexBit(), Config.DominionSize.MEDIUM.chunkBit(),
+                    Config.ChunkAllocation.EAGER, deletionMode, Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS,
+                    Logging.Context.TEST);
+            for (int i = 0; i < size; i++) {
+                entityRepository.createEntity(new C1(i), new C2(i), new C3(i), new C4(i)
+                        , new C5(i), new C6(i), new C7(i), new C8(i));
+            }
+        }
+
+        @Benchmark
+        public void deleteOneInFourOf8(Blackhole bh) {
+            for (var rs : entityRepository.findEntitiesWith(C1.class)) {
+                if ((rs.comp().id() & 3) == 0) {
+                    bh.consume(entityRepository.deleteEntity(rs.entity()));
+                }
+            }
+            bh.consume(entityRepository.compact());
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() {
+            entityRepository.close();
+        }
+    }
+
+    public static class IterateChangedEntities extends DominionBenchmark {
+        EntityRepository entityRepository;
+        Entity[] entities;
+        long since;
+        @Param(value = {"1000000"})
+        int size;
+        @Param(value = {"100000"})
+        int changedEvery;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(IterateChangedEntities.class)}
+            );
+        }
+
+        @Setup(Level.Trial)
+        public void setup() {
+            entityRepository = (EntityRepository) new EntityRepository.Factory().create();
+            entities = new Entity[size];
+            for (int i = 0; i < size; i++) {
+                entities[i] = entityRepository.createEntity(new C1(i), new C2(i));
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setupIteration() {
+            since = entityRepository.version();
+            for (int i = 0; i < size; i += changedEvery) {
+                entities[i].markChanged(C1.class);
+            }
+        }
+
+        @Benchmark
+        public void iterateAll(Blackhole bh) {
+            entityRepository.findEntitiesWith(C1.class, C2.class).forEach((c1, c2, entity) -> bh.consume(c1));
+        }
+
+        @Benchmark
+        public void iterateChanged(Blackhole bh) {
+            entityRepository.findEntitiesWith(C1.class, C2.class).changedSince(since, C1.class)
+                    .forEach((c1, c2, entity) -> bh.consume(c1));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            entityRepository.close();
+        }
+    }
+
     // FIND Components
 
     public static abstract class FindComponents extends DominionBenchmark {
@@ -49,11 +49,17 @@ public class IteratingComponentBenchmark {
 
             @Benchmark
             public void iterate(Blackhole bh) {
-                var iterator = entityRepository.findCompositionsWith(C1.class).iterator();
+                var iterator = entityRepository.findEntitiesWith(C1.class).iterator();
                 while (iterator.hasNext()) {
-                    bh.consume(iterator.next());
+                    C1 c1 = iterator.next().comp();
+                    bh.consume(c1);
                 }
             }
+
+            @Benchmark
+            public void forEach(Blackhole bh) {
+                entityRepository.findEntitiesWith(C1.class).forEach((c1, entity) -> bh.consume(c1));
+            }
         }
 
         public static class IterateUnpacking02 extends Dominion {
@@ -69,9 +75,18 @@ public class IteratingComponentBenchmark {
             public void iterate(Blackhole bh) {
                 var iterator = entityRepository.findCompositionsWith(C1.class, C2.class).iterator();
                 while (iterator.hasNext()) {
-                    bh.consume(iterator.next().comp2());
+                    var result = iterator.next();
+                    // every component is read with its type, as the typed parameters of the forEach consumer
+                    C1 c1 = result.comp1();
+                    C2 c2 = result.comp2();
+                    bh.consume(c2);
                 }
             }
+
+            @Benchmark
+            public void forEach(Blackhole bh) {
+                entityRepository.findCompositionsWith(C1.class, C2.class).forEach((c1, c2, entity) -> bh.consume(c2));
+            }
         }
 
         public static class IterateUnpacking03 extends Dominion {
@@ -87,9 +102,18 @@ public class IteratingComponentBenchmark {
             public void iterate(Blackhole bh) {
                 var iterator = entityRepository.findCompositionsWith(C1.class, C2.class, C3.class).iterator();
                 while (iterator.hasNext()) {
-                    bh.consume(iterator.next().comp3());
+                    var result = iterator.next();
+                    C1 c1 = result.comp1();
+                    C2 c2 = result.comp2();
+                    C3 c3 = result.comp3();
+                    bh.consume(c3);
                 }
             }
+
+            @Benchmark
+            public void forEach(Blackhole bh) {
+                entityRepository.findCompositionsWith(C1.class, C2.class, C3.class).forEach((c1, c2, c3, entity) -> bh.consume(c3));
+            }
         }
 
         public static class IterateUnpacking04 extends Dominion {
@@ -105,9 +129,19 @@ public class IteratingComponentBenchmark {
             public void iterate(Blackhole bh) {
                 var iterator = entityRepository.findCompositionsWith(C1.class, C2.class, C3.class, C4.class).iterator();
                 while (iterator.hasNext()) {
-                    bh.consume(iterator.next().comp4());
+                    var result = iterator.next();
+                    C1 c1 = result.comp1();
+                    C2 c2 = result.comp2();
+                    C3 c3 = result.comp3();
+                    C4 c4 = result.comp4();
+                    bh.consume(c4);
                 }
             }
+
+            @Benchmark
+            public void forEach(Blackhole bh) {
+                entityRepository.findCompositionsWith(C1.class, C2.class, C3.class, C4.class).forEach((c1, c2, c3, c4, entity) -> bh.consume(c4));
+            }
         }
 
         public static class IterateUnpacking05 extends Dominion {
@@ -123,9 +157,20 @@ public class IteratingComponentBenchmark {
             public void iterate(Blackhole bh) {
                 var iterator = entityRepository.findCompositionsWith(C1.class, C2.class, C3.class, C4.class, C5.class).iterator();
                 while (iterator.hasNext()) {
-                    bh.consume(iterator.next().comp5());
+                    var result = iterator.next();
+                    C1 c1 = result.comp1();
+                    C2 c2 = result.comp2();
+                    C3 c3 = result.comp3();
+                    C4 c4 = result.comp4();
+                    C5 c5 = result.comp5();
+                    bh.consume(c5);
                 }
             }
+
+            @Benchmark
+            public void forEach(Blackhole bh) {
+                entityRepository.findCompositionsWith(C1.class, C2.class, C3.class, C4.class, C5.class).forEach((c1, c2, c3, c4, c5, entity) -> bh.consume(c5));
+            }
         }
 
         public static class IterateUnpacking06 extends Dominion {
@@ -141,9 +186,21 @@ public class IteratingComponentBenchmark {
             public void iterate(Blackhole bh) {
                 var iterator = entityRepository.findCompositionsWith(C1.class, C2.class, C3.class, C4.class, C5.class, C6.class).iterator();
                 while (iterator.hasNext()) {
-                    bh.consume(iterator.next().comp6());
+                    var result = iterator.next();
+                    C1 c1 = result.comp1();
+                    C2 c2 = result.comp2();
+                    C3 c3 = result.comp3();
+                    C4 c4 = result.comp4();
+                    C5 c5 = result.comp5();
+                    C6 c6 = result.comp6();
+                    bh.consume(c6);
                 }
             }
+
+            @Benchmark
+            public void forEach(Blackhole bh) {
+                entityRepository.findCompositionsWith(C1.class, C2.class, C3.class, C4.class, C5.class, C6.class).forEach((c1, c2, c3, c4, c5, c6, entity) -> bh.consume(c6));
+            }
         }
     }
 
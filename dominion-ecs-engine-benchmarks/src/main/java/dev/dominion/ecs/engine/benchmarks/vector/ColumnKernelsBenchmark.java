@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.benchmarks.vector;
+
+import dev.dominion.ecs.api.Dominion;
+import dev.dominion.ecs.api.Flat;
+import dev.dominion.ecs.api.Results;
+import dev.dominion.ecs.engine.benchmarks.DominionBenchmark;
+import dev.dominion.ecs.vector.ColumnKernels;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class ColumnKernelsBenchmark extends DominionBenchmark {
+    private static final float DT = 0.016f;
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(
+                new String[]{fetchBenchmarkName(ColumnKernelsBenchmark.class)}
+        );
+    }
+
+    static float[] randomColumn(int size, long seed) {
+        Random random = new Random(seed);
+        float[] column = new float[size];
+        for (int i = 0; i < size; i++) {
+            column[i] = random.nextFloat() * 200 - 100;
+        }
+        return column;
+    }
+
+
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Fork(value = 1, warmups = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public static class Kernels extends DominionBenchmark {
+        float[] target;
+        float[] source;
+
+        @Param(value = {"4096"})
+        int size;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(Kernels.class)}
+            );
+        }
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            target = randomColumn(size, 1);
+            source = randomColumn(size, 2);
+        }
+
+        @Benchmark
+        public void fmaScalar() {
+            for (int i = 0; i < size; i++) {
+                target[i] = Math.fma(source[i], DT, target[i]);
+            }
+        }
+
+        @Benchmark
+        public void fmaVector() {
+            ColumnKernels.fma(target, source, DT, size);
+        }
+
+        @Benchmark
+        public void clampScalar() {
+            for (int i = 0; i < size; i++) {
+                target[i] = Math.min(Math.max(target[i], -50f), 50f);
+            }
+        }
+
+        @Benchmark
+        public void clampVector() {
+            ColumnKernels.clamp(target, -50f, 50f, size);
+        }
+
+        @Benchmark
+        public void sumScalar(Blackhole bh) {
+            float sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += source[i];
+            }
+            bh.consume(sum);
+        }
+
+        @Benchmark
+        public void sumVector(Blackhole bh) {
+            bh.consume(ColumnKernels.sum(source, size));
+        }
+
+        @Benchmark
+        public void minMaxScalar(Blackhole bh) {
+            float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, source[i]);
+                max = Math.max(max, source[i]);
+            }
+            bh.consume(min);
+            bh.consume(max);
+        }
+
+        @Benchmark
+        public void minMaxVector(Blackhole bh) {
+            bh.consume(ColumnKernels.min(source, size));
+            bh.consume(ColumnKernels.max(source, size));
+        }
+    }
+
+
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, warmups = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public static class Integrate extends DominionBenchmark {
+        Dominion dominion;
+        Results<Results.With2<Position, Velocity>> results;
+
+        @Param(value = {"1000000"})
+        int size;
+
+        public static void main(String[] args) throws Exception {
+            org.openjdk.jmh.Main.main(
+                    new String[]{fetchBenchmarkName(Integrate.class)}
+            );
+        }
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            dominion = Dominion.create();
+            for (int i = 0; i < size; i++) {
+                dominion.createEntity(new Position(i, i, i), new Velocity(1, 1, 1));
+            }
+            results = dominion.findCompositionsWith(Position.class, Velocity.class);
+        }
+
+        @Benchmark
+        public void scalar() {
+            results.forEachChunk(batch -> {
+                int size = batch.size();
+                for (int field = 0; field < 3; field++) {
+                    float[] p = batch.floatColumn(Position.class, field);
+                    float[] v = batch.floatColumn(Velocity.class, field);
+                    for (int i = 0; i < size; i++) {
+                        p[i] += v[i] * DT;
+                    }
+                }
+            });
+        }
+
+        @Benchmark
+        public void vector() {
+            results.forEachChunk(batch -> {
+                int size = batch.size();
+                for (int field = 0; field < 3; field++) {
+                    ColumnKernels.fma(batch.floatColumn(Position.class, field),
+                            batch.floatColumn(Velocity.class, field), DT, size);
+                }
+            });
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            dominion.close();
+        }
+
+        @Flat
+        public record Position(float x, float y, float z) {
+        }
+
+        @Flat
+        public record Velocity(float x, float y, float z) {
+        }
+    }
+}
@@ -6,6 +6,7 @@
 open module dev.dominion.ecs.engine.benchmarks {
     requires dev.dominion.ecs.api;
     requires dev.dominion.ecs.engine;
+    requires dev.dominion.ecs.vector;
     requires jmh.core;
     requires jol.core;
     requires artemis.odb;
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.Scheduler;
+import dev.dominion.ecs.engine.system.Logging;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+/**
+ * The CommandBuffer class records the structural changes of a single thread, to be played back by the scheduler.
+ * Recording only takes the uncontended lock of the buffer, while the playback merges the commands of all the buffers
+ * by entity and applies them from a single thread. The buffer of a terminated thread is dropped by the first playback
+ * that drains it.
+ */
+public final class CommandBuffer implements Scheduler.Commands {
+    private static final System.Logger LOGGER = Logging.getLogger();
+    private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+    private List<Command> commands = new ArrayList<>();
+
+    // plays back the commands of all the buffers, returning the number of created, deleted and modified entities
+    public static int playback(EntityRepository repository, Collection<CommandBuffer> buffers,
+                               Logging.Context loggingContext) {
+        List<Object[]> creations = new ArrayList<>();
+        Map<IntEntity, Changes> changesMap = new LinkedHashMap<>();
+        for (Iterator<CommandBuffer> iterator = buffers.iterator(); iterator.hasNext(); ) {
+            CommandBuffer buffer = iterator.next();
+            // checked before draining: a terminated thread cannot record any further command
+            boolean orphan = buffer.isOrphan();
+            List<Command> drained = buffer.drain();
+            if (orphan) {
+                iterator.remove();
+            }
+            for (Command command : drained) {
+                if (command instanceof Create create) {
+                    creations.add(create.components);
+                    continue;
+                }
+                Changes changes = changesMap.computeIfAbsent(command.entity(), entity -> new Changes());
+                if (command instanceof Delete) {
+                    changes.deleted = true;
+                } else if (command instanceof Add add) {
+                    changes.added.put(add.component.getClass(), add.component);
+                } else if (command instanceof RemoveType removeType) {
+                    changes.added.remove(removeType.componentType);
+                    changes.removed.add(removeType.componentType);
+                } else if (command instanceof SetState setState) {
+                    // a null state removes the states recorded so far, as well as the current ones of the entity
+                    if (setState.state == null) {
+                        changes.states.clear();
+                        changes.statesCleared = true;
+                    } else {
+                        changes.states.put(setState.state.getDeclaringClass(), setState.state);
+                    }
+                }
+            }
+        }
+        if (creations.isEmpty() && changesMap.isEmpty()) {
+            return 0;
+        }
+        CompositionRepository compositions = repository.getCompositionRepository();
+        Map<ModifierKey, PreparedComposition.PreparedModifier> modifiers = new HashMap<>();
+        int count = 0;
+        for (var entry : changesMap.entrySet()) {
+            IntEntity entity = entry.getKey();
+            Changes changes = entry.getValue();
+            if (changes.deleted) {
+                if (!entity.isDeleted() && repository.deleteEntity(entity)) {
+                    count++;
+                }
+                continue;
+            }
+            if (!entity.isEnabled()) {
+                continue;
+            }
+            boolean modified = modifyDetached(entity, changes);
+            if (!changes.added.isEmpty() || !changes.removed.isEmpty()) {
+                modified |= modify(compositions, modifiers, entity, changes);
+            }
+            if (changes.statesCleared && entity.hasState()) {
+                setState(entity, (Enum<?>) null);
+                modified = true;
+            }
+            for (Enum<?> state : changes.states.values()) {
+                setState(entity, state);
+                modified = true;
+            }
+            if (modified) {
+                count++;
+            }
+        }
+        for (Object[] components : creations) {
+            repository.createEntity(components);
+        }
+        count += creations.size();
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Playing back commands on " + count + " entities")
+            );
+        }
+        return count;
+    }
+
+    // applies the changes of sparse and tag types in place, leaving the others to the composition change
+    private static boolean modifyDetached(IntEntity entity, Changes changes) {
+        boolean modified = false;
+        for (var iterator = changes.removed.iterator(); iterator.hasNext(); ) {
+            Class<?> componentType = iterator.next();
+            if (CompositionRepository.isDetached(componentType)) {
+                modified |= entity.removeType(componentType);
+                iterator.remove();
+            }
+        }
+        for (var iterator = changes.added.values().iterator(); iterator.hasNext(); ) {
+            Object component = iterator.next();
+            if (CompositionRepository.isDetached(component.getClass())) {
+                entity.add(component);
+                modified = true;
+                iterator.remove();
+            }
+        }
+        return modified;
+    }
+
+    // moves the entity to its final composition at once: added types are also removed from the previous composition,
+    // so that a component already in the composition is replaced
+    private static boolean modify(CompositionRepository compositions,
+                                  Map<ModifierKey, PreparedComposition.PreparedModifier> modifiers,
+                                  IntEntity entity, Changes changes) {
+        Class<?>[] addedTypes = changes.added.keySet().toArray(new Class<?>[0]);
+        Object[] addedComponents = changes.added.values().toArray();
+        Set<Class<?>> removedTypes = new HashSet<>(changes.removed);
+        Collections.addAll(removedTypes, addedTypes);
+        var modifier = modifiers.computeIfAbsent(new ModifierKey(List.of(addedTypes), removedTypes),
+                key -> new PreparedComposition.PreparedModifier(compositions, true,
+                        addedTypes.length == 0 ? null : addedTypes, removedTypes.toArray(new Class<?>[0])));
+        DataComposition composition = entity.getComposition();
+        var targetComposition = modifier.fetchTargetComposition(composition);
+        if (targetComposition.target() != composition) {
+            return entity.modify(compositions, targetComposition, null, addedComponents);
+        }
+        if (addedTypes.length == 0) {
+            return false;
+        }
+        // the components are only replaced
+        synchronized (entity.getChunk().getTenant()) {
+            entity.getChunk().add(entity.getId(), targetComposition.addedIndexMapping(), null, addedComponents);
+        }
+        compositions.getComponentIndexes().updated(entity);
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void setState(IntEntity entity, Enum state) {
+        entity.setState(state);
+    }
+
+    private synchronized void record(Command command) {
+        commands.add(command);
+    }
+
+    private boolean isOrphan() {
+        Thread thread = owner.get();
+        return thread == null || !thread.isAlive();
+    }
+
+    private synchronized List<Command> drain() {
+        List<Command> drained = commands;
+        commands = new ArrayList<>();
+        return drained;
+    }
+
+    public synchronized int size() {
+        return commands.size();
+    }
+
+    @Override
+    public void createEntity(Object... components) {
+        record(new Create(components.length == 0 ? null : components));
+    }
+
+    @Override
+    public void deleteEntity(Entity entity) {
+        record(new Delete((IntEntity) entity));
+    }
+
+    @Override
+    public void add(Entity entity, Object component) {
+        record(new Add((IntEntity) entity, component));
+    }
+
+    @Override
+    public void removeType(Entity entity, Class<?> componentType) {
+        record(new RemoveType((IntEntity) entity, componentType));
+    }
+
+    @Override
+    public <S extends Enum<S>> void setState(Entity entity, S state) {
+        record(new SetState((IntEntity) entity, state));
+    }
+
+    private sealed interface Command permits Create, Delete, Add, RemoveType, SetState {
+        IntEntity entity();
+    }
+
+    private record Create(Object[] components) implements Command {
+        @Override
+        public IntEntity entity() {
+            return null;
+        }
+    }
+
+    private record Delete(IntEntity entity) implements Command {
+    }
+
+    private record Add(IntEntity entity, Object component) implements Command {
+    }
+
+    private record RemoveType(IntEntity entity, Class<?> componentType) implements Command {
+    }
+
+    private record SetState(IntEntity entity, Enum<?> state) implements Command {
+    }
+
+    private record ModifierKey(List<Class<?>> addedTypes, Set<Class<?>> removedTypes) {
+    }
+
+    private static final class Changes {
+        private final Map<Class<?>, Object> added = new LinkedHashMap<>();
+        private final Set<Class<?>> removed = new HashSet<>();
+        // the last state of each enumeration type
+        private final Map<Class<?>, Enum<?>> states = new LinkedHashMap<>();
+        private boolean statesCleared;
+        private boolean deleted;
+    }
+}
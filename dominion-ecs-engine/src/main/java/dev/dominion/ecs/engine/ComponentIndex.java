@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.Dominion;
+import dev.dominion.ecs.api.Entity;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The ComponentIndex class maps the keys extracted from the components of a type to the entities having them.
+ * Each key maps to a single entity, or to a list of entities once a second entity shares the key, as keys such as ids
+ * and names are usually unique. The key of each entity is also kept, so that an entity is removed from its previous
+ * key even after its component has been mutated in place or replaced.
+ *
+ * @param <T> the indexed component type
+ * @param <K> the key type
+ */
+public final class ComponentIndex<T, K> implements Dominion.Index<T, K> {
+    private static final Object[] NO_ENTITIES = new Object[0];
+    private final Class<T> componentType;
+    private final Function<T, K> keyFunction;
+    // the entity of each key, or the list of entities sharing the key
+    private final Map<Object, Object> entities = new HashMap<>();
+    private final Map<IntEntity, Object> keys = new HashMap<>();
+
+    public ComponentIndex(Class<T> componentType, Function<T, K> keyFunction) {
+        this.componentType = componentType;
+        this.keyFunction = keyFunction;
+    }
+
+    @Override
+    public Class<T> getComponentType() {
+        return componentType;
+    }
+
+    // the key is extracted out of the index lock, as the key function is user code
+    void update(IntEntity entity) {
+        T component = entity.get(componentType);
+        K key = component == null ? null : keyFunction.apply(component);
+        put(entity, key);
+    }
+
+    synchronized void put(IntEntity entity, Object key) {
+        Object previous = key == null ? keys.remove(entity) : keys.put(entity, key);
+        if (Objects.equals(previous, key)) {
+            return;
+        }
+        if (previous != null) {
+            removeEntry(previous, entity);
+        }
+        if (key != null) {
+            addEntry(key, entity);
+        }
+    }
+
+    synchronized void remove(IntEntity entity) {
+        Object previous = keys.remove(entity);
+        if (previous != null) {
+            removeEntry(previous, entity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addEntry(Object key, IntEntity entity) {
+        Object entry = entities.putIfAbsent(key, entity);
+        if (entry instanceof IntEntity single) {
+            List<IntEntity> list = new ArrayList<>(2);
+            list.add(single);
+            list.add(entity);
+            entities.put(key, list);
+        } else if (entry != null) {
+            ((List<IntEntity>) entry).add(entity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeEntry(Object key, IntEntity entity) {
+        Object entry = entities.get(key);
+        if (entry == entity) {
+            entities.remove(key);
+        } else if (entry instanceof List<?>) {
+            List<IntEntity> list = (List<IntEntity>) entry;
+            list.remove(entity);
+            if (list.size() == 1) {
+                entities.put(key, list.get(0));
+            }
+        }
+    }
+
+    /**
+     * Provides a snapshot of the entities with the given key, disabled ones included.
+     *
+     * @param key the key
+     * @return the entities
+     */
+    synchronized Object[] snapshot(Object key) {
+        Object entry = key == null ? null : entities.get(key);
+        return entry == null ? NO_ENTITIES :
+                entry instanceof List<?> list ? list.toArray() : new Object[]{entry};
+    }
+
+    synchronized int count(Object key) {
+        Object entry = key == null ? null : entities.get(key);
+        return entry == null ? 0 : entry instanceof List<?> list ? list.size() : 1;
+    }
+
+    synchronized boolean contains(Object key, IntEntity entity) {
+        return key != null && key.equals(keys.get(entity));
+    }
+
+    @Override
+    public List<Entity> find(K key) {
+        List<Entity> found = new ArrayList<>();
+        for (Object entity : snapshot(key)) {
+            if (((IntEntity) entity).isEnabled()) {
+                found.add((Entity) entity);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Entity findFirst(K key) {
+        for (Object entity : snapshot(key)) {
+            if (((IntEntity) entity).isEnabled()) {
+                return (Entity) entity;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized int size() {
+        return keys.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentIndex={"
+                + "type=" + componentType.getSimpleName()
+                + ", size=" + size()
+                + '}';
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ComponentIndexes class keeps the component indexes of a Dominion up to date along the lifecycle of the entities.
+ * Nothing is done while there are no indexes: otherwise, a created or modified entity is indexed again by every index
+ * whose component type it has, and a deleted entity is removed from every index.
+ */
+public final class ComponentIndexes {
+    private static final ComponentIndex<?, ?>[] NO_INDEXES = new ComponentIndex<?, ?>[0];
+    private volatile ComponentIndex<?, ?>[] indexes = NO_INDEXES;
+
+    public synchronized void add(ComponentIndex<?, ?> index) {
+        ComponentIndex<?, ?>[] newIndexes = Arrays.copyOf(indexes, indexes.length + 1);
+        newIndexes[indexes.length] = index;
+        indexes = newIndexes;
+    }
+
+    public synchronized boolean remove(Object index) {
+        List<ComponentIndex<?, ?>> list = new ArrayList<>(Arrays.asList(indexes));
+        if (!list.remove(index)) {
+            return false;
+        }
+        indexes = list.toArray(NO_INDEXES);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return indexes.length == 0;
+    }
+
+    // an entity is created, modified or enabled again: the entities losing the indexed type are removed from the index
+    public void updated(IntEntity entity) {
+        for (ComponentIndex<?, ?> index : indexes) {
+            index.update(entity);
+        }
+    }
+
+    public void updated(IntEntity[] entities) {
+        ComponentIndex<?, ?>[] indexes = this.indexes;
+        if (indexes.length == 0) {
+            return;
+        }
+        for (IntEntity entity : entities) {
+            for (ComponentIndex<?, ?> index : indexes) {
+                index.update(entity);
+            }
+        }
+    }
+
+    // a component has been marked as changed: only the indexes of its type are involved
+    public void updated(IntEntity entity, Class<?> componentType) {
+        for (ComponentIndex<?, ?> index : indexes) {
+            if (index.getComponentType() == componentType) {
+                index.update(entity);
+            }
+        }
+    }
+
+    public void deleted(IntEntity entity) {
+        for (ComponentIndex<?, ?> index : indexes) {
+            index.remove(entity);
+        }
+    }
+}
@@ -9,10 +9,12 @@ import dev.dominion.ecs.api.Composition;
 import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
+import dev.dominion.ecs.engine.collections.SparseSet;
 import dev.dominion.ecs.engine.system.ClassIndex;
 import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
+import dev.dominion.ecs.engine.system.TagIndex;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,13 +23,22 @@ import java.util.stream.Collectors;
 
 public final class CompositionRepository implements AutoCloseable {
     private static final System.Logger LOGGER = Logging.getLogger();
+    // the key of the root composition among the nodes of all the compositions
+    private static final IndexKey ROOT_KEY = new IndexKey(new int[0]);
     private final NodeCache nodeCache = new NodeCache();
     private final ClassIndex classIndex;
     private final ChunkedPool<IntEntity> pool;
+    private final EntityTable entityTable;
+    private final EntityEvents entityEvents;
+    private final ComponentIndexes componentIndexes = new ComponentIndexes();
     private final IdSchema idSchema;
     private final PreparedComposition preparedComposition;
     private final Map<Class<?>, Composition.ByAdding1AndRemoving<?>> addingTypeModifiers = new ConcurrentHashMap<>();
     private final Map<Class<?>, Composition.ByRemoving> removingTypeModifiers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, SparseSet<IntEntity>> sparseSets = new ConcurrentHashMap<>();
+    private final TagIndex tagIndex = new TagIndex();
+    private final Map<Class<?>, Integer> stateTypes = new ConcurrentHashMap<>();
+    private final boolean stateColumn;
     private final Node root;
     private final Logging.Context loggingContext;
 
@@ -39,10 +50,36 @@ public final class CompositionRepository implements AutoCloseable {
     }
 
     public CompositionRepository(int classIndexBit, int chunkBit, Logging.Context loggingContext) {
+        this(classIndexBit, chunkBit, Config.ChunkAllocation.EAGER, loggingContext);
+    }
+
+    public CompositionRepository(int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                                 Logging.Context loggingContext) {
+        this(classIndexBit, chunkBit, chunkAllocation, Config.DeletionMode.IMMEDIATE, loggingContext);
+    }
+
+    public CompositionRepository(int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                                 Config.DeletionMode deletionMode, Logging.Context loggingContext) {
+        this(classIndexBit, chunkBit, chunkAllocation, deletionMode, Config.StateMode.TENANT, loggingContext);
+    }
+
+    public CompositionRepository(int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                                 Config.DeletionMode deletionMode, Config.StateMode stateMode,
+                                 Logging.Context loggingContext) {
+        this(classIndexBit, chunkBit, chunkAllocation, deletionMode, stateMode, Config.CreationMode.LOCK_FREE,
+                loggingContext);
+    }
+
+    public CompositionRepository(int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                                 Config.DeletionMode deletionMode, Config.StateMode stateMode,
+                                 Config.CreationMode creationMode, Logging.Context loggingContext) {
+        entityTable = new EntityTable(creationMode == Config.CreationMode.LOCK_FREE);
+        stateColumn = stateMode == Config.StateMode.COLUMN;
         classIndex = new ClassIndex(classIndexBit, true, loggingContext);
         chunkBit = Math.max(IdSchema.MIN_CHUNK_BIT, Math.min(chunkBit, IdSchema.MAX_CHUNK_BIT));
         idSchema = new IdSchema(chunkBit);
         this.loggingContext = loggingContext;
+        entityEvents = new EntityEvents(loggingContext);
         if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -50,7 +87,7 @@ public final class CompositionRepository implements AutoCloseable {
                     )
             );
         }
-        pool = new ChunkedPool<>(idSchema, loggingContext);
+        pool = new ChunkedPool<>(idSchema, chunkAllocation, deletionMode, creationMode, loggingContext);
         preparedComposition = new PreparedComposition(this);
         root = new Node();
         root.composition = new DataComposition(this, pool, classIndex, idSchema, loggingContext);
@@ -60,6 +97,166 @@ public final class CompositionRepository implements AutoCloseable {
         return pool;
     }
 
+    public EntityTable getEntityTable() {
+        return entityTable;
+    }
+
+    public EntityEvents getEntityEvents() {
+        return entityEvents;
+    }
+
+    public ComponentIndexes getComponentIndexes() {
+        return componentIndexes;
+    }
+
+    public SparseSet<IntEntity> getSparseSet(Class<?> componentType) {
+        return sparseSets.get(componentType);
+    }
+
+    public SparseSet<IntEntity> fetchSparseSet(Class<?> componentType) {
+        SparseSet<IntEntity> sparseSet = sparseSets.get(componentType);
+        return sparseSet == null ?
+                sparseSets.computeIfAbsent(componentType, SparseSet::new) :
+                sparseSet;
+    }
+
+    // sparse components are keyed by the handle slot of the entity, that never changes while the entity exists
+    public Object putSparseComponent(IntEntity entity, Object component) {
+        return fetchSparseSet(component.getClass())
+                .put(EntityTable.slotOf(entity.getHandle()), entity, component);
+    }
+
+    public boolean removeSparseComponentType(IntEntity entity, Class<?> componentType) {
+        SparseSet<IntEntity> sparseSet = sparseSets.get(componentType);
+        return sparseSet != null && sparseSet.remove(EntityTable.slotOf(entity.getHandle()), entity) != null;
+    }
+
+    public Object getSparseComponent(IntEntity entity, Class<?> componentType) {
+        SparseSet<IntEntity> sparseSet = sparseSets.get(componentType);
+        return sparseSet == null ? null : sparseSet.get(EntityTable.slotOf(entity.getHandle()), entity);
+    }
+
+    // releases the sparse components of a deleted entity, before its handle slot is reused
+    public void removeSparseComponents(IntEntity entity) {
+        if (sparseSets.isEmpty()) {
+            return;
+        }
+        int key = EntityTable.slotOf(entity.getHandle());
+        for (SparseSet<IntEntity> sparseSet : sparseSets.values()) {
+            sparseSet.remove(key, entity);
+        }
+    }
+
+    // with the column state mode, the state of an entity is a code in its chunk slot instead of a state tenant
+    public boolean isStateColumn() {
+        return stateColumn;
+    }
+
+    // with the column state mode, each state enumeration type has its own column of state values in the chunks
+    public int getStateType(Class<?> stateType) {
+        Integer type = stateTypes.get(stateType);
+        return type == null ? -1 : type;
+    }
+
+    public int fetchStateType(Class<?> stateType) {
+        Integer type = stateTypes.get(stateType);
+        return type == null ? addStateType(stateType) : type;
+    }
+
+    private synchronized int addStateType(Class<?> stateType) {
+        Integer type = stateTypes.get(stateType);
+        if (type != null) {
+            return type;
+        }
+        stateTypes.put(stateType, type = stateTypes.size());
+        return type;
+    }
+
+    // a non-zero code of a state, with its state type in the high bits and its ordinal plus one in the low 16 bits
+    public int getStateCode(Enum<?> state) {
+        return fetchStateType(state.getDeclaringClass()) << 16 | state.ordinal() + 1;
+    }
+
+    public TagIndex getTagIndex() {
+        return tagIndex;
+    }
+
+    // tags are bits of the chunk slot of the entity, that are moved along with its data by the tenant
+    // returns whether the tag has been set, as it was missing
+    public boolean addTag(IntEntity entity, Object tag) {
+        long mask = 1L << tagIndex.fetchBit(tag.getClass());
+        tagIndex.putInstance(tag);
+        var chunk = entity.getChunk();
+        synchronized (chunk.getTenant()) {
+            int idx = idSchema.fetchObjectId(entity.getId());
+            long tags = chunk.getTags(idx);
+            if ((tags & mask) != 0) {
+                return false;
+            }
+            chunk.setTags(idx, tags | mask);
+            return true;
+        }
+    }
+
+    public boolean removeTag(IntEntity entity, Class<?> tagType) {
+        int bit = tagIndex.getBit(tagType);
+        if (bit < 0) {
+            return false;
+        }
+        long mask = 1L << bit;
+        var chunk = entity.getChunk();
+        synchronized (chunk.getTenant()) {
+            int idx = idSchema.fetchObjectId(entity.getId());
+            long tags = chunk.getTags(idx);
+            if ((tags & mask) == 0) {
+                return false;
+            }
+            chunk.setTags(idx, tags & ~mask);
+            return true;
+        }
+    }
+
+    // sparse and tag types are stored outside the columns of the compositions
+    public static boolean isDetached(Class<?> componentType) {
+        return SparseSet.isSparse(componentType) || TagIndex.isTag(componentType);
+    }
+
+    // provides the sparse and tag components, or the others, of the given components, or null if there is none
+    public static Object[] filterDetachedComponents(Object[] components, boolean detached) {
+        int count = 0;
+        for (Object component : components) {
+            if (isDetached(component.getClass()) == detached) {
+                count++;
+            }
+        }
+        if (count == components.length) {
+            return components;
+        }
+        if (count == 0) {
+            return null;
+        }
+        Object[] filtered = new Object[count];
+        int i = 0;
+        for (Object component : components) {
+            if (isDetached(component.getClass()) == detached) {
+                filtered[i++] = component;
+            }
+        }
+        return filtered;
+    }
+
+    public List<DataComposition> getCompositions() {
+        List<DataComposition> compositions = new ArrayList<>();
+        compositions.add(root.composition);
+        for (Node node : nodeCache.data.values()) {
+            DataComposition composition = node.getComposition();
+            if (composition != null) {
+                compositions.add(composition);
+            }
+        }
+        return compositions;
+    }
+
     public IdSchema getIdSchema() {
         return idSchema;
     }
@@ -105,6 +302,16 @@ public final class CompositionRepository implements AutoCloseable {
 
     @SuppressWarnings("EnhancedSwitchMigration")
     public DataComposition getOrCreateByType(Class<?>[] componentTypes) {
+        if (componentTypes != null) {
+            for (Class<?> componentType : componentTypes) {
+                if (SparseSet.isSparse(componentType)) {
+                    throw new IllegalArgumentException(componentType.getName() + " is a @Sparse component type: it cannot be part of a composition");
+                }
+                if (TagIndex.isTag(componentType)) {
+                    throw new IllegalArgumentException(componentType.getName() + " is a @Tag component type: it cannot be part of a composition");
+                }
+            }
+        }
         int length = componentTypes == null ? 0 : componentTypes.length;
         switch (length) {
             case 0:
@@ -161,6 +368,7 @@ public final class CompositionRepository implements AutoCloseable {
                             , "Modifying " + entity + " from " + entity.getComposition() + " to " + targetComposition.target())
             );
         }
+        entityEvents.modified(entity, entity.getComposition(), targetComposition.target());
         ChunkedPool.Tenant<IntEntity> prevTenant;
         synchronized (prevTenant = entity.getChunk().getTenant()) {
             int prevId = entity.getId();
@@ -169,13 +377,8 @@ public final class CompositionRepository implements AutoCloseable {
             }
             prevTenant.freeId(prevId);
         }
-        if (entity.stateChunk != null) {
-            ChunkedPool.Tenant<IntEntity> prevStateTenant;
-            synchronized (prevStateTenant = entity.stateChunk.getTenant()) {
-                prevStateTenant.freeStateId(entity.getStateId());
-                entity.stateChunk = targetComposition.target().fetchStateTenants((IndexKey) prevStateTenant.getSubject()).registerState(entity);
-            }
-        }
+        entity.moveStates(targetComposition.target());
+        componentIndexes.updated(entity);
     }
 
     public Entity addComponent(IntEntity entity, Object component) {
@@ -219,6 +422,21 @@ public final class CompositionRepository implements AutoCloseable {
                             , "Find entities with " + Arrays.toString(componentTypes))
             );
         }
+        int detachedCount = 0;
+        for (int i = 0; i < componentTypes.length; i++) {
+            if (isDetached(componentTypes[i])) {
+                detachedCount++;
+            }
+        }
+        if (detachedCount > 0) {
+            // sparse and tag types are stored outside the compositions and are filtered by the results
+            if (detachedCount == componentTypes.length) {
+                return findAll();
+            }
+            componentTypes = Arrays.stream(componentTypes)
+                    .filter(type -> !isDetached(type))
+                    .toArray(Class<?>[]::new);
+        }
         switch (componentTypes.length) {
             case 0:
                 return null;
@@ -241,6 +459,18 @@ public final class CompositionRepository implements AutoCloseable {
         }
     }
 
+    // provides the nodes of all the compositions, the root composition included
+    public Map<IndexKey, Node> findAll() {
+        Map<IndexKey, Node> nodeMap = new ConcurrentHashMap<>();
+        nodeMap.put(ROOT_KEY, root);
+        for (var entry : nodeCache.data.entrySet()) {
+            if (entry.getValue().getComposition() != null) {
+                nodeMap.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return nodeMap;
+    }
+
     public void mapWithout(Map<IndexKey, Node> nodeMap, Class<?>... componentTypes) {
         if (nodeMap == null) {
             return;
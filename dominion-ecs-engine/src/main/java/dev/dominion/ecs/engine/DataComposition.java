@@ -5,17 +5,25 @@
 
 package dev.dominion.ecs.engine;
 
+import dev.dominion.ecs.api.Composition;
+import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.api.Results;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
 import dev.dominion.ecs.engine.system.ClassIndex;
+import dev.dominion.ecs.engine.system.FlatLayout;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public final class DataComposition {
     public static final int COMPONENT_INDEX_CAPACITY = 1 << 10;
@@ -35,7 +43,7 @@ public final class DataComposition {
             , Class<?>... componentTypes) {
         this.repository = repository;
         this.pool = pool;
-        this.tenant = pool == null ? null : pool.newTenant(componentTypes.length, this, "root");
+        this.tenant = pool == null ? null : pool.newTenant(componentTypes.length, FlatLayout.of(componentTypes), this, "root");
         this.classIndex = classIndex;
         this.idSchema = idSchema;
         this.componentTypes = componentTypes;
@@ -65,6 +73,10 @@ public final class DataComposition {
         return length() > 1;
     }
 
+    public boolean isFlat() {
+        return tenant != null && tenant.isFlat();
+    }
+
     public int fetchComponentIndex(Class<?> componentType) {
         return componentIndex[classIndex.getIndex(componentType)];
     }
@@ -116,11 +128,253 @@ public final class DataComposition {
         return stateTenants.get(state);
     }
 
+    // the tenant lock is only taken when the lock-free registration cannot bump the index of the current chunk
     public IntEntity createEntity(boolean prepared, Object... components) {
+        Object[] data = !prepared && isMultiComponent() ? sortComponentsInPlaceByIndex(components) : components;
+        IntEntity entity = new IntEntity(IdSchema.DETACHED_BIT);
+        if (!tenant.tryRegister(entity, data)) {
+            synchronized (tenant) {
+                entity.setId(tenant.nextId());
+                tenant.register(entity, data);
+            }
+        }
+        if (repository != null) {
+            repository.getEntityEvents().created(entity);
+            repository.getComponentIndexes().updated(entity);
+        }
+        return entity;
+    }
+
+    public IntEntity[] createEntities(Object[][] columns, int count) {
+        IntEntity[] entities = new IntEntity[count];
+        for (int i = 0; i < count; i++) {
+            entities[i] = new IntEntity(IdSchema.DETACHED_BIT);
+        }
         synchronized (tenant) {
-            return tenant.register(new IntEntity(tenant.nextId()),
-                    !prepared && isMultiComponent() ? sortComponentsInPlaceByIndex(components) : components);
+            tenant.registerAll(entities, columns);
         }
+        repository.getEntityEvents().created(entities);
+        repository.getComponentIndexes().updated(entities);
+        return entities;
+    }
+
+    // deletes every entity stored in the chunks of this composition by releasing the chunks at once: the entities are
+    // only detached, without swap-removing them one by one
+    public int clear() {
+        int count;
+        EntityTable entityTable = repository.getEntityTable();
+        EntityEvents entityEvents = repository.getEntityEvents();
+        ComponentIndexes componentIndexes = repository.getComponentIndexes();
+        synchronized (tenant) {
+            synchronized (entityTable) {
+                count = tenant.clear(entity -> {
+                    entityTable.release(entity);
+                    entityEvents.deleted(entity);
+                    componentIndexes.deleted(entity);
+                    repository.removeSparseComponents(entity);
+                    entity.detach();
+                });
+            }
+            for (ChunkedPool.Tenant<IntEntity> stateTenant : stateTenants.values()) {
+                List<IntEntity> stateEntities = new ArrayList<>();
+                synchronized (stateTenant) {
+                    stateTenant.clear(stateEntities::add);
+                }
+                for (IntEntity entity : stateEntities) {
+                    // a disabled entity is not in the released chunks and keeps its state, in the emptied state tenant
+                    if (!entity.isDeleted()) {
+                        entity.migrateState(stateTenant, stateTenant);
+                    }
+                }
+            }
+        }
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Clearing " + count + " entities from " + this)
+            );
+        }
+        return count;
+    }
+
+    // migrates the entities of several compositions at once, after all the migrations have been prepared, so that
+    // the modifier function is never applied to an entity that has just been moved
+    public static int modifyAll(List<DataComposition> compositions, Function<Entity, Composition.Modifier> modifier) {
+        List<Migration> migrations = new ArrayList<>();
+        for (DataComposition composition : compositions) {
+            var migration = composition.prepareMigration(modifier);
+            if (migration != null) {
+                migrations.add(migration);
+            }
+        }
+        for (Migration migration : migrations) {
+            for (Migration other : migrations) {
+                if (migration.target == other.source) {
+                    throw new IllegalArgumentException("The modifier moves the entities of " + migration.source
+                            + " to " + migration.target + " and then to " + other.target);
+                }
+            }
+        }
+        int count = 0;
+        for (Migration migration : migrations) {
+            count += migration.source.migrate(migration);
+        }
+        return count;
+    }
+
+    // provides the migration of every entity stored in the chunks of this composition, as long as the modifier
+    // function moves all of them to the same composition, or null if the entities are not moved: a modifier whose
+    // target is this very composition, such as the removal of a type that is missing, leaves the entities in place
+    private Migration prepareMigration(Function<Entity, Composition.Modifier> modifier) {
+        List<IntEntity> entities;
+        synchronized (tenant) {
+            tenant.compact();
+            entities = new ArrayList<>();
+            for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                for (int i = 0, size = chunk.size(); i < size; i++) {
+                    entities.add(chunk.getItem(i));
+                }
+            }
+        }
+        int count = entities.size();
+        Migration migration = null;
+        for (int k = 0; k < count; k++) {
+            var mod = (PreparedComposition.NewEntityComposition) modifier.apply(entities.get(k));
+            if (k == 0) {
+                if (mod == null || (mod.targetComposition().target() == this
+                        && mod.targetComposition().addedIndexMapping() == null)) {
+                    return null;
+                }
+                var target = mod.targetComposition().target();
+                migration = new Migration(this, target, count, mod.targetComposition().indexMapping(),
+                        new Object[target.length()][]);
+            } else if (mod == null || mod.targetComposition().target() != migration.target) {
+                throw new IllegalArgumentException("The modifier must move all the entities of " + this
+                        + " to " + migration.target);
+            }
+            int[] addedIndexMapping = mod.targetComposition().addedIndexMapping();
+            if (addedIndexMapping == null) {
+                continue;
+            }
+            if (mod.addedComponent() != null) {
+                migration.addValue(addedIndexMapping[0], k, mod.addedComponent());
+            } else {
+                for (int i = 0; i < addedIndexMapping.length; i++) {
+                    if (addedIndexMapping[i] > -1) {
+                        migration.addValue(addedIndexMapping[i], k, mod.addedComponents()[i]);
+                    }
+                }
+            }
+        }
+        return migration;
+    }
+
+    // sorts the entities of this composition by the given comparator, applied to the results provided in the
+    // iteration order of the tenant, so that the next iterations follow the sorted order: the results are extracted
+    // once into an array sized by the tenant, and only a primitive permutation of their positions is sorted
+    @SuppressWarnings("unchecked")
+    public <T> int sort(Supplier<Iterator<T>> results, Comparator<? super T> comparator) {
+        synchronized (tenant) {
+            tenant.compact();
+            Object[] keys = new Object[countEntities()];
+            int count = 0;
+            for (Iterator<T> iterator = results.get(); iterator.hasNext(); ) {
+                keys[count++] = iterator.next();
+            }
+            int[] order = new int[count];
+            for (int p = 0; p < count; p++) {
+                order[p] = p;
+            }
+            mergeSort(order, new int[count], keys, (Comparator<Object>) comparator);
+            tenant.reorder(order);
+            return count;
+        }
+    }
+
+    // a stable bottom-up merge sort of the positions by their keys, that never boxes a position
+    private static void mergeSort(int[] order, int[] buffer, Object[] keys, Comparator<Object> comparator) {
+        int count = order.length;
+        int[] src = order, dst = buffer;
+        for (int width = 1; width < count; width <<= 1) {
+            for (int lo = 0; lo < count; lo += width << 1) {
+                int mid = Math.min(lo + width, count), hi = Math.min(lo + (width << 1), count);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    dst[k++] = comparator.compare(keys[src[j]], keys[src[i]]) < 0 ? src[j++] : src[i++];
+                }
+                while (i < mid) {
+                    dst[k++] = src[i++];
+                }
+                while (j < hi) {
+                    dst[k++] = src[j++];
+                }
+            }
+            int[] swap = src;
+            src = dst;
+            dst = swap;
+        }
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, count);
+        }
+    }
+
+    private int countEntities() {
+        int count = 0;
+        for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+            count += chunk.size() - chunk.getTombstones();
+        }
+        return count;
+    }
+
+    private int migrate(Migration migration) {
+        var target = migration.target;
+        ComponentIndexes componentIndexes = repository.getComponentIndexes();
+        // the migrated entities are indexed again once they are in the target composition
+        List<IntEntity> indexedEntities = componentIndexes.isEmpty() ? null : new ArrayList<>();
+        synchronized (tenant) {
+            if (countEntities() != migration.count) {
+                throw new IllegalStateException("The entities of " + this + " have been changed during the migration");
+            }
+            EntityEvents entityEvents = repository.getEntityEvents();
+            if (entityEvents.isObserved() || indexedEntities != null) {
+                for (var chunk = tenant.getFirstChunk(); chunk != null; chunk = chunk.getNext()) {
+                    for (int i = 0, size = chunk.size(); i < size; i++) {
+                        IntEntity entity = chunk.getItem(i);
+                        if (entity != null) {
+                            entityEvents.modified(entity, this, target);
+                            if (indexedEntities != null) {
+                                indexedEntities.add(entity);
+                            }
+                        }
+                    }
+                }
+            }
+            synchronized (target.tenant) {
+                target.tenant.migrateAll(tenant, migration.indexMapping, migration.addedColumns);
+            }
+            for (var entry : stateTenants.entrySet()) {
+                var stateTenant = entry.getValue();
+                List<IntEntity> stateEntities = new ArrayList<>();
+                synchronized (stateTenant) {
+                    stateTenant.clear(stateEntities::add);
+                }
+                for (IntEntity entity : stateEntities) {
+                    // a disabled entity has not been migrated and keeps its state in this composition
+                    var newStateTenant = entity.isEnabled() ? target.fetchStateTenants(entry.getKey()) : stateTenant;
+                    entity.migrateState(stateTenant, newStateTenant);
+                }
+            }
+        }
+        if (indexedEntities != null) {
+            indexedEntities.forEach(componentIndexes::updated);
+        }
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Migrating " + migration.count + " entities from " + this + " to " + target)
+            );
+        }
+        return migration.count;
     }
 
     public void attachEntity(IntEntity entity, int[] indexMapping, int[] addedIndexMapping, Object addedComponent, Object[] addedComponents) {
@@ -487,4 +741,17 @@ public final class DataComposition {
             return (Results.With6<T1, T2, T3, T4, T5, T6>) iterator.next(nextWith6, idx1, idx2, idx3, idx4, idx5, idx6);
         }
     }
+
+    // added columns are indexed by the data columns of the target and hold the added values in the source order
+    private record Migration(DataComposition source, DataComposition target, int count,
+                            int[] indexMapping, Object[][] addedColumns) {
+
+        private void addValue(int i, int k, Object value) {
+            Object[] column = addedColumns[i];
+            if (column == null) {
+                addedColumns[i] = column = new Object[count];
+            }
+            column[k] = value;
+        }
+    }
 }
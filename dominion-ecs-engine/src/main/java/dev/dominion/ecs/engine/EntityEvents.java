@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import dev.dominion.ecs.api.Dominion;
+import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.engine.system.Logging;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The EntityEvents class records the lifecycle events of the entities in per-thread buffers, to be delivered in batches
+ * to the observers of a Dominion. Nothing is recorded while there are no observers, and recording an event only
+ * appends the entity to the uncontended buffer of the current thread: the component types added and removed by a
+ * modification are only resolved at delivery time, from the source and target compositions of the entity.
+ * The buffer of a terminated thread is dropped by the first delivery that drains it, so that short-lived threads do
+ * not leave their buffers behind.
+ */
+public final class EntityEvents {
+    private static final System.Logger LOGGER = Logging.getLogger();
+    private static final Dominion.Observer[] NO_OBSERVERS = new Dominion.Observer[0];
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(() -> {
+        Buffer buffer = new Buffer();
+        buffers.add(buffer);
+        return buffer;
+    });
+    private final Logging.Context loggingContext;
+    private volatile Dominion.Observer[] observers = NO_OBSERVERS;
+
+    public EntityEvents(Logging.Context loggingContext) {
+        this.loggingContext = loggingContext;
+    }
+
+    public synchronized void addObserver(Dominion.Observer observer) {
+        Dominion.Observer[] newObservers = Arrays.copyOf(observers, observers.length + 1);
+        newObservers[observers.length] = observer;
+        observers = newObservers;
+    }
+
+    public synchronized boolean removeObserver(Dominion.Observer observer) {
+        List<Dominion.Observer> list = new ArrayList<>(Arrays.asList(observers));
+        if (!list.remove(observer)) {
+            return false;
+        }
+        observers = list.toArray(NO_OBSERVERS);
+        return true;
+    }
+
+    public boolean isObserved() {
+        return observers.length > 0;
+    }
+
+    public void created(IntEntity entity) {
+        if (isObserved()) {
+            buffer.get().created(entity);
+        }
+    }
+
+    public void created(IntEntity[] entities) {
+        if (isObserved()) {
+            buffer.get().created(entities);
+        }
+    }
+
+    public void modified(IntEntity entity, DataComposition source, DataComposition target) {
+        if (isObserved() && source != target) {
+            buffer.get().modified(entity, source, target);
+        }
+    }
+
+    // a detached component type, that has no composition to be resolved from, is recorded along with the entity
+    public void added(IntEntity entity, Class<?> componentType) {
+        if (isObserved()) {
+            buffer.get().detached(entity, componentType, true);
+        }
+    }
+
+    public void removed(IntEntity entity, Class<?> componentType) {
+        if (isObserved()) {
+            buffer.get().detached(entity, componentType, false);
+        }
+    }
+
+    public void deleted(IntEntity entity) {
+        if (isObserved()) {
+            buffer.get().deleted(entity);
+        }
+    }
+
+    // delivers the events recorded by all the threads since the last delivery, returning the number of events
+    public int deliver() {
+        List<Entity> created = new ArrayList<>();
+        List<Entity> deleted = new ArrayList<>();
+        Map<Class<?>, List<Entity>> added = new LinkedHashMap<>();
+        Map<Class<?>, List<Entity>> removed = new LinkedHashMap<>();
+        int count = 0;
+        for (Iterator<Buffer> iterator = buffers.iterator(); iterator.hasNext(); ) {
+            Buffer buffer = iterator.next();
+            // checked before draining: a terminated thread cannot record any further event
+            boolean orphan = buffer.isOrphan();
+            Buffer.Drained drained = buffer.drain();
+            if (orphan) {
+                iterator.remove();
+            }
+            created.addAll(drained.created);
+            deleted.addAll(drained.deleted);
+            for (Modification modification : drained.modified) {
+                collectTypes(modification.entity, modification.target, modification.source, added);
+                collectTypes(modification.entity, modification.source, modification.target, removed);
+            }
+            for (Detachment detachment : drained.detached) {
+                (detachment.added ? added : removed)
+                        .computeIfAbsent(detachment.componentType, k -> new ArrayList<>()).add(detachment.entity);
+            }
+            count += drained.created.size() + drained.deleted.size() + drained.modified.size() + drained.detached.size();
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Dominion.Observer[] observers = this.observers;
+        for (Dominion.Observer observer : observers) {
+            if (!created.isEmpty()) {
+                observer.onCreated(Collections.unmodifiableList(created));
+            }
+            for (var entry : added.entrySet()) {
+                observer.onAdded(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+            for (var entry : removed.entrySet()) {
+                observer.onRemoved(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+            }
+            if (!deleted.isEmpty()) {
+                observer.onDeleted(Collections.unmodifiableList(deleted));
+            }
+        }
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Delivering " + count + " entity events to " + observers.length + " observers")
+            );
+        }
+        return count;
+    }
+
+    public int getBufferCount() {
+        return buffers.size();
+    }
+
+    // maps the entity to every component type of the first composition that is missing from the second one
+    private static void collectTypes(IntEntity entity, DataComposition first, DataComposition second,
+                                     Map<Class<?>, List<Entity>> typeMap) {
+        List<Class<?>> secondTypes = Arrays.asList(second.getComponentTypes());
+        for (Class<?> type : first.getComponentTypes()) {
+            if (!secondTypes.contains(type)) {
+                typeMap.computeIfAbsent(type, k -> new ArrayList<>()).add(entity);
+            }
+        }
+    }
+
+    private record Modification(IntEntity entity, DataComposition source, DataComposition target) {
+    }
+
+    private record Detachment(IntEntity entity, Class<?> componentType, boolean added) {
+    }
+
+    private static final class Buffer {
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        private List<IntEntity> created = new ArrayList<>();
+        private List<Modification> modified = new ArrayList<>();
+        private List<Detachment> detached = new ArrayList<>();
+        private List<IntEntity> deleted = new ArrayList<>();
+
+        private synchronized void created(IntEntity entity) {
+            created.add(entity);
+        }
+
+        private synchronized void created(IntEntity[] entities) {
+            Collections.addAll(created, entities);
+        }
+
+        private synchronized void modified(IntEntity entity, DataComposition source, DataComposition target) {
+            modified.add(new Modification(entity, source, target));
+        }
+
+        private synchronized void detached(IntEntity entity, Class<?> componentType, boolean added) {
+            detached.add(new Detachment(entity, componentType, added));
+        }
+
+        private synchronized void deleted(IntEntity entity) {
+            deleted.add(entity);
+        }
+
+        private boolean isOrphan() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        private synchronized Drained drain() {
+            Drained drained = new Drained(created, modified, detached, deleted);
+            created = new ArrayList<>();
+            modified = new ArrayList<>();
+            detached = new ArrayList<>();
+            deleted = new ArrayList<>();
+            return drained;
+        }
+
+        private record Drained(List<IntEntity> created, List<Modification> modified, List<Detachment> detached,
+                               List<IntEntity> deleted) {
+        }
+    }
+}
@@ -11,6 +11,7 @@ import dev.dominion.ecs.engine.CompositionRepository.Node;
 import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
+import dev.dominion.ecs.engine.system.TagIndex;
 
 import java.util.Arrays;
 import java.util.Locale;
@@ -18,6 +19,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.Stream;
 
 public final class EntityRepository implements Dominion {
@@ -25,16 +28,46 @@ public final class EntityRepository implements Dominion {
     private final String name;
     private final Logging.Context loggingContext;
     private final CompositionRepository compositions;
+    private final EntityTable entityTable;
     private final int systemTimeoutSeconds;
 
     private final AtomicBoolean closed = new AtomicBoolean();
 
     public EntityRepository(String name, int classIndexBit, int chunkBit, int systemTimeoutSeconds,
                             Logging.Context loggingContext) {
+        this(name, classIndexBit, chunkBit, Config.ChunkAllocation.EAGER, systemTimeoutSeconds, loggingContext);
+    }
+
+    public EntityRepository(String name, int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                            int systemTimeoutSeconds, Logging.Context loggingContext) {
+        this(name, classIndexBit, chunkBit, chunkAllocation, Config.DeletionMode.IMMEDIATE, systemTimeoutSeconds,
+                loggingContext);
+    }
+
+    public EntityRepository(String name, int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                            Config.DeletionMode deletionMode, int systemTimeoutSeconds,
+                            Logging.Context loggingContext) {
+        this(name, classIndexBit, chunkBit, chunkAllocation, deletionMode, Config.StateMode.TENANT, systemTimeoutSeconds,
+                loggingContext);
+    }
+
+    public EntityRepository(String name, int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                            Config.DeletionMode deletionMode, Config.StateMode stateMode, int systemTimeoutSeconds,
+                            Logging.Context loggingContext) {
+        this(name, classIndexBit, chunkBit, chunkAllocation, deletionMode, stateMode, Config.CreationMode.LOCK_FREE,
+                systemTimeoutSeconds, loggingContext);
+    }
+
+    public EntityRepository(String name, int classIndexBit, int chunkBit, Config.ChunkAllocation chunkAllocation,
+                            Config.DeletionMode deletionMode, Config.StateMode stateMode,
+                            Config.CreationMode creationMode, int systemTimeoutSeconds,
+                            Logging.Context loggingContext) {
         this.name = name;
         this.systemTimeoutSeconds = systemTimeoutSeconds;
         this.loggingContext = loggingContext;
-        compositions = new CompositionRepository(classIndexBit, chunkBit, loggingContext);
+        compositions = new CompositionRepository(classIndexBit, chunkBit, chunkAllocation, deletionMode, stateMode,
+                creationMode, loggingContext);
+        entityTable = compositions.getEntityTable();
     }
 
     @Override
@@ -46,8 +79,25 @@ public final class EntityRepository implements Dominion {
     public Entity createEntity(Object... components) {
         checkState();
         Object[] componentArray = components.length == 0 ? null : components;
+        Object[] detachedComponents = componentArray == null ?
+                null :
+                CompositionRepository.filterDetachedComponents(componentArray, true);
+        if (detachedComponents != null) {
+            componentArray = CompositionRepository.filterDetachedComponents(componentArray, false);
+        }
         DataComposition composition = compositions.getOrCreate(componentArray);
         IntEntity entity = composition.createEntity(false, componentArray);
+        entityTable.register(entity);
+        if (detachedComponents != null) {
+            // the handle slot of the entity keys its sparse components, while tags are set in its chunk slot
+            for (Object detachedComponent : detachedComponents) {
+                if (TagIndex.isTag(detachedComponent.getClass())) {
+                    compositions.addTag(entity, detachedComponent);
+                } else {
+                    compositions.putSparseComponent(entity, detachedComponent);
+                }
+            }
+        }
         if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -61,7 +111,41 @@ public final class EntityRepository implements Dominion {
     public Entity createPreparedEntity(Composition.OfTypes withValues) {
         checkState();
         DataComposition composition = (DataComposition) withValues.getContext();
-        return composition.createEntity(true, withValues.getComponents());
+        IntEntity entity = composition.createEntity(true, withValues.getComponents());
+        entityTable.register(entity);
+        return entity;
+    }
+
+    @Override
+    public Entity[] createPreparedEntities(int count, IntFunction<Composition.OfTypes> withValues) {
+        checkState();
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative entity count: " + count);
+        }
+        if (count == 0) {
+            return new Entity[0];
+        }
+        Composition.OfTypes prepared = withValues.apply(0);
+        DataComposition composition = (DataComposition) prepared.getContext();
+        Object[][] columns = new Object[composition.length()][count];
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && (prepared = withValues.apply(i)).getContext() != composition) {
+                throw new IllegalArgumentException("Entity " + i + " has a different composition from " + composition);
+            }
+            Object[] components = prepared.getComponents();
+            for (int c = 0; c < columns.length; c++) {
+                columns[c][i] = components[c];
+            }
+        }
+        IntEntity[] entities = composition.createEntities(columns, count);
+        entityTable.registerAll(entities);
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Creating " + count + " entities with " + composition)
+            );
+        }
+        return entities;
     }
 
     @Override
@@ -80,7 +164,73 @@ public final class EntityRepository implements Dominion {
     @Override
     public boolean deleteEntity(Entity entity) {
         checkState();
-        return ((IntEntity) entity).delete();
+        IntEntity intEntity = (IntEntity) entity;
+        entityTable.release(intEntity);
+        return intEntity.delete();
+    }
+
+    @Override
+    public int clear(Composition.OfTypes composition) {
+        checkState();
+        return ((DataComposition) composition.getContext()).clear();
+    }
+
+    @Override
+    public int compact() {
+        checkState();
+        return compositions.getPool().compact();
+    }
+
+    @Override
+    public long version() {
+        return compositions.getPool().advanceVersion();
+    }
+
+    @Override
+    public void addObserver(Observer observer) {
+        checkState();
+        compositions.getEntityEvents().addObserver(observer);
+    }
+
+    @Override
+    public boolean removeObserver(Observer observer) {
+        return compositions.getEntityEvents().removeObserver(observer);
+    }
+
+    @Override
+    public int notifyObservers() {
+        checkState();
+        return compositions.getEntityEvents().deliver();
+    }
+
+    @Override
+    public <T, K> Index<T, K> createIndex(Class<T> componentType, Function<T, K> keyFunction) {
+        checkState();
+        if (CompositionRepository.isDetached(componentType)) {
+            throw new IllegalArgumentException(componentType.getName() + " is a @Sparse or @Tag component type: only the types stored in the compositions can be indexed");
+        }
+        var index = new ComponentIndex<>(componentType, keyFunction);
+        // the index is added before the existing entities are indexed, so that the entities created meanwhile are indexed too
+        compositions.getComponentIndexes().add(index);
+        findEntitiesWith(componentType).forEach((component, entity) ->
+                index.put((IntEntity) entity, component == null ? null : keyFunction.apply(component)));
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Creating " + index)
+            );
+        }
+        return index;
+    }
+
+    @Override
+    public boolean dropIndex(Index<?, ?> index) {
+        return compositions.getComponentIndexes().remove(index);
+    }
+
+    @Override
+    public Entity getEntity(long handle) {
+        return entityTable.get(handle);
     }
 
     @Override
@@ -93,6 +243,10 @@ public final class EntityRepository implements Dominion {
         return mod.entity().modify(compositions, mod.targetComposition(), mod.addedComponent(), mod.addedComponents());
     }
 
+    public CompositionRepository getCompositionRepository() {
+        return compositions;
+    }
+
     @Override
     public Composition composition() {
         return compositions.getPreparedComposition();
@@ -101,7 +255,7 @@ public final class EntityRepository implements Dominion {
     @Override
     public Scheduler createScheduler() {
         checkState();
-        return new SystemScheduler(systemTimeoutSeconds, loggingContext);
+        return new SystemScheduler(systemTimeoutSeconds, loggingContext, this);
     }
 
     @Override
@@ -112,35 +266,35 @@ public final class EntityRepository implements Dominion {
     }
 
     @Override
-    public <T1, T2> Results<With2<T1, T2>> findCompositionsWith(Class<T1> type1, Class<T2> type2) {
+    public <T1, T2> Of2<T1, T2> findCompositionsWith(Class<T1> type1, Class<T2> type2) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2);
         return new ResultSet.With2<>(compositions, nodes, false, type1, type2);
     }
 
     @Override
-    public <T1, T2, T3> Results<With3<T1, T2, T3>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
+    public <T1, T2, T3> Of3<T1, T2, T3> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3);
         return new ResultSet.With3<>(compositions, nodes, false, type1, type2, type3);
     }
 
     @Override
-    public <T1, T2, T3, T4> Results<With4<T1, T2, T3, T4>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
+    public <T1, T2, T3, T4> Of4<T1, T2, T3, T4> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3, type4);
         return new ResultSet.With4<>(compositions, nodes, false, type1, type2, type3, type4);
     }
 
     @Override
-    public <T1, T2, T3, T4, T5> Results<With5<T1, T2, T3, T4, T5>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
+    public <T1, T2, T3, T4, T5> Of5<T1, T2, T3, T4, T5> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3, type4, type5);
         return new ResultSet.With5<>(compositions, nodes, false, type1, type2, type3, type4, type5);
     }
 
     @Override
-    public <T1, T2, T3, T4, T5, T6> Results<With6<T1, T2, T3, T4, T5, T6>> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
+    public <T1, T2, T3, T4, T5, T6> Of6<T1, T2, T3, T4, T5, T6> findCompositionsWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3, type4, type5, type6);
         return new ResultSet.With6<>(compositions, nodes, false, type1, type2, type3, type4, type5, type6);
@@ -154,42 +308,42 @@ public final class EntityRepository implements Dominion {
     }
 
     @Override
-    public <T> Results<With1<T>> findEntitiesWith(Class<T> type) {
+    public <T> Of1<T> findEntitiesWith(Class<T> type) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type);
         return new ResultSet.With1<>(compositions, nodes, type);
     }
 
     @Override
-    public <T1, T2> Results<With2<T1, T2>> findEntitiesWith(Class<T1> type1, Class<T2> type2) {
+    public <T1, T2> Of2<T1, T2> findEntitiesWith(Class<T1> type1, Class<T2> type2) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2);
         return new ResultSet.With2<>(compositions, nodes, true, type1, type2);
     }
 
     @Override
-    public <T1, T2, T3> Results<With3<T1, T2, T3>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
+    public <T1, T2, T3> Of3<T1, T2, T3> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3);
         return new ResultSet.With3<>(compositions, nodes, true, type1, type2, type3);
     }
 
     @Override
-    public <T1, T2, T3, T4> Results<With4<T1, T2, T3, T4>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
+    public <T1, T2, T3, T4> Of4<T1, T2, T3, T4> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3, type4);
         return new ResultSet.With4<>(compositions, nodes, true, type1, type2, type3, type4);
     }
 
     @Override
-    public <T1, T2, T3, T4, T5> Results<With5<T1, T2, T3, T4, T5>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
+    public <T1, T2, T3, T4, T5> Of5<T1, T2, T3, T4, T5> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3, type4, type5);
         return new ResultSet.With5<>(compositions, nodes, true, type1, type2, type3, type4, type5);
     }
 
     @Override
-    public <T1, T2, T3, T4, T5, T6> Results<With6<T1, T2, T3, T4, T5, T6>> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
+    public <T1, T2, T3, T4, T5, T6> Of6<T1, T2, T3, T4, T5, T6> findEntitiesWith(Class<T1> type1, Class<T2> type2, Class<T3> type3, Class<T4> type4, Class<T5> type5, Class<T6> type6) {
         checkState();
         Map<IndexKey, Node> nodes = compositions.findWith(type1, type2, type3, type4, type5, type6);
         return new ResultSet.With6<>(compositions, nodes, true, type1, type2, type3, type4, type5, type6);
@@ -243,6 +397,14 @@ public final class EntityRepository implements Dominion {
             int classIndexBit = fetchClassIndexBit.orElse(fetchSize.orElse(Config.DominionSize.MEDIUM).classIndexBit());
             Optional<Integer> fetchChunkBit = Config.fetchIntValue(name, Config.CHUNK_BIT);
             int chunkBit = fetchChunkBit.orElse(fetchSize.orElse(Config.DominionSize.MEDIUM).chunkBit());
+            Optional<Config.ChunkAllocation> fetchChunkAllocation = Config.fetchChunkAllocation(name);
+            Config.ChunkAllocation chunkAllocation = fetchChunkAllocation.orElse(Config.ChunkAllocation.EAGER);
+            Optional<Config.DeletionMode> fetchDeletionMode = Config.fetchDeletionMode(name);
+            Config.DeletionMode deletionMode = fetchDeletionMode.orElse(Config.DeletionMode.IMMEDIATE);
+            Optional<Config.StateMode> fetchStateMode = Config.fetchStateMode(name);
+            Config.StateMode stateMode = fetchStateMode.orElse(Config.StateMode.TENANT);
+            Optional<Config.CreationMode> fetchCreationMode = Config.fetchCreationMode(name);
+            Config.CreationMode creationMode = fetchCreationMode.orElse(Config.CreationMode.LOCK_FREE);
             Optional<Integer> fetchSystemTimeoutSeconds = Config.fetchIntValue(name, Config.SYSTEM_TIMEOUT_SECONDS);
             int systemTimeoutSeconds = fetchSystemTimeoutSeconds.orElse(Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS);
             if (Config.showBanner()) {
@@ -260,6 +422,18 @@ public final class EntityRepository implements Dominion {
                         , "  Chunk-Bit: " + chunkBit
                                 + (fetchChunkBit.isEmpty() && fetchSize.isEmpty() ? " (set sys-property '"
                                 + Config.getPropertyName(name, Config.CHUNK_BIT) + "')" : "")
+                        , "  Chunk-Allocation: '" + chunkAllocation.name()
+                                + (fetchChunkAllocation.isEmpty() ? "' (set sys-property '"
+                                + Config.getPropertyName(name, Config.CHUNK_ALLOCATION) + "')" : "'")
+                        , "  Deletion-Mode: '" + deletionMode.name()
+                                + (fetchDeletionMode.isEmpty() ? "' (set sys-property '"
+                                + Config.getPropertyName(name, Config.DELETION_MODE) + "')" : "'")
+                        , "  State-Mode: '" + stateMode.name()
+                                + (fetchStateMode.isEmpty() ? "' (set sys-property '"
+                                + Config.getPropertyName(name, Config.STATE_MODE) + "')" : "'")
+                        , "  Creation-Mode: '" + creationMode.name()
+                                + (fetchCreationMode.isEmpty() ? "' (set sys-property '"
+                                + Config.getPropertyName(name, Config.CREATION_MODE) + "')" : "'")
                         , "  SystemTimeout-Seconds: " + systemTimeoutSeconds
                                 + (fetchSystemTimeoutSeconds.isEmpty() ? " (set sys-property '"
                                 + Config.getPropertyName(name, Config.SYSTEM_TIMEOUT_SECONDS) + "')" : "")
@@ -275,6 +449,10 @@ public final class EntityRepository implements Dominion {
             return new EntityRepository(name
                     , classIndexBit
                     , chunkBit
+                    , chunkAllocation
+                    , deletionMode
+                    , stateMode
+                    , creationMode
                     , systemTimeoutSeconds
                     , new Logging.Context(name, loggingLevelIndex)
             );
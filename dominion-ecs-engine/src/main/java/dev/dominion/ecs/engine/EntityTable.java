@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The EntityTable class maps stable handles to the entities of a Dominion.
+ * A handle packs the index of a table slot in the low 32 bits and the generation of the slot in the high 32 bits.
+ * The generation grows every time a slot is released, so the handle of a deleted entity never resolves to the entity
+ * that reuses its slot, and 0 is never a valid handle.
+ * Slots are indexed by a segmented directory that grows on demand. Getting an entity by handle and registering an
+ * entity in a never used slot are lock-free, unless the table is created for the synchronized creation mode, while
+ * releasing and reusing slots is synchronized.
+ */
+public final class EntityTable {
+    public static final int SEGMENT_BIT = 12;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BIT) - 1;
+    private volatile Segment[] directory = new Segment[1];
+    private final AtomicInteger slotIndex = new AtomicInteger(-1);
+    private final AtomicInteger size = new AtomicInteger();
+    private int[] freeSlots = new int[16];
+    private volatile int freeSlotCount;
+    private final boolean lockFree;
+
+    public EntityTable() {
+        this(true);
+    }
+
+    public EntityTable(boolean lockFree) {
+        this.lockFree = lockFree;
+    }
+
+    public static int slotOf(long handle) {
+        return (int) handle;
+    }
+
+    public static int generationOf(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static long handleOf(int slot, int generation) {
+        return (long) generation << 32 | slot;
+    }
+
+    // a never used slot is taken without locking, while reusing a released slot or adding a segment is synchronized
+    public long register(IntEntity entity) {
+        if (lockFree && freeSlotCount == 0) {
+            return put(entity, newSlot());
+        }
+        synchronized (this) {
+            return put(entity, freeSlotCount > 0 ? freeSlots[--freeSlotCount] : newSlot());
+        }
+    }
+
+    public void registerAll(IntEntity[] entities) {
+        for (IntEntity entity : entities) {
+            register(entity);
+        }
+    }
+
+    private int newSlot() {
+        int slot = slotIndex.incrementAndGet();
+        if (slot < 0) {
+            slotIndex.decrementAndGet();
+            throw new OutOfMemoryError(EntityTable.class.getName() + ": cannot register a new entity handle");
+        }
+        return slot;
+    }
+
+    private long put(IntEntity entity, int slot) {
+        int segmentIndex = slot >>> SEGMENT_BIT;
+        Segment[] directory = this.directory;
+        Segment segment = segmentIndex < directory.length ? directory[segmentIndex] : null;
+        if (segment == null) {
+            segment = fetchSegment(segmentIndex);
+        }
+        int offset = slot & SEGMENT_MASK;
+        int[] generations = segment.generations;
+        if (generations[offset] == 0) {
+            generations[offset] = 1;
+        }
+        long handle = handleOf(slot, generations[offset]);
+        entity.setHandle(handle);
+        segment.entities[offset] = entity;
+        size.incrementAndGet();
+        return handle;
+    }
+
+    private synchronized Segment fetchSegment(int segmentIndex) {
+        Segment[] directory = this.directory;
+        if (segmentIndex >= directory.length) {
+            directory = Arrays.copyOf(directory, Math.max(segmentIndex + 1, directory.length << 1));
+        }
+        Segment segment = directory[segmentIndex];
+        if (segment == null) {
+            directory[segmentIndex] = segment = new Segment(new IntEntity[1 << SEGMENT_BIT], new int[1 << SEGMENT_BIT]);
+        }
+        this.directory = directory;
+        return segment;
+    }
+
+    public synchronized boolean release(IntEntity entity) {
+        long handle = entity.getHandle();
+        int slot = slotOf(handle);
+        if (handle == 0 || get(handle) != entity) {
+            return false;
+        }
+        Segment segment = directory[slot >>> SEGMENT_BIT];
+        int offset = slot & SEGMENT_MASK;
+        segment.entities[offset] = null;
+        int[] generations = segment.generations;
+        // generation 0 is skipped on wrap-around to keep 0 an invalid handle
+        if (++generations[offset] == 0) {
+            generations[offset] = 1;
+        }
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+        }
+        freeSlots[freeSlotCount] = slot;
+        freeSlotCount++;
+        size.decrementAndGet();
+        return true;
+    }
+
+    public IntEntity get(long handle) {
+        int slot = slotOf(handle);
+        if (slot < 0) {
+            return null;
+        }
+        Segment[] directory = this.directory;
+        int segmentIndex = slot >>> SEGMENT_BIT;
+        Segment segment;
+        IntEntity entity;
+        return segmentIndex < directory.length
+                && (segment = directory[segmentIndex]) != null
+                && (entity = segment.entities[slot & SEGMENT_MASK]) != null
+                && entity.getHandle() == handle ? entity : null;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public String toString() {
+        return "EntityTable={"
+                + "segmentCapacity=" + (1 << SEGMENT_BIT)
+                + ", size=" + size()
+                + '}';
+    }
+
+    // the final fields of a segment are safely published to the lock-free readers of the directory
+    private record Segment(IntEntity[] entities, int[] generations) {
+    }
+}
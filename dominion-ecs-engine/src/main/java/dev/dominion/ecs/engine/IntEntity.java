@@ -8,19 +8,26 @@ package dev.dominion.ecs.engine;
 import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
 import dev.dominion.ecs.engine.collections.ChunkedPool.Item;
+import dev.dominion.ecs.engine.collections.SparseSet;
+import dev.dominion.ecs.engine.system.IndexKey;
+import dev.dominion.ecs.engine.system.TagIndex;
 
 import java.util.Arrays;
 
 public final class IntEntity implements Entity, Item {
     ChunkedPool.LinkedChunk<IntEntity> chunk;
-    ChunkedPool.LinkedChunk<IntEntity> stateChunk;
     private int id;
-    private int stateId;
+    // a slot for the state of each enumeration type, with the entry of the entity in the state tenant of the state
+    private StateSlot[] stateSlots;
+    // the slot being registered in a state tenant, to be filled by the callbacks of the tenant
+    private StateSlot registeringSlot;
     private Object[] shelf;
+    private long shelvedTags;
+    private int[] shelvedStates;
+    private long handle;
 
     public IntEntity(int id) {
         this.id = id;
-        this.stateId = ChunkedPool.IdSchema.DETACHED_BIT;
     }
 
     @Override
@@ -33,13 +40,37 @@ public final class IntEntity implements Entity, Item {
         this.id = id;
     }
 
+    @Override
+    public long getHandle() {
+        return handle;
+    }
+
+    void setHandle(long handle) {
+        this.handle = handle;
+    }
+
+    // the state id of the first state set, as an entity usually has a single state
     public int getStateId() {
-        return stateId;
+        StateSlot[] slots = stateSlots;
+        return slots == null ? ChunkedPool.IdSchema.DETACHED_BIT : slots[0].id;
     }
 
     @Override
     public void setStateId(int stateId) {
-        this.stateId = stateId;
+        registeringSlot.id = stateId;
+    }
+
+    @Override
+    public void setStateId(ChunkedPool.LinkedChunk<? extends Item> stateChunk, int stateId) {
+        StateSlot[] slots = stateSlots;
+        if (slots != null) {
+            for (StateSlot slot : slots) {
+                if (slot.chunk == stateChunk) {
+                    slot.id = stateId;
+                    return;
+                }
+            }
+        }
     }
 
     public DataComposition getComposition() {
@@ -57,13 +88,14 @@ public final class IntEntity implements Entity, Item {
     }
 
     public ChunkedPool.LinkedChunk<IntEntity> getStateChunk() {
-        return stateChunk;
+        StateSlot[] slots = stateSlots;
+        return slots == null ? null : slots[0].chunk;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public void setStateChunk(ChunkedPool.LinkedChunk<? extends Item> chunk) {
-        this.stateChunk = (ChunkedPool.LinkedChunk<IntEntity>) chunk;
+        registeringSlot.chunk = (ChunkedPool.LinkedChunk<IntEntity>) chunk;
     }
 
     public Object[] getComponentArray() {
@@ -87,15 +119,26 @@ public final class IntEntity implements Entity, Item {
         if (!isEnabled()) {
             return this;
         }
+        if (SparseSet.isSparse(component.getClass())) {
+            CompositionRepository repository = getComposition().getRepository();
+            if (repository.putSparseComponent(this, component) == null) {
+                repository.getEntityEvents().added(this, component.getClass());
+            }
+            return this;
+        }
+        if (TagIndex.isTag(component.getClass())) {
+            CompositionRepository repository = getComposition().getRepository();
+            if (repository.addTag(this, component)) {
+                repository.getEntityEvents().added(this, component.getClass());
+            }
+            return this;
+        }
         return getComposition().getRepository().addComponent(this, component);
     }
 
     @Override
     public synchronized boolean remove(Object component) {
-        if (!isEnabled()) {
-            return false;
-        }
-        return getComposition().getRepository().removeComponentType(this, component.getClass());
+        return removeType(component.getClass());
     }
 
     public synchronized boolean modify(CompositionRepository compositions, PreparedComposition.TargetComposition targetComposition,
@@ -112,11 +155,53 @@ public final class IntEntity implements Entity, Item {
         if (!isEnabled()) {
             return false;
         }
+        if (componentType != null && SparseSet.isSparse(componentType)) {
+            CompositionRepository repository = getComposition().getRepository();
+            if (!repository.removeSparseComponentType(this, componentType)) {
+                return false;
+            }
+            repository.getEntityEvents().removed(this, componentType);
+            return true;
+        }
+        if (componentType != null && TagIndex.isTag(componentType)) {
+            CompositionRepository repository = getComposition().getRepository();
+            if (!repository.removeTag(this, componentType)) {
+                return false;
+            }
+            repository.getEntityEvents().removed(this, componentType);
+            return true;
+        }
         return getComposition().getRepository().removeComponentType(this, componentType);
     }
 
+    // the sparse component of the given type, or null if the entity does not have it
+    private Object getSparse(Class<?> componentType) {
+        CompositionRepository repository;
+        return chunk == null || (repository = getComposition().getRepository()) == null ?
+                null :
+                repository.getSparseComponent(this, componentType);
+    }
+
+    // the tag bits of a disabled entity are kept aside along with its shelved data
+    private boolean hasTag(Class<?> tagType) {
+        CompositionRepository repository;
+        int bit;
+        if (chunk == null || (repository = getComposition().getRepository()) == null
+                || (bit = repository.getTagIndex().getBit(tagType)) < 0) {
+            return false;
+        }
+        long tags = shelf != null ? shelvedTags : chunk.getTags(getComposition().getIdSchema().fetchObjectId(id));
+        return (tags & 1L << bit) != 0;
+    }
+
     @Override
     public boolean has(Class<?> componentType) {
+        if (SparseSet.isSparse(componentType)) {
+            return getSparse(componentType) != null;
+        }
+        if (TagIndex.isTag(componentType)) {
+            return hasTag(componentType);
+        }
         int dataLength;
         if (chunk == null || (dataLength = chunk.getDataLength()) == 0) return false;
         if (dataLength == 1) {
@@ -128,6 +213,12 @@ public final class IntEntity implements Entity, Item {
 
     @Override
     public boolean contains(Object component) {
+        if (SparseSet.isSparse(component.getClass())) {
+            return component.equals(getSparse(component.getClass()));
+        }
+        if (TagIndex.isTag(component.getClass())) {
+            return hasTag(component.getClass());
+        }
         int dataLength;
         if (chunk == null || (dataLength = chunk.getDataLength()) == 0) return false;
         if (dataLength == 1) {
@@ -142,6 +233,12 @@ public final class IntEntity implements Entity, Item {
     @SuppressWarnings("unchecked")
     @Override
     public <T> T get(Class<T> componentType) {
+        if (SparseSet.isSparse(componentType)) {
+            return (T) getSparse(componentType);
+        }
+        if (TagIndex.isTag(componentType)) {
+            return hasTag(componentType) ? (T) getComposition().getRepository().getTagIndex().getInstance(componentType) : null;
+        }
         int dataLength;
         if (chunk == null || (dataLength = chunk.getDataLength()) == 0) return null;
         if (dataLength == 1) {
@@ -153,35 +250,225 @@ public final class IntEntity implements Entity, Item {
         return componentIndex > -1 ? (T) chunk.getFromMultiDataArray(id, componentIndex) : null;
     }
 
-    @SuppressWarnings("resource")
+    @Override
+    public boolean markChanged(Class<?> componentType) {
+        int dataLength;
+        if (!isEnabled() || chunk == null || (dataLength = chunk.getDataLength()) == 0) return false;
+        DataComposition composition = (DataComposition) chunk.getTenant().getOwner();
+        int componentIndex = dataLength == 1 ?
+                (composition.getComponentTypes()[0] == componentType ? 0 : -1) :
+                composition.fetchComponentIndex(componentType);
+        if (componentIndex < 0) return false;
+        chunk.markChanged(componentIndex);
+        CompositionRepository repository = composition.getRepository();
+        if (repository != null) {
+            // a component mutated in place is indexed again by its new key
+            repository.getComponentIndexes().updated(this, componentType);
+        }
+        return true;
+    }
+
     @Override
     public synchronized <S extends Enum<S>> Entity setState(S state) {
         if (!isEnabled()) {
             return this;
         }
-        if (state == null && stateChunk != null) {
-            ChunkedPool.Tenant<IntEntity> tenant;
-            synchronized (tenant = stateChunk.getTenant()) {
-                tenant.freeStateId(stateId);
-                stateChunk = null;
-                return this;
+        DataComposition composition = getComposition();
+        CompositionRepository repository = composition.getRepository();
+        if (repository != null && repository.isStateColumn()) {
+            // a single write of the state value in the column of its type, in the chunk slot of the entity
+            synchronized (chunk.getTenant()) {
+                int idx = composition.getIdSchema().fetchObjectId(id);
+                if (state == null) {
+                    chunk.setStateValues(idx, null);
+                } else {
+                    chunk.setStateValue(repository.fetchStateType(state.getDeclaringClass()), idx, state.ordinal() + 1);
+                }
             }
+            return this;
+        }
+        if (state == null) {
+            removeStates();
+            return this;
+        }
+        StateSlot slot = getStateSlot(state.getDeclaringClass());
+        if (slot == null) {
+            slot = addStateSlot();
+        } else if (slot.state == state) {
+            return this;
+        } else {
+            freeState(slot);
+        }
+        slot.state = state;
+        registerState(slot, composition.fetchStateTenants(state));
+        return this;
+    }
+
+    @Override
+    public <S extends Enum<S>> S getState(Class<S> stateType) {
+        if (chunk == null) {
+            return null;
+        }
+        DataComposition composition = getComposition();
+        CompositionRepository repository = composition.getRepository();
+        if (repository != null && repository.isStateColumn()) {
+            int type = repository.getStateType(stateType);
+            int value = type < 0 ? 0 :
+                    shelf != null ? (shelvedStates == null || type >= shelvedStates.length ? 0 : shelvedStates[type]) :
+                            chunk.getStateValue(type, composition.getIdSchema().fetchObjectId(id));
+            return value == 0 ? null : stateType.getEnumConstants()[value - 1];
+        }
+        StateSlot slot = getStateSlot(stateType);
+        return slot == null ? null : stateType.cast(slot.state);
+    }
+
+    @Override
+    public synchronized <S extends Enum<S>> boolean removeState(Class<S> stateType) {
+        if (!isEnabled()) {
+            return false;
         }
         DataComposition composition = getComposition();
-        if (stateChunk != null) {
-            var tenant = stateChunk.getTenant();
-            if (tenant == composition.getStateTenant(state)) {
-                return this;
+        CompositionRepository repository = composition.getRepository();
+        if (repository != null && repository.isStateColumn()) {
+            int type = repository.getStateType(stateType);
+            if (type < 0) {
+                return false;
             }
-            synchronized (stateChunk.getTenant()) {
-                tenant.freeStateId(stateId);
+            synchronized (chunk.getTenant()) {
+                int idx = composition.getIdSchema().fetchObjectId(id);
+                if (chunk.getStateValue(type, idx) == 0) {
+                    return false;
+                }
+                chunk.setStateValue(type, idx, 0);
+                return true;
             }
         }
-        ChunkedPool.Tenant<IntEntity> tenant;
-        synchronized (tenant = composition.fetchStateTenants(state)) {
-            stateChunk = tenant.registerState(this);
+        StateSlot slot = getStateSlot(stateType);
+        if (slot == null) {
+            return false;
+        }
+        freeState(slot);
+        removeStateSlot(slot);
+        return true;
+    }
+
+    // with the column state mode, the states are the values in the chunk slot of the entity
+    boolean hasState() {
+        if (stateSlots != null) {
+            return true;
+        }
+        if (chunk == null) {
+            return false;
+        }
+        return (shelf != null ? shelvedStates : chunk.getStateValues(getComposition().getIdSchema().fetchObjectId(id))) != null;
+    }
+
+    // tests the states of the entity against clauses of alternative states, that are all required
+    boolean matchesStates(Enum<?>[][] stateClauses) {
+        for (Enum<?>[] clause : stateClauses) {
+            boolean matches = false;
+            for (int i = 0; i < clause.length && !matches; i++) {
+                StateSlot slot = getStateSlot(clause[i].getDeclaringClass());
+                matches = slot != null && slot.state == clause[i];
+            }
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // moves the states of the entity to the state tenants of its new composition
+    void moveStates(DataComposition target) {
+        StateSlot[] slots = stateSlots;
+        if (slots == null) {
+            return;
+        }
+        for (StateSlot slot : slots) {
+            IndexKey key = (IndexKey) slot.chunk.getTenant().getSubject();
+            freeState(slot);
+            registerState(slot, target.fetchStateTenants(key));
+        }
+    }
+
+    // registers again the state that was in a cleared state tenant, in the given one
+    void migrateState(ChunkedPool.Tenant<IntEntity> stateTenant, ChunkedPool.Tenant<IntEntity> newStateTenant) {
+        StateSlot[] slots = stateSlots;
+        if (slots == null) {
+            return;
+        }
+        for (StateSlot slot : slots) {
+            if (slot.chunk.getTenant() == stateTenant) {
+                registerState(slot, newStateTenant);
+                return;
+            }
+        }
+    }
+
+    private StateSlot getStateSlot(Class<?> stateType) {
+        StateSlot[] slots = stateSlots;
+        if (slots != null) {
+            for (StateSlot slot : slots) {
+                if (slot.state.getDeclaringClass() == stateType) {
+                    return slot;
+                }
+            }
+        }
+        return null;
+    }
+
+    private StateSlot addStateSlot() {
+        StateSlot slot = new StateSlot();
+        if (stateSlots == null) {
+            stateSlots = new StateSlot[]{slot};
+        } else {
+            StateSlot[] slots = Arrays.copyOf(stateSlots, stateSlots.length + 1);
+            slots[stateSlots.length] = slot;
+            stateSlots = slots;
+        }
+        return slot;
+    }
+
+    private void removeStateSlot(StateSlot slot) {
+        StateSlot[] slots = stateSlots;
+        if (slots.length == 1) {
+            stateSlots = null;
+            return;
+        }
+        StateSlot[] newSlots = new StateSlot[slots.length - 1];
+        for (int i = 0, j = 0; i < slots.length; i++) {
+            if (slots[i] != slot) {
+                newSlots[j++] = slots[i];
+            }
+        }
+        stateSlots = newSlots;
+    }
+
+    private void removeStates() {
+        StateSlot[] slots = stateSlots;
+        if (slots == null) {
+            return;
+        }
+        for (StateSlot slot : slots) {
+            freeState(slot);
+        }
+        stateSlots = null;
+    }
+
+    // the state tenant sets the id and the chunk of the registering slot back through the Item callbacks
+    private void registerState(StateSlot slot, ChunkedPool.Tenant<IntEntity> stateTenant) {
+        synchronized (stateTenant) {
+            registeringSlot = slot;
+            stateTenant.registerState(this);
+            registeringSlot = null;
+        }
+    }
+
+    private static void freeState(StateSlot slot) {
+        ChunkedPool.Tenant<IntEntity> stateTenant;
+        synchronized (stateTenant = slot.chunk.getTenant()) {
+            stateTenant.freeStateId(slot.id);
         }
-        return this;
     }
 
     @Override
@@ -195,9 +482,22 @@ public final class IntEntity implements Entity, Item {
             synchronized (chunk.getTenant()) {
                 chunk.unshelve(this, shelf);
                 shelf = null;
+                int idx = getComposition().getIdSchema().fetchObjectId(id);
+                chunk.setTags(idx, shelvedTags);
+                chunk.setStateValues(idx, shelvedStates);
+                shelvedTags = 0;
+                shelvedStates = null;
+            }
+            CompositionRepository repository = getComposition().getRepository();
+            if (repository != null) {
+                // the entities disabled while an index was created are only indexed once enabled
+                repository.getComponentIndexes().updated(this);
             }
         } else if (!enabled && isEnabled()) {
             synchronized (chunk.getTenant()) {
+                int idx = getComposition().getIdSchema().fetchObjectId(id);
+                shelvedTags = chunk.getTags(idx);
+                shelvedStates = chunk.getStateValues(idx);
                 shelf = chunk.shelve(this);
             }
         }
@@ -205,22 +505,33 @@ public final class IntEntity implements Entity, Item {
     }
 
     synchronized boolean delete() {
+        CompositionRepository repository = getComposition().getRepository();
+        if (repository != null) {
+            repository.getEntityEvents().deleted(this);
+            repository.getComponentIndexes().deleted(this);
+            repository.removeSparseComponents(this);
+        }
         ChunkedPool.Tenant<IntEntity> tenant;
         synchronized (tenant = chunk.getTenant()) {
-            tenant.freeId(id);
+            if (shelf == null) {
+                // a disabled entity has already freed its id
+                tenant.freeId(id);
+            }
             flagDetachedId();
             chunk = null;
             shelf = null;
         }
-        if (stateChunk != null) {
-            synchronized (tenant = stateChunk.getTenant()) {
-                tenant.freeStateId(stateId);
-                stateChunk = null;
-            }
-        }
+        removeStates();
         return true;
     }
 
+    // marks the entity as deleted when its chunks are released as a whole
+    void detach() {
+        flagDetachedId();
+        chunk = null;
+        stateSlots = null;
+    }
+
     @Override
     public boolean isDeleted() {
         return (id & ChunkedPool.IdSchema.DETACHED_BIT) == ChunkedPool.IdSchema.DETACHED_BIT;
@@ -235,8 +546,14 @@ public final class IntEntity implements Entity, Item {
         ChunkedPool.IdSchema idSchema = getComposition().getIdSchema();
         return "Entity={" +
                 "id=" + idSchema.idToString(id) + "-> " + Arrays.toString(getComponentArray()) + ", " +
-                "stateId=" + idSchema.idToString(stateId) + ", " +
+                "stateId=" + idSchema.idToString(getStateId()) + ", " +
                 "enabled=" + isEnabled() +
                 "}";
     }
+
+    private static final class StateSlot {
+        private Enum<?> state;
+        private ChunkedPool.LinkedChunk<IntEntity> chunk;
+        private int id;
+    }
 }
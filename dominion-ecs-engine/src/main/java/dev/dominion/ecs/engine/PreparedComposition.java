@@ -165,9 +165,17 @@ public class PreparedComposition implements Composition {
         private final Map<DataComposition, TargetComposition> cache = new ConcurrentHashMap<>();
         private final Class<?>[] addedComponentTypes;
         private final Set<Class<?>> removedComponentTypes;
+        private final boolean replacing;
 
         public PreparedModifier(CompositionRepository compositions, Class<?>[] addedComponentTypes, Class<?>... componentTypes) {
+            this(compositions, false, addedComponentTypes, componentTypes);
+        }
+
+        // a replacing modifier removes types from the previous composition only, so that an added component can
+        // replace the previous component of the same type
+        public PreparedModifier(CompositionRepository compositions, boolean replacing, Class<?>[] addedComponentTypes, Class<?>... componentTypes) {
             this.compositions = compositions;
+            this.replacing = replacing;
             this.addedComponentTypes = addedComponentTypes;
             removedComponentTypes = new HashSet<>(componentTypes.length);
             Collections.addAll(removedComponentTypes, componentTypes);
@@ -200,7 +208,7 @@ public class PreparedComposition implements Composition {
                     null;
         }
 
-        private TargetComposition fetchTargetComposition(DataComposition composition) {
+        TargetComposition fetchTargetComposition(DataComposition composition) {
             TargetComposition targetComposition = cache.get(composition);
             return targetComposition == null ?
                     cache.computeIfAbsent(composition, this::getTargetComposition) : targetComposition;
@@ -212,7 +220,11 @@ public class PreparedComposition implements Composition {
             List<Class<?>> typeList = new ArrayList<>(newLength);
             populateTypeList(typeList, prevComponentTypes);
             if (addedComponentTypes != null) {
-                populateTypeList(typeList, addedComponentTypes);
+                if (replacing) {
+                    Collections.addAll(typeList, addedComponentTypes);
+                } else {
+                    populateTypeList(typeList, addedComponentTypes);
+                }
             }
             Class<?>[] newComponentTypes = typeList.toArray(new Class<?>[0]);
             DataComposition newComposition = compositions.getOrCreateByType(newComponentTypes);
@@ -5,16 +5,33 @@
 
 package dev.dominion.ecs.engine;
 
+import dev.dominion.ecs.api.Composition;
+import dev.dominion.ecs.api.Dominion;
 import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.api.Results;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
+import dev.dominion.ecs.engine.collections.FlatColumn;
+import dev.dominion.ecs.engine.collections.SparseSet;
+import dev.dominion.ecs.engine.system.FlatLayout;
 import dev.dominion.ecs.engine.system.IndexKey;
 import dev.dominion.ecs.engine.system.Logging;
+import dev.dominion.ecs.engine.system.TagIndex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -22,8 +39,21 @@ public abstract class ResultSet<T> implements Results<T> {
     private static final System.Logger LOGGER = Logging.getLogger();
     protected final boolean withEntity;
     protected final CompositionRepository compositionRepository;
-    private final Map<IndexKey, CompositionRepository.Node> nodeMap;
+    protected final Map<IndexKey, CompositionRepository.Node> nodeMap;
     protected IndexKey stateKey;
+    protected long changedSince = -1;
+    private Class<?>[] changedTypes;
+    private List<SparseSet<IntEntity>> sparseWith;
+    private List<SparseSet<IntEntity>> sparseWithout;
+    private boolean tagFound;
+    protected long withTags;
+    protected long withoutTags;
+    // the required states, as clauses of alternative states that are all required
+    private Enum<?>[][] stateClauses;
+    // the state clauses with the column state mode, as state codes tested in the data chunks
+    protected int[][] stateCodes;
+    // the index filters: the entities of the smallest index entry are walked instead of the chunks
+    private List<Where> wheres;
 
     public ResultSet(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap, boolean withEntity) {
         this.compositionRepository = compositionRepository;
@@ -43,13 +73,24 @@ public abstract class ResultSet<T> implements Results<T> {
                 "nodes=" + (nodeMap == null ? null : nodeMap.values()) +
                 ", withEntity=" + withEntity +
                 ", stateKey=" + stateKey +
+                ", changedSince=" + changedSince +
                 '}';
     }
 
-    abstract Iterator<T> compositionIterator(DataComposition composition);
+    abstract Iterator<T> compositionIterator(DataComposition composition, Range range);
+
+    // the result of an entity found by walking the sparse sets
+    abstract T sparseResult(IntEntity entity);
+
+    Iterator<T> compositionIterator(DataComposition composition) {
+        return compositionIterator(composition, null);
+    }
 
     @Override
     public Iterator<T> iterator() {
+        if (isSparse()) {
+            return sparseIterator();
+        }
         return nodeMap != null && nodeMap.size() > 0 ?
                 (nodeMap.size() > 1 ?
                         new IteratorWrapper<>(this, nodeMap.values().iterator()) :
@@ -70,16 +111,120 @@ public abstract class ResultSet<T> implements Results<T> {
 
     @Override
     public <S extends Enum<S>> Results<T> withState(S state) {
-        stateKey = compositionRepository.getClassIndex().getIndexKeyByEnum(state);
+        if (changedSince > -1 && !compositionRepository.isStateColumn()) {
+            throw new UnsupportedOperationException("Unsupported .changedSince(version).withState(S state) call : the entities of a state are spread across chunks");
+        }
+        stateKey = null;
+        stateClauses = null;
+        stateCodes = null;
+        addStateClause(state);
+        return this;
+    }
+
+    @Override
+    public Results<T> withAllStates(Enum<?>... states) {
+        for (Enum<?> state : states) {
+            addStateClause(state);
+        }
+        return this;
+    }
+
+    @Override
+    public Results<T> withAnyState(Enum<?>... states) {
+        if (states.length > 0) {
+            addStateClause(states.clone());
+        }
+        return this;
+    }
+
+    // with the tenant state mode, the state tenant of the first single state clause is walked, if any, and the other
+    // clauses are tested entity by entity; with the column state mode, all the clauses are tested in the data chunks
+    private void addStateClause(Enum<?>... states) {
+        stateClauses = stateClauses == null ? new Enum<?>[][]{states} : append(stateClauses, states);
+        if (compositionRepository.isStateColumn()) {
+            int[] codes = new int[states.length];
+            for (int i = 0; i < states.length; i++) {
+                codes[i] = compositionRepository.getStateCode(states[i]);
+            }
+            stateCodes = stateCodes == null ? new int[][]{codes} : append(stateCodes, codes);
+        } else if (stateKey == null && states.length == 1 && changedSince < 0) {
+            stateKey = getIndexKeyByEnum(states[0]);
+        }
+        if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
+                            , "Adding state clause " + Arrays.toString(states) + " to " + this)
+            );
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private IndexKey getIndexKeyByEnum(Enum state) {
+        return compositionRepository.getClassIndex().getIndexKeyByEnum(state);
+    }
+
+    private static <A> A[] append(A[] array, A element) {
+        A[] newArray = Arrays.copyOf(array, array.length + 1);
+        newArray[array.length] = element;
+        return newArray;
+    }
+
+    @Override
+    public <K> Results<T> where(Dominion.Index<?, K> index, K key) {
+        if (!(index instanceof ComponentIndex<?, ?> componentIndex)) {
+            throw new IllegalArgumentException("Unsupported index " + index + " : the index has not been created by a Dominion of this implementation");
+        }
+        (wheres == null ? wheres = new ArrayList<>() : wheres).add(new Where(componentIndex, key));
         if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
-                            , "Setting state " + state + " to " + this)
+                            , "Adding " + componentIndex + " with key " + key + " to " + this)
             );
         }
         return this;
     }
 
+    // with the tenant state mode, the state clauses beyond the walked state tenant are tested entity by entity
+    private boolean hasStateResidual() {
+        return stateClauses != null && !compositionRepository.isStateColumn()
+                && (stateKey == null || stateClauses.length > 1);
+    }
+
+    @Override
+    public Results<T> changedSince(long version, Class<?>... componentTypes) {
+        if (stateKey != null) {
+            throw new UnsupportedOperationException("Unsupported .withState(S state).changedSince(version) call : the entities of a state are spread across chunks");
+        }
+        changedSince = Math.max(version, 0);
+        changedTypes = componentTypes.length == 0 ? null : componentTypes;
+        if (Logging.isLoggable(compositionRepository.getLoggingContext().levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(compositionRepository.getLoggingContext().subject()
+                            , "Setting changed since version " + version + " to " + this)
+            );
+        }
+        return this;
+    }
+
+    // the columns of the changed component types in the given composition, or null to check the chunks as a whole:
+    // the types missing from the composition are never changed in it
+    private static int[] changedColumns(DataComposition composition, Class<?>[] changedTypes) {
+        if (changedTypes == null) {
+            return null;
+        }
+        int[] columns = new int[changedTypes.length];
+        int count = 0;
+        for (Class<?> type : changedTypes) {
+            int index = composition.isMultiComponent() ?
+                    composition.fetchComponentIndex(type) :
+                    composition.getComponentTypes()[0] == type ? 0 : -1;
+            if (index > -1) {
+                columns[count++] = index;
+            }
+        }
+        return count == columns.length ? columns : Arrays.copyOf(columns, count);
+    }
+
     @Override
     public Stream<T> stream() {
         return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false);
@@ -87,40 +232,611 @@ public abstract class ResultSet<T> implements Results<T> {
 
     @Override
     public Stream<T> parallelStream() {
-        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), true);
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        if (isSparse()) {
+            return Spliterators.spliteratorUnknownSize(sparseIterator(), Spliterator.ORDERED);
+        }
+        List<DataComposition> compositions = new ArrayList<>();
+        List<ChunkedPool.LinkedChunk<IntEntity>> chunks = new ArrayList<>();
+        boolean[] sized = {stateKey == null && !isSlotFiltered()};
+        walkChunks((composition, chunk) -> {
+            if (!chunk.isEmpty()) {
+                compositions.add(composition);
+                chunks.add(chunk);
+                sized[0] &= chunk.getTombstones() == 0;
+            }
+        });
+        return new ResultSpliterator<>(this, compositions, chunks, sized[0]);
+    }
+
+    @Override
+    public Cursor cursor() {
+        checkNotSparse(".cursor()");
+        return new FlatCursor(nodeMap == null ?
+                Collections.emptyIterator() :
+                nodeMap.values().iterator(), stateKey, changedSince, changedTypes, withTags, withoutTags, stateCodes);
     }
 
     @Override
     public Results<T> without(Class<?>... componentTypes) {
-        compositionRepository.mapWithout(nodeMap, componentTypes);
+        compositionRepository.mapWithout(nodeMap, filterDetachedTypes(componentTypes, false));
         return this;
     }
 
     @Override
     public Results<T> withAlso(Class<?>... componentTypes) {
-        compositionRepository.mapWithAlso(nodeMap, componentTypes);
+        compositionRepository.mapWithAlso(nodeMap, filterDetachedTypes(componentTypes, true));
         return this;
     }
 
-    protected ChunkedPool.PoolDataIterator<IntEntity> getPoolDataIterator(DataComposition composition, boolean multiData) {
+    // binds the sparse and tag types found by the results, which are left out of the found compositions
+    protected void withDetached(Class<?>... componentTypes) {
+        for (Class<?> componentType : componentTypes) {
+            tagFound |= TagIndex.isTag(componentType);
+        }
+        filterDetachedTypes(componentTypes, true);
+    }
+
+    // moves the sparse types to the sparse filters and the tag types to the tag masks, returning the other types
+    private Class<?>[] filterDetachedTypes(Class<?>[] componentTypes, boolean with) {
+        Class<?>[] otherTypes = new Class<?>[componentTypes.length];
+        int count = 0;
+        for (Class<?> componentType : componentTypes) {
+            if (TagIndex.isTag(componentType)) {
+                long mask = compositionRepository.getTagIndex().getMask(componentType);
+                if (with) {
+                    withTags |= mask;
+                } else {
+                    withoutTags |= mask;
+                }
+                continue;
+            }
+            if (!SparseSet.isSparse(componentType)) {
+                otherTypes[count++] = componentType;
+                continue;
+            }
+            var sparseSet = compositionRepository.fetchSparseSet(componentType);
+            if (with) {
+                (sparseWith == null ? sparseWith = new ArrayList<>() : sparseWith).add(sparseSet);
+            } else {
+                (sparseWithout == null ? sparseWithout = new ArrayList<>() : sparseWithout).add(sparseSet);
+            }
+        }
+        return count == componentTypes.length ? componentTypes : Arrays.copyOf(otherTypes, count);
+    }
+
+    // results filtered by sparse types, finding tag types, filtered by several states of a state tenant or by an index
+    // are walked entity by entity
+    protected boolean isSparse() {
+        return sparseWith != null || sparseWithout != null || tagFound || hasStateResidual() || wheres != null;
+    }
+
+    private void checkNotSparse(String call) {
+        if (isSparse()) {
+            throw new UnsupportedOperationException("Unsupported " + call + " call : the results are filtered entity by entity, by @Sparse component types, several states or an index");
+        }
+    }
+
+    protected boolean isTagged() {
+        return withTags != 0 || withoutTags != 0;
+    }
+
+    // results filtered by tags or by state codes test the slot of each entity
+    protected boolean isSlotFiltered() {
+        return withTags != 0 || withoutTags != 0 || stateCodes != null;
+    }
+
+    private void checkNotTagged(String call) {
+        if (isTagged()) {
+            throw new UnsupportedOperationException("Unsupported " + call + " call : the results are filtered by @Tag component types");
+        }
+    }
+
+    private Iterator<T> sparseIterator() {
+        Iterator<IntEntity> entities = sparseEntities();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entities.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return sparseResult(entities.next());
+            }
+        };
+    }
+
+    // the entities of the results filtered by sparse types: the smallest sparse set of the found types is walked
+    // instead of the chunks of the compositions, if any
+    private Iterator<IntEntity> sparseEntities() {
+        if (nodeMap == null) {
+            return Collections.emptyIterator();
+        }
+        if (wheres != null) {
+            Where smallest = wheres.get(0);
+            for (Where where : wheres) {
+                if (where.index().count(where.key()) < smallest.index().count(smallest.key())) {
+                    smallest = where;
+                }
+            }
+            return new SparseFilter(Arrays.asList(smallest.index().snapshot(smallest.key())).iterator(),
+                    foundCompositions());
+        }
+        if (sparseWith == null) {
+            List<ChunkedPool.LinkedChunk<IntEntity>> chunks = new ArrayList<>();
+            walkChunks((composition, chunk) -> chunks.add(chunk));
+            return new SparseFilter(new ChunkItemIterator(chunks.iterator()), null);
+        }
+        SparseSet<IntEntity> smallest = sparseWith.get(0);
+        for (SparseSet<IntEntity> sparseSet : sparseWith) {
+            if (sparseSet.size() < smallest.size()) {
+                smallest = sparseSet;
+            }
+        }
+        return new SparseFilter(Arrays.asList(smallest.items()).iterator(), foundCompositions());
+    }
+
+    private Set<DataComposition> foundCompositions() {
+        Set<DataComposition> compositions = new HashSet<>();
+        for (CompositionRepository.Node node : nodeMap.values()) {
+            compositions.add(node.getComposition());
+        }
+        return compositions;
+    }
+
+    @Override
+    public void forEachChunk(Consumer<Batch> action) {
+        checkNotSparse(".forEachChunk(action)");
+        checkNotTagged(".forEachChunk(action)");
+        if (stateClauses != null) {
+            throw new UnsupportedOperationException("Unsupported .withState(S state).forEachChunk(action) call : use .forEach(consumer) or .iterator() instead");
+        }
+        var batch = new ChunkBatch();
+        walkChunks((composition, chunk) -> {
+            if (!chunk.isEmpty()) {
+                batch.bind(composition, chunk);
+                action.accept(batch);
+            }
+        });
+    }
+
+    // entities with a state are spread across the chunks of their compositions, while changed entities and entities
+    // filtered by sparse or tag types are only a part of their compositions: only the other results select whole
+    // compositions, that can be deleted or modified at once instead of one entity at a time
+    private boolean selectsWholeCompositions() {
+        return stateKey == null && changedSince < 0 && !isSparse() && !isSlotFiltered();
+    }
+
+    @Override
+    public int deleteAll() {
+        if (nodeMap == null) {
+            return 0;
+        }
+        if (selectsWholeCompositions()) {
+            int count = 0;
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                count += node.getComposition().clear();
+            }
+            return count;
+        }
+        List<IntEntity> entities = collectEnabledEntities();
+        EntityTable entityTable = compositionRepository.getEntityTable();
+        for (IntEntity entity : entities) {
+            entityTable.release(entity);
+            entity.delete();
+        }
+        return entities.size();
+    }
+
+    @Override
+    public int modifyAll(Function<Entity, Composition.Modifier> modifier) {
+        if (nodeMap == null) {
+            return 0;
+        }
+        if (selectsWholeCompositions()) {
+            List<DataComposition> compositions = new ArrayList<>(nodeMap.size());
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                compositions.add(node.getComposition());
+            }
+            return DataComposition.modifyAll(compositions, modifier);
+        }
+        int count = 0;
+        for (IntEntity entity : collectEnabledEntities()) {
+            var mod = (PreparedComposition.NewEntityComposition) modifier.apply(entity);
+            if (mod != null && entity.modify(compositionRepository, mod.targetComposition(),
+                    mod.addedComponent(), mod.addedComponents())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int sortBy(Comparator<? super T> comparator) {
+        if (stateClauses != null) {
+            throw new UnsupportedOperationException("Unsupported .withState(S state).sortBy(comparator) call : the entities of a state are spread across chunks");
+        }
+        if (changedSince > -1) {
+            throw new UnsupportedOperationException("Unsupported .changedSince(version).sortBy(comparator) call : the whole compositions are sorted");
+        }
+        checkNotSparse(".sortBy(comparator)");
+        checkNotTagged(".sortBy(comparator)");
+        if (nodeMap == null) {
+            return 0;
+        }
+        int count = 0;
+        for (CompositionRepository.Node node : nodeMap.values()) {
+            var composition = node.getComposition();
+            count += composition.sort(() -> compositionIterator(composition), comparator);
+        }
+        return count;
+    }
+
+    private List<IntEntity> collectEnabledEntities() {
+        List<IntEntity> entities = new ArrayList<>();
+        if (isSparse()) {
+            sparseEntities().forEachRemaining(entities::add);
+            return entities;
+        }
+        walkChunks((composition, chunk) -> {
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                IntEntity entity = chunk.getItem(i);
+                if (entity != null && entity.isEnabled() && (!isSlotFiltered() || matchesSlot(entity))) {
+                    entities.add(entity);
+                }
+            }
+        });
+        return entities;
+    }
+
+    private static int componentIndexOf(DataComposition composition, Class<?> type) {
+        int index = composition.isMultiComponent() ?
+                composition.fetchComponentIndex(type) :
+                composition.getComponentTypes()[0] == type ? 0 : -1;
+        if (index < 0) {
+            throw new IllegalArgumentException(type.getName() + " is not a component of " + composition);
+        }
+        return index;
+    }
+
+    protected void walkChunks(BiConsumer<DataComposition, ChunkedPool.LinkedChunk<IntEntity>> action) {
+        if (nodeMap == null) {
+            return;
+        }
+        for (CompositionRepository.Node node : nodeMap.values()) {
+            var composition = node.getComposition();
+            int[] columns = walkedColumns(composition);
+            for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                action.accept(composition, chunk);
+            }
+        }
+    }
+
+    // the columns whose changes select the walked chunks, or null when every chunk is walked: along with
+    // firstWalkedChunk and nextWalkedChunk, it lets the forEach loops walk the chunks in place and call the consumer
+    // straight from the loop, resolving the component indexes and the fast path once per composition
+    protected int[] walkedColumns(DataComposition composition) {
+        return changedSince < 0 ? null : changedColumns(composition, changedTypes);
+    }
+
+    // the walked chunks of a composition are the ones of its tenant, or of its state tenant, changed since the version
+    protected ChunkedPool.LinkedChunk<IntEntity> firstWalkedChunk(DataComposition composition, int[] columns) {
+        var tenant = stateKey == null ? composition.getTenant() : composition.getStateTenant(stateKey);
+        var chunk = tenant == null ? null : tenant.getFirstChunk();
+        return chunk == null || changedSince < 0 || chunk.changedSince(changedSince, columns) ?
+                chunk : nextWalkedChunk(chunk, columns);
+    }
+
+    protected ChunkedPool.LinkedChunk<IntEntity> nextWalkedChunk(ChunkedPool.LinkedChunk<IntEntity> chunk, int[] columns) {
+        var next = chunk.getNext();
+        if (changedSince > -1) {
+            while (next != null && !next.changedSince(changedSince, columns)) {
+                next = next.getNext();
+            }
+        }
+        return next;
+    }
+
+    // the slot of an entity is tested in its data chunk, which is not the walked chunk of a state tenant
+    private boolean matchesSlot(IntEntity entity) {
+        return entity.getChunk().matches(entity.getComposition().getIdSchema().fetchObjectId(entity.getId()),
+                withTags, withoutTags, stateCodes);
+    }
+
+    protected ChunkedPool.PoolDataIterator<IntEntity> getPoolDataIterator(DataComposition composition, boolean multiData, Range range) {
         boolean withState = stateKey != null;
         ChunkedPool.PoolDataIterator<IntEntity> iterator;
         if (withState) {
             var tenant = composition.getStateTenant(stateKey);
             iterator = tenant == null ?
                     new ChunkedPool.PoolDataEmptyIterator<>() :
-                    withEntity ?
-                            tenant.iteratorWithState(multiData) :
-                            tenant.noItemIteratorWithState(multiData);
+                    composition.isFlat() ?
+                            (withEntity ?
+                                    tenant.flatIteratorWithState() :
+                                    tenant.noItemFlatIteratorWithState()) :
+                            withEntity ?
+                                    tenant.iteratorWithState(multiData) :
+                                    tenant.noItemIteratorWithState(multiData);
         } else {
             var tenant = composition.getTenant();
             iterator = withEntity ?
                     tenant.iterator() :
                     tenant.noItemIterator();
+            if (changedSince > -1) {
+                iterator.changedSince(changedSince, changedColumns(composition, changedTypes));
+            }
+        }
+        if (isSlotFiltered()) {
+            iterator.filter(withTags, withoutTags, stateCodes);
+        }
+        if (range != null) {
+            iterator.bound(range.chunk(), range.from(), range.to());
         }
         return iterator;
     }
 
+    /**
+     * The SparseFilter walks the candidate entities of results filtered by sparse types, skipping the disabled ones and
+     * the ones that do not match the sparse filters. Candidates taken from a sparse set or an index are also checked
+     * against the found compositions and the change filters, which are otherwise applied by walking the chunks.
+     */
+    private final class SparseFilter implements Iterator<IntEntity> {
+        private final Iterator<?> candidates;
+        private final Set<DataComposition> compositions;
+        private IntEntity next;
+
+        private SparseFilter(Iterator<?> candidates, Set<DataComposition> compositions) {
+            this.candidates = candidates;
+            this.compositions = compositions;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && candidates.hasNext()) {
+                IntEntity entity = (IntEntity) candidates.next();
+                if (entity != null && entity.isEnabled() && accepts(entity)) {
+                    next = entity;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public IntEntity next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            IntEntity entity = next;
+            next = null;
+            return entity;
+        }
+
+        private boolean accepts(IntEntity entity) {
+            if (compositions != null) {
+                DataComposition composition = entity.getComposition();
+                if (!compositions.contains(composition)) {
+                    return false;
+                }
+                if (changedSince > -1 && !entity.getChunk().changedSince(changedSince, changedColumns(composition, changedTypes))) {
+                    return false;
+                }
+            }
+            if (isSlotFiltered() && !matchesSlot(entity)) {
+                return false;
+            }
+            if (stateClauses != null && !compositionRepository.isStateColumn() && !entity.matchesStates(stateClauses)) {
+                return false;
+            }
+            if (wheres != null) {
+                for (Where where : wheres) {
+                    if (!where.index().contains(where.key(), entity)) {
+                        return false;
+                    }
+                }
+            }
+            int key = EntityTable.slotOf(entity.getHandle());
+            if (sparseWith != null) {
+                for (SparseSet<IntEntity> sparseSet : sparseWith) {
+                    if (!sparseSet.contains(key, entity)) {
+                        return false;
+                    }
+                }
+            }
+            if (sparseWithout != null) {
+                for (SparseSet<IntEntity> sparseSet : sparseWithout) {
+                    if (sparseSet.contains(key, entity)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Where(ComponentIndex<?, ?> index, Object key) {
+    }
+
+    // walks the items of the given chunks, tombstones included
+    private static final class ChunkItemIterator implements Iterator<IntEntity> {
+        private final Iterator<ChunkedPool.LinkedChunk<IntEntity>> chunks;
+        private ChunkedPool.LinkedChunk<IntEntity> chunk;
+        private int idx = -1;
+
+        private ChunkItemIterator(Iterator<ChunkedPool.LinkedChunk<IntEntity>> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (idx < 0) {
+                if (!chunks.hasNext()) {
+                    return false;
+                }
+                chunk = chunks.next();
+                idx = chunk.size() - 1;
+            }
+            return true;
+        }
+
+        @Override
+        public IntEntity next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return chunk.getItem(idx--);
+        }
+    }
+
+    /**
+     * The [from, to) index range of a chunk that bounds a composition iterator.
+     */
+    record Range(ChunkedPool.LinkedChunk<IntEntity> chunk, int from, int to) {
+    }
+
+    /**
+     * The ResultSpliterator splits the results first across compositions, then across the chunks of a composition and
+     * finally across index ranges of a single chunk, so that parallel streams scale with the available cores.
+     * The chunk sizes are taken when the spliterator is created: without a state filter and without tombstones left by
+     * deferred deletions they are exact and the spliterator reports SIZED and SUBSIZED. Index ranges follow the descending iteration order of the chunk, so
+     * the prefix returned by {@link #trySplit()} holds the higher indexes.
+     */
+    private static final class ResultSpliterator<T> implements Spliterator<T> {
+        // chunk ranges smaller than this are not worth a task and are never split
+        private static final int MIN_RANGE_SPLIT = 1 << 10;
+        private final ResultSet<T> owner;
+        private final List<DataComposition> compositions;
+        private final List<ChunkedPool.LinkedChunk<IntEntity>> chunks;
+        private final long[] ends;
+        private final int characteristics;
+        private int origin;
+        private int fence;
+        private int from;
+        private int to = -1;
+        private Iterator<T> current;
+
+        public ResultSpliterator(ResultSet<T> owner, List<DataComposition> compositions,
+                                 List<ChunkedPool.LinkedChunk<IntEntity>> chunks, boolean sized) {
+            this.owner = owner;
+            this.compositions = compositions;
+            this.chunks = chunks;
+            ends = new long[chunks.size()];
+            long total = 0;
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = total += chunks.get(i).size();
+            }
+            fence = ends.length;
+            characteristics = Spliterator.ORDERED | Spliterator.NONNULL |
+                    (sized ? Spliterator.SIZED | Spliterator.SUBSIZED : 0);
+        }
+
+        private ResultSpliterator(ResultSpliterator<T> parent, int origin, int fence, int from, int to) {
+            owner = parent.owner;
+            compositions = parent.compositions;
+            chunks = parent.chunks;
+            ends = parent.ends;
+            characteristics = parent.characteristics;
+            this.origin = origin;
+            this.fence = fence;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (current != null) {
+                return null;
+            }
+            if (fence - origin > 1) {
+                int mid = (origin + fence) >>> 1;
+                var first = compositions.get(origin);
+                if (first != compositions.get(fence - 1)) {
+                    // split at the composition boundary closest to the middle
+                    int lo = mid, hi = mid;
+                    while (compositions.get(lo - 1) == compositions.get(lo) && compositions.get(hi - 1) == compositions.get(hi)) {
+                        if (lo - 1 > origin) lo--;
+                        if (hi + 1 < fence) hi++;
+                    }
+                    mid = compositions.get(lo - 1) != compositions.get(lo) ? lo : hi;
+                }
+                var prefix = new ResultSpliterator<>(this, origin, mid, 0, -1);
+                origin = mid;
+                return prefix;
+            }
+            if (fence - origin == 1) {
+                int end = to < 0 ? chunkSize(origin) : to;
+                if (end - from < MIN_RANGE_SPLIT << 1) {
+                    return null;
+                }
+                int mid = (from + end) >>> 1;
+                var prefix = new ResultSpliterator<>(this, origin, fence, mid, end);
+                to = mid;
+                return prefix;
+            }
+            return null;
+        }
+
+        private boolean nextIterator() {
+            while (origin < fence) {
+                var chunk = chunks.get(origin);
+                current = owner.compositionIterator(compositions.get(origin),
+                        new Range(chunk, from, to < 0 ? chunkSize(origin) : to));
+                origin++;
+                from = 0;
+                to = -1;
+                if (current.hasNext()) {
+                    return true;
+                }
+            }
+            current = null;
+            return false;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if ((current != null && current.hasNext()) || nextIterator()) {
+                action.accept(current.next());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            do {
+                if (current != null) {
+                    while (current.hasNext()) {
+                        action.accept(current.next());
+                    }
+                }
+            } while (nextIterator());
+        }
+
+        @Override
+        public long estimateSize() {
+            if (origin >= fence) {
+                return 0;
+            }
+            if (fence - origin == 1 && (from > 0 || to >= 0)) {
+                return (to < 0 ? chunkSize(origin) : to) - from;
+            }
+            return ends[fence - 1] - (origin > 0 ? ends[origin - 1] : 0);
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        private int chunkSize(int i) {
+            return (int) (ends[i] - (i > 0 ? ends[i - 1] : 0));
+        }
+    }
+
     private static final class IteratorWrapper<T> implements Iterator<T> {
         private final ResultSet<T> owner;
         private final Iterator<CompositionRepository.Node> nodesIterator;
@@ -165,44 +881,365 @@ public abstract class ResultSet<T> implements Results<T> {
         }
     }
 
+    private static final class ChunkBatch implements Batch {
+        private DataComposition composition;
+        private ChunkedPool.LinkedChunk<IntEntity> chunk;
+        private int size;
+
+        private void bind(DataComposition composition, ChunkedPool.LinkedChunk<IntEntity> chunk) {
+            this.composition = composition;
+            this.chunk = chunk;
+            size = chunk.size();
+        }
+
+        private FlatColumn flatColumn(Class<?> flatType) {
+            int i = componentIndexOf(composition, flatType);
+            FlatColumn column = chunk.getFlatColumn(i);
+            if (column == null) {
+                throw new IllegalArgumentException(flatType.getName() + " is not a @Flat component type");
+            }
+            chunk.markChanged(i);
+            return column;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Entity entity(int index) {
+            return chunk.getItem(index);
+        }
+
+        @Override
+        public Object[] column(Class<?> componentType) {
+            int i = componentIndexOf(composition, componentType);
+            Object[] column = chunk.getDataColumn(i);
+            if (column == null) {
+                throw new IllegalArgumentException(componentType.getName() + " is a @Flat component type: use its primitive columns instead");
+            }
+            chunk.markChanged(i);
+            return column;
+        }
+
+        @Override
+        public int[] intColumn(Class<?> flatType, int field) {
+            return flatColumn(flatType).intArray(field);
+        }
+
+        @Override
+        public long[] longColumn(Class<?> flatType, int field) {
+            return flatColumn(flatType).longArray(field);
+        }
+
+        @Override
+        public float[] floatColumn(Class<?> flatType, int field) {
+            return flatColumn(flatType).floatArray(field);
+        }
+
+        @Override
+        public double[] doubleColumn(Class<?> flatType, int field) {
+            return flatColumn(flatType).doubleArray(field);
+        }
+    }
+
+    private static final class FlatCursor implements Cursor {
+        private final Iterator<CompositionRepository.Node> nodesIterator;
+        private final IndexKey stateKey;
+        private final long changedSince;
+        private final Class<?>[] changedTypes;
+        private final long withTags;
+        private final int[][] stateCodes;
+        private final long withoutTags;
+        private final List<FlatViewImpl> views = new ArrayList<>();
+        private DataComposition composition;
+        private int[] changedColumns;
+        private ChunkedPool.LinkedChunk<IntEntity> chunk;
+        private ChunkedPool.LinkedChunk<IntEntity> dataChunk;
+        private IntEntity entity;
+        private int next = -1;
+        private int size;
+        private int idx;
+
+        public FlatCursor(Iterator<CompositionRepository.Node> nodesIterator, IndexKey stateKey, long changedSince,
+                          Class<?>[] changedTypes, long withTags, long withoutTags, int[][] stateCodes) {
+            this.nodesIterator = nodesIterator;
+            this.stateKey = stateKey;
+            this.changedSince = changedSince;
+            this.changedTypes = changedTypes;
+            this.withTags = withTags;
+            this.withoutTags = withoutTags;
+            this.stateCodes = stateCodes;
+        }
+
+        @Override
+        public boolean next() {
+            do {
+                while (++next >= size) {
+                    if (!nextChunk()) {
+                        return false;
+                    }
+                }
+                entity = chunk.getItem(next);
+                if (stateKey == null && entity != null) {
+                    boolean matches = chunk.matches(next, withTags, withoutTags, stateCodes);
+                    entity = null;
+                    if (matches) {
+                        idx = next;
+                        return true;
+                    }
+                    continue;
+                }
+                // the tombstones left by deferred deletions are skipped, as well as the entities filtered by tags
+            } while (entity == null || !entity.isEnabled() || !entity.chunk.matches(
+                    composition.getIdSchema().fetchObjectId(entity.getId()), withTags, withoutTags, stateCodes));
+            idx = composition.getIdSchema().fetchObjectId(entity.getId());
+            if (entity.chunk != dataChunk) {
+                bind(entity.chunk);
+            }
+            return true;
+        }
+
+        private boolean nextChunk() {
+            next = -1;
+            size = 0;
+            chunk = chunk == null ? null : chunk.getNext();
+            do {
+                while (chunk == null) {
+                    if (!nodesIterator.hasNext()) {
+                        return false;
+                    }
+                    composition = nodesIterator.next().getComposition();
+                    var tenant = stateKey == null ? composition.getTenant() : composition.getStateTenant(stateKey);
+                    if (tenant != null) {
+                        chunk = tenant.getFirstChunk();
+                        changedColumns = changedSince < 0 ? null : changedColumns(composition, changedTypes);
+                        for (FlatViewImpl view : views) {
+                            view.locate(composition);
+                        }
+                    }
+                }
+                // unchanged chunks are skipped as a whole
+                if (changedSince < 0 || chunk.changedSince(changedSince, changedColumns)) {
+                    break;
+                }
+                chunk = chunk.getNext();
+            } while (true);
+            size = chunk.size();
+            if (stateKey == null) {
+                bind(chunk);
+            }
+            return true;
+        }
+
+        private void bind(ChunkedPool.LinkedChunk<IntEntity> dataChunk) {
+            this.dataChunk = dataChunk;
+            for (FlatViewImpl view : views) {
+                view.column = dataChunk.getFlatColumn(view.columnIndex);
+            }
+        }
+
+        @Override
+        public Entity entity() {
+            return stateKey == null ? chunk.get(next) : entity;
+        }
+
+        @Override
+        public FlatView view(Class<?> flatType) {
+            if (FlatLayout.of(flatType) == null) {
+                throw new IllegalArgumentException(flatType.getName() + " is not a @Flat component type");
+            }
+            FlatViewImpl view = new FlatViewImpl(this, flatType);
+            views.add(view);
+            if (composition != null) {
+                view.locate(composition);
+            }
+            if (dataChunk != null) {
+                view.column = dataChunk.getFlatColumn(view.columnIndex);
+            }
+            return view;
+        }
+    }
+
+    private static final class FlatViewImpl implements FlatView {
+        private final FlatCursor cursor;
+        private final Class<?> type;
+        private int columnIndex;
+        private FlatColumn column;
+
+        public FlatViewImpl(FlatCursor cursor, Class<?> type) {
+            this.cursor = cursor;
+            this.type = type;
+        }
+
+        private void locate(DataComposition composition) {
+            columnIndex = componentIndexOf(composition, type);
+        }
+
+        @Override
+        public int getInt(int field) {
+            return column.getInt(field, cursor.idx);
+        }
+
+        @Override
+        public long getLong(int field) {
+            return column.getLong(field, cursor.idx);
+        }
+
+        @Override
+        public float getFloat(int field) {
+            return column.getFloat(field, cursor.idx);
+        }
+
+        @Override
+        public double getDouble(int field) {
+            return column.getDouble(field, cursor.idx);
+        }
+
+        @Override
+        public void setInt(int field, int value) {
+            column.setInt(field, cursor.idx, value);
+            cursor.dataChunk.markChanged(columnIndex);
+        }
+
+        @Override
+        public void setLong(int field, long value) {
+            column.setLong(field, cursor.idx, value);
+            cursor.dataChunk.markChanged(columnIndex);
+        }
+
+        @Override
+        public void setFloat(int field, float value) {
+            column.setFloat(field, cursor.idx, value);
+            cursor.dataChunk.markChanged(columnIndex);
+        }
+
+        @Override
+        public void setDouble(int field, double value) {
+            column.setDouble(field, cursor.idx, value);
+            cursor.dataChunk.markChanged(columnIndex);
+        }
+    }
+
     public final static class With<T> extends ResultSet<T> {
         private final Class<T> type;
 
-        public With(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
-                    Class<T> type) {
-            super(compositionRepository, nodeMap, false);
-            this.type = type;
+        public With(CompositionRepository compositionRepository, Map<IndexKey, CompositionRepository.Node> nodeMap,
+                    Class<T> type) {
+            super(compositionRepository, nodeMap, false);
+            this.type = type;
+            withDetached(type);
+        }
+
+        @Override
+        Iterator<T> compositionIterator(DataComposition composition, Range range) {
+            return composition.selectT(type, getPoolDataIterator(composition, false, range));
+        }
+
+        @Override
+        T sparseResult(IntEntity entity) {
+            return entity.get(type);
+        }
+
+        @Override
+        public <S extends Enum<S>> Results<T> withState(S state) {
+            throw new UnsupportedOperationException("Unsupported .findCompositionWith(Class<T> type).withState(S state) call : use .findEntitiesWith(Class<T> type).withState(S state) instead");
+        }
+
+        @Override
+        public Results<T> withAllStates(Enum<?>... states) {
+            throw new UnsupportedOperationException("Unsupported .findCompositionWith(Class<T> type).withAllStates(states) call : use .findEntitiesWith(Class<T> type).withAllStates(states) instead");
+        }
+
+        @Override
+        public Results<T> withAnyState(Enum<?>... states) {
+            throw new UnsupportedOperationException("Unsupported .findCompositionWith(Class<T> type).withAnyState(states) call : use .findEntitiesWith(Class<T> type).withAnyState(states) instead");
+        }
+    }
+
+    public final static class All extends ResultSet<IntEntity> {
+
+        public All(CompositionRepository compositionRepository) {
+            super(compositionRepository, null, false);
+        }
+
+        @Override
+        Iterator<IntEntity> compositionIterator(DataComposition composition, Range range) {
+            return null;
+        }
+
+        @Override
+        IntEntity sparseResult(IntEntity entity) {
+            return entity;
+        }
+
+        @Override
+        public Iterator<IntEntity> iterator() {
+            return compositionRepository.getPool().allEntities();
+        }
+
+        @Override
+        public Spliterator<IntEntity> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED);
+        }
+
+        @Override
+        public Cursor cursor() {
+            throw new UnsupportedOperationException("Unsupported operation.");
+        }
+
+        @Override
+        public void forEachChunk(Consumer<Batch> action) {
+            throw new UnsupportedOperationException("Unsupported operation.");
+        }
+
+        @Override
+        public int deleteAll() {
+            int count = 0;
+            for (DataComposition composition : compositionRepository.getCompositions()) {
+                count += composition.clear();
+            }
+            return count;
         }
 
         @Override
-        Iterator<T> compositionIterator(DataComposition composition) {
-            return composition.selectT(type, composition.getTenant().noItemIterator());
+        public int modifyAll(Function<Entity, Composition.Modifier> modifier) {
+            return DataComposition.modifyAll(compositionRepository.getCompositions(), modifier);
         }
 
+        @SuppressWarnings("unchecked")
         @Override
-        public <S extends Enum<S>> Results<T> withState(S state) {
-            throw new UnsupportedOperationException("Unsupported .findCompositionWith(Class<T> type).withState(S state) call : use .findEntitiesWith(Class<T> type).withState(S state) instead");
+        public int sortBy(Comparator<? super IntEntity> comparator) {
+            int count = 0;
+            for (DataComposition composition : compositionRepository.getCompositions()) {
+                count += composition.sort(() -> (Iterator<IntEntity>) composition.getTenant().iterator(), comparator);
+            }
+            return count;
         }
-    }
 
-    public final static class All extends ResultSet<IntEntity> {
+        @Override
+        public <S extends Enum<S>> Results<IntEntity> withState(S state) {
+            throw new UnsupportedOperationException("Unsupported operation.");
+        }
 
-        public All(CompositionRepository compositionRepository) {
-            super(compositionRepository, null, false);
+        @Override
+        public Results<IntEntity> withAllStates(Enum<?>... states) {
+            throw new UnsupportedOperationException("Unsupported operation.");
         }
 
         @Override
-        Iterator<IntEntity> compositionIterator(DataComposition composition) {
-            return null;
+        public Results<IntEntity> withAnyState(Enum<?>... states) {
+            throw new UnsupportedOperationException("Unsupported operation.");
         }
 
         @Override
-        public Iterator<IntEntity> iterator() {
-            return compositionRepository.getPool().allEntities();
+        public <K> Results<IntEntity> where(Dominion.Index<?, K> index, K key) {
+            throw new UnsupportedOperationException("Unsupported operation.");
         }
 
         @Override
-        public <S extends Enum<S>> Results<IntEntity> withState(S state) {
+        public Results<IntEntity> changedSince(long version, Class<?>... componentTypes) {
             throw new UnsupportedOperationException("Unsupported operation.");
         }
 
@@ -217,7 +1254,7 @@ public abstract class ResultSet<T> implements Results<T> {
         }
     }
 
-    public final static class With1<T> extends ResultSet<Results.With1<T>> {
+    public final static class With1<T> extends ResultSet<Results.With1<T>> implements Results.Of1<T> {
         private final Class<T> type;
         private final NextWith1<T> nextWith1 = new NextWith1<>();
 
@@ -225,17 +1262,118 @@ public abstract class ResultSet<T> implements Results<T> {
                      Class<T> type) {
             super(compositionRepository, nodeMap, true);
             this.type = type;
+            withDetached(type);
         }
 
         @Override
-        Iterator<Results.With1<T>> compositionIterator(DataComposition composition) {
-            var iterator = getPoolDataIterator(composition, composition.length() > 1);
+        Results.With1<T> sparseResult(IntEntity entity) {
+            return new Results.With1<>(entity.get(type), entity);
+        }
+
+        @Override
+        Iterator<Results.With1<T>> compositionIterator(DataComposition composition, Range range) {
+            var iterator = getPoolDataIterator(composition, composition.length() > 1, range);
             var fetcher = iterator instanceof ChunkedPool.PoolDataIteratorWithState<IntEntity> ? nextWith1 : null;
             return composition.select(type, iterator, fetcher);
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Results.Consumer1<T> consumer) {
+            if (isSparse()) {
+                iterator().forEachRemaining(result -> consumer.accept(result.comp(), result.entity()));
+                return;
+            }
+            if (nodeMap == null) {
+                return;
+            }
+            boolean slotFiltered = isSlotFiltered();
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                var composition = node.getComposition();
+                int i1 = composition.isMultiComponent() ? composition.fetchComponentIndex(type) : 0;
+                boolean direct = stateKey == null && !composition.isFlat() && !slotFiltered;
+                int[] columns = walkedColumns(composition);
+                for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                    if (direct && chunk.getTombstones() == 0) {
+                        Object[] data1 = chunk.getDataColumn(i1);
+                        if (withEntity) {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T) data1[idx], chunk.getItem(idx));
+                            }
+                        } else {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T) data1[idx], null);
+                            }
+                        }
+                        continue;
+                    }
+                    for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                        IntEntity entity = chunk.getItem(idx);
+                        if (entity == null) {
+                            continue;
+                        }
+                        var dataChunk = chunk;
+                        int dataIdx = idx;
+                        if (stateKey != null) {
+                            if (!entity.isEnabled()) {
+                                continue;
+                            }
+                            dataChunk = entity.chunk;
+                            dataIdx = composition.getIdSchema().fetchObjectId(entity.getId());
+                        }
+                        if (slotFiltered && !dataChunk.matches(dataIdx, withTags, withoutTags, stateCodes)) {
+                            continue;
+                        }
+                        consumer.accept((T) dataChunk.readData(i1, dataIdx), withEntity ? entity : null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Results.Of1<T> without(Class<?>... componentTypes) {
+            super.without(componentTypes);
+            return this;
+        }
+
+        @Override
+        public Results.Of1<T> withAlso(Class<?>... componentTypes) {
+            super.withAlso(componentTypes);
+            return this;
+        }
+
+        @Override
+        public <S extends Enum<S>> Results.Of1<T> withState(S state) {
+            super.withState(state);
+            return this;
+        }
+
+        @Override
+        public Results.Of1<T> withAllStates(Enum<?>... states) {
+            super.withAllStates(states);
+            return this;
+        }
+
+        @Override
+        public Results.Of1<T> withAnyState(Enum<?>... states) {
+            super.withAnyState(states);
+            return this;
+        }
+
+        @Override
+        public <K> Results.Of1<T> where(Dominion.Index<?, K> index, K key) {
+            super.where(index, key);
+            return this;
+        }
+
+        @Override
+        public Results.Of1<T> changedSince(long version, Class<?>... componentTypes) {
+            super.changedSince(version, componentTypes);
+            return this;
+        }
     }
 
-    public final static class With2<T1, T2> extends ResultSet<Results.With2<T1, T2>> {
+    public final static class With2<T1, T2> extends ResultSet<Results.With2<T1, T2>> implements Results.Of2<T1, T2> {
         private final Class<T1> type1;
         private final Class<T2> type2;
         private final NextWith2<T1, T2> nextWith2 = new NextWith2<>();
@@ -245,17 +1383,120 @@ public abstract class ResultSet<T> implements Results<T> {
             super(compositionRepository, nodeMap, withEntity);
             this.type1 = type1;
             this.type2 = type2;
+            withDetached(type1, type2);
+        }
+
+        @Override
+        Results.With2<T1, T2> sparseResult(IntEntity entity) {
+            return new Results.With2<>(entity.get(type1), entity.get(type2), withEntity ? entity : null);
         }
 
         @Override
-        Iterator<Results.With2<T1, T2>> compositionIterator(DataComposition composition) {
-            var iterator = getPoolDataIterator(composition, true);
+        Iterator<Results.With2<T1, T2>> compositionIterator(DataComposition composition, Range range) {
+            var iterator = getPoolDataIterator(composition, true, range);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith2 : null;
             return composition.select(type1, type2, iterator, fetcher);
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Results.Consumer2<T1, T2> consumer) {
+            if (isSparse()) {
+                iterator().forEachRemaining(result -> consumer.accept(result.comp1(), result.comp2(), result.entity()));
+                return;
+            }
+            if (nodeMap == null) {
+                return;
+            }
+            boolean slotFiltered = isSlotFiltered();
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                var composition = node.getComposition();
+                int i1 = composition.fetchComponentIndex(type1);
+                int i2 = composition.fetchComponentIndex(type2);
+                boolean direct = stateKey == null && !composition.isFlat() && !slotFiltered;
+                int[] columns = walkedColumns(composition);
+                for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                    if (direct && chunk.getTombstones() == 0) {
+                        Object[] data1 = chunk.getDataColumn(i1);
+                        Object[] data2 = chunk.getDataColumn(i2);
+                        if (withEntity) {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], chunk.getItem(idx));
+                            }
+                        } else {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], null);
+                            }
+                        }
+                        continue;
+                    }
+                    for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                        IntEntity entity = chunk.getItem(idx);
+                        if (entity == null) {
+                            continue;
+                        }
+                        var dataChunk = chunk;
+                        int dataIdx = idx;
+                        if (stateKey != null) {
+                            if (!entity.isEnabled()) {
+                                continue;
+                            }
+                            dataChunk = entity.chunk;
+                            dataIdx = composition.getIdSchema().fetchObjectId(entity.getId());
+                        }
+                        if (slotFiltered && !dataChunk.matches(dataIdx, withTags, withoutTags, stateCodes)) {
+                            continue;
+                        }
+                        consumer.accept((T1) dataChunk.readData(i1, dataIdx), (T2) dataChunk.readData(i2, dataIdx), withEntity ? entity : null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Results.Of2<T1, T2> without(Class<?>... componentTypes) {
+            super.without(componentTypes);
+            return this;
+        }
+
+        @Override
+        public Results.Of2<T1, T2> withAlso(Class<?>... componentTypes) {
+            super.withAlso(componentTypes);
+            return this;
+        }
+
+        @Override
+        public <S extends Enum<S>> Results.Of2<T1, T2> withState(S state) {
+            super.withState(state);
+            return this;
+        }
+
+        @Override
+        public Results.Of2<T1, T2> withAllStates(Enum<?>... states) {
+            super.withAllStates(states);
+            return this;
+        }
+
+        @Override
+        public Results.Of2<T1, T2> withAnyState(Enum<?>... states) {
+            super.withAnyState(states);
+            return this;
+        }
+
+        @Override
+        public <K> Results.Of2<T1, T2> where(Dominion.Index<?, K> index, K key) {
+            super.where(index, key);
+            return this;
+        }
+
+        @Override
+        public Results.Of2<T1, T2> changedSince(long version, Class<?>... componentTypes) {
+            super.changedSince(version, componentTypes);
+            return this;
+        }
     }
 
-    public final static class With3<T1, T2, T3> extends ResultSet<Results.With3<T1, T2, T3>> {
+    public final static class With3<T1, T2, T3> extends ResultSet<Results.With3<T1, T2, T3>> implements Results.Of3<T1, T2, T3> {
         private final Class<T1> type1;
         private final Class<T2> type2;
         private final Class<T3> type3;
@@ -267,17 +1508,122 @@ public abstract class ResultSet<T> implements Results<T> {
             this.type1 = type1;
             this.type2 = type2;
             this.type3 = type3;
+            withDetached(type1, type2, type3);
         }
 
         @Override
-        Iterator<Results.With3<T1, T2, T3>> compositionIterator(DataComposition composition) {
-            var iterator = getPoolDataIterator(composition, true);
+        Results.With3<T1, T2, T3> sparseResult(IntEntity entity) {
+            return new Results.With3<>(entity.get(type1), entity.get(type2), entity.get(type3), withEntity ? entity : null);
+        }
+
+        @Override
+        Iterator<Results.With3<T1, T2, T3>> compositionIterator(DataComposition composition, Range range) {
+            var iterator = getPoolDataIterator(composition, true, range);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith3 : null;
             return composition.select(type1, type2, type3, iterator, fetcher);
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Results.Consumer3<T1, T2, T3> consumer) {
+            if (isSparse()) {
+                iterator().forEachRemaining(result -> consumer.accept(result.comp1(), result.comp2(), result.comp3(), result.entity()));
+                return;
+            }
+            if (nodeMap == null) {
+                return;
+            }
+            boolean slotFiltered = isSlotFiltered();
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                var composition = node.getComposition();
+                int i1 = composition.fetchComponentIndex(type1);
+                int i2 = composition.fetchComponentIndex(type2);
+                int i3 = composition.fetchComponentIndex(type3);
+                boolean direct = stateKey == null && !composition.isFlat() && !slotFiltered;
+                int[] columns = walkedColumns(composition);
+                for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                    if (direct && chunk.getTombstones() == 0) {
+                        Object[] data1 = chunk.getDataColumn(i1);
+                        Object[] data2 = chunk.getDataColumn(i2);
+                        Object[] data3 = chunk.getDataColumn(i3);
+                        if (withEntity) {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], chunk.getItem(idx));
+                            }
+                        } else {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], null);
+                            }
+                        }
+                        continue;
+                    }
+                    for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                        IntEntity entity = chunk.getItem(idx);
+                        if (entity == null) {
+                            continue;
+                        }
+                        var dataChunk = chunk;
+                        int dataIdx = idx;
+                        if (stateKey != null) {
+                            if (!entity.isEnabled()) {
+                                continue;
+                            }
+                            dataChunk = entity.chunk;
+                            dataIdx = composition.getIdSchema().fetchObjectId(entity.getId());
+                        }
+                        if (slotFiltered && !dataChunk.matches(dataIdx, withTags, withoutTags, stateCodes)) {
+                            continue;
+                        }
+                        consumer.accept((T1) dataChunk.readData(i1, dataIdx), (T2) dataChunk.readData(i2, dataIdx), (T3) dataChunk.readData(i3, dataIdx), withEntity ? entity : null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Results.Of3<T1, T2, T3> without(Class<?>... componentTypes) {
+            super.without(componentTypes);
+            return this;
+        }
+
+        @Override
+        public Results.Of3<T1, T2, T3> withAlso(Class<?>... componentTypes) {
+            super.withAlso(componentTypes);
+            return this;
+        }
+
+        @Override
+        public <S extends Enum<S>> Results.Of3<T1, T2, T3> withState(S state) {
+            super.withState(state);
+            return this;
+        }
+
+        @Override
+        public Results.Of3<T1, T2, T3> withAllStates(Enum<?>... states) {
+            super.withAllStates(states);
+            return this;
+        }
+
+        @Override
+        public Results.Of3<T1, T2, T3> withAnyState(Enum<?>... states) {
+            super.withAnyState(states);
+            return this;
+        }
+
+        @Override
+        public <K> Results.Of3<T1, T2, T3> where(Dominion.Index<?, K> index, K key) {
+            super.where(index, key);
+            return this;
+        }
+
+        @Override
+        public Results.Of3<T1, T2, T3> changedSince(long version, Class<?>... componentTypes) {
+            super.changedSince(version, componentTypes);
+            return this;
+        }
     }
 
-    public final static class With4<T1, T2, T3, T4> extends ResultSet<Results.With4<T1, T2, T3, T4>> {
+    public final static class With4<T1, T2, T3, T4> extends ResultSet<Results.With4<T1, T2, T3, T4>> implements Results.Of4<T1, T2, T3, T4> {
         private final Class<T1> type1;
         private final Class<T2> type2;
         private final Class<T3> type3;
@@ -291,17 +1637,124 @@ public abstract class ResultSet<T> implements Results<T> {
             this.type2 = type2;
             this.type3 = type3;
             this.type4 = type4;
+            withDetached(type1, type2, type3, type4);
+        }
+
+        @Override
+        Results.With4<T1, T2, T3, T4> sparseResult(IntEntity entity) {
+            return new Results.With4<>(entity.get(type1), entity.get(type2), entity.get(type3), entity.get(type4), withEntity ? entity : null);
         }
 
         @Override
-        Iterator<Results.With4<T1, T2, T3, T4>> compositionIterator(DataComposition composition) {
-            var iterator = getPoolDataIterator(composition, true);
+        Iterator<Results.With4<T1, T2, T3, T4>> compositionIterator(DataComposition composition, Range range) {
+            var iterator = getPoolDataIterator(composition, true, range);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith4 : null;
             return composition.select(type1, type2, type3, type4, iterator, fetcher);
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Results.Consumer4<T1, T2, T3, T4> consumer) {
+            if (isSparse()) {
+                iterator().forEachRemaining(result -> consumer.accept(result.comp1(), result.comp2(), result.comp3(), result.comp4(), result.entity()));
+                return;
+            }
+            if (nodeMap == null) {
+                return;
+            }
+            boolean slotFiltered = isSlotFiltered();
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                var composition = node.getComposition();
+                int i1 = composition.fetchComponentIndex(type1);
+                int i2 = composition.fetchComponentIndex(type2);
+                int i3 = composition.fetchComponentIndex(type3);
+                int i4 = composition.fetchComponentIndex(type4);
+                boolean direct = stateKey == null && !composition.isFlat() && !slotFiltered;
+                int[] columns = walkedColumns(composition);
+                for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                    if (direct && chunk.getTombstones() == 0) {
+                        Object[] data1 = chunk.getDataColumn(i1);
+                        Object[] data2 = chunk.getDataColumn(i2);
+                        Object[] data3 = chunk.getDataColumn(i3);
+                        Object[] data4 = chunk.getDataColumn(i4);
+                        if (withEntity) {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], (T4) data4[idx], chunk.getItem(idx));
+                            }
+                        } else {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], (T4) data4[idx], null);
+                            }
+                        }
+                        continue;
+                    }
+                    for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                        IntEntity entity = chunk.getItem(idx);
+                        if (entity == null) {
+                            continue;
+                        }
+                        var dataChunk = chunk;
+                        int dataIdx = idx;
+                        if (stateKey != null) {
+                            if (!entity.isEnabled()) {
+                                continue;
+                            }
+                            dataChunk = entity.chunk;
+                            dataIdx = composition.getIdSchema().fetchObjectId(entity.getId());
+                        }
+                        if (slotFiltered && !dataChunk.matches(dataIdx, withTags, withoutTags, stateCodes)) {
+                            continue;
+                        }
+                        consumer.accept((T1) dataChunk.readData(i1, dataIdx), (T2) dataChunk.readData(i2, dataIdx), (T3) dataChunk.readData(i3, dataIdx), (T4) dataChunk.readData(i4, dataIdx), withEntity ? entity : null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Results.Of4<T1, T2, T3, T4> without(Class<?>... componentTypes) {
+            super.without(componentTypes);
+            return this;
+        }
+
+        @Override
+        public Results.Of4<T1, T2, T3, T4> withAlso(Class<?>... componentTypes) {
+            super.withAlso(componentTypes);
+            return this;
+        }
+
+        @Override
+        public <S extends Enum<S>> Results.Of4<T1, T2, T3, T4> withState(S state) {
+            super.withState(state);
+            return this;
+        }
+
+        @Override
+        public Results.Of4<T1, T2, T3, T4> withAllStates(Enum<?>... states) {
+            super.withAllStates(states);
+            return this;
+        }
+
+        @Override
+        public Results.Of4<T1, T2, T3, T4> withAnyState(Enum<?>... states) {
+            super.withAnyState(states);
+            return this;
+        }
+
+        @Override
+        public <K> Results.Of4<T1, T2, T3, T4> where(Dominion.Index<?, K> index, K key) {
+            super.where(index, key);
+            return this;
+        }
+
+        @Override
+        public Results.Of4<T1, T2, T3, T4> changedSince(long version, Class<?>... componentTypes) {
+            super.changedSince(version, componentTypes);
+            return this;
+        }
     }
 
-    public final static class With5<T1, T2, T3, T4, T5> extends ResultSet<Results.With5<T1, T2, T3, T4, T5>> {
+    public final static class With5<T1, T2, T3, T4, T5> extends ResultSet<Results.With5<T1, T2, T3, T4, T5>> implements Results.Of5<T1, T2, T3, T4, T5> {
         private final Class<T1> type1;
         private final Class<T2> type2;
         private final Class<T3> type3;
@@ -317,17 +1770,126 @@ public abstract class ResultSet<T> implements Results<T> {
             this.type3 = type3;
             this.type4 = type4;
             this.type5 = type5;
+            withDetached(type1, type2, type3, type4, type5);
         }
 
         @Override
-        Iterator<Results.With5<T1, T2, T3, T4, T5>> compositionIterator(DataComposition composition) {
-            var iterator = getPoolDataIterator(composition, true);
+        Results.With5<T1, T2, T3, T4, T5> sparseResult(IntEntity entity) {
+            return new Results.With5<>(entity.get(type1), entity.get(type2), entity.get(type3), entity.get(type4), entity.get(type5), withEntity ? entity : null);
+        }
+
+        @Override
+        Iterator<Results.With5<T1, T2, T3, T4, T5>> compositionIterator(DataComposition composition, Range range) {
+            var iterator = getPoolDataIterator(composition, true, range);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith5 : null;
             return composition.select(type1, type2, type3, type4, type5, iterator, fetcher);
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Results.Consumer5<T1, T2, T3, T4, T5> consumer) {
+            if (isSparse()) {
+                iterator().forEachRemaining(result -> consumer.accept(result.comp1(), result.comp2(), result.comp3(), result.comp4(), result.comp5(), result.entity()));
+                return;
+            }
+            if (nodeMap == null) {
+                return;
+            }
+            boolean slotFiltered = isSlotFiltered();
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                var composition = node.getComposition();
+                int i1 = composition.fetchComponentIndex(type1);
+                int i2 = composition.fetchComponentIndex(type2);
+                int i3 = composition.fetchComponentIndex(type3);
+                int i4 = composition.fetchComponentIndex(type4);
+                int i5 = composition.fetchComponentIndex(type5);
+                boolean direct = stateKey == null && !composition.isFlat() && !slotFiltered;
+                int[] columns = walkedColumns(composition);
+                for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                    if (direct && chunk.getTombstones() == 0) {
+                        Object[] data1 = chunk.getDataColumn(i1);
+                        Object[] data2 = chunk.getDataColumn(i2);
+                        Object[] data3 = chunk.getDataColumn(i3);
+                        Object[] data4 = chunk.getDataColumn(i4);
+                        Object[] data5 = chunk.getDataColumn(i5);
+                        if (withEntity) {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], (T4) data4[idx], (T5) data5[idx], chunk.getItem(idx));
+                            }
+                        } else {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], (T4) data4[idx], (T5) data5[idx], null);
+                            }
+                        }
+                        continue;
+                    }
+                    for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                        IntEntity entity = chunk.getItem(idx);
+                        if (entity == null) {
+                            continue;
+                        }
+                        var dataChunk = chunk;
+                        int dataIdx = idx;
+                        if (stateKey != null) {
+                            if (!entity.isEnabled()) {
+                                continue;
+                            }
+                            dataChunk = entity.chunk;
+                            dataIdx = composition.getIdSchema().fetchObjectId(entity.getId());
+                        }
+                        if (slotFiltered && !dataChunk.matches(dataIdx, withTags, withoutTags, stateCodes)) {
+                            continue;
+                        }
+                        consumer.accept((T1) dataChunk.readData(i1, dataIdx), (T2) dataChunk.readData(i2, dataIdx), (T3) dataChunk.readData(i3, dataIdx), (T4) dataChunk.readData(i4, dataIdx), (T5) dataChunk.readData(i5, dataIdx), withEntity ? entity : null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Results.Of5<T1, T2, T3, T4, T5> without(Class<?>... componentTypes) {
+            super.without(componentTypes);
+            return this;
+        }
+
+        @Override
+        public Results.Of5<T1, T2, T3, T4, T5> withAlso(Class<?>... componentTypes) {
+            super.withAlso(componentTypes);
+            return this;
+        }
+
+        @Override
+        public <S extends Enum<S>> Results.Of5<T1, T2, T3, T4, T5> withState(S state) {
+            super.withState(state);
+            return this;
+        }
+
+        @Override
+        public Results.Of5<T1, T2, T3, T4, T5> withAllStates(Enum<?>... states) {
+            super.withAllStates(states);
+            return this;
+        }
+
+        @Override
+        public Results.Of5<T1, T2, T3, T4, T5> withAnyState(Enum<?>... states) {
+            super.withAnyState(states);
+            return this;
+        }
+
+        @Override
+        public <K> Results.Of5<T1, T2, T3, T4, T5> where(Dominion.Index<?, K> index, K key) {
+            super.where(index, key);
+            return this;
+        }
+
+        @Override
+        public Results.Of5<T1, T2, T3, T4, T5> changedSince(long version, Class<?>... componentTypes) {
+            super.changedSince(version, componentTypes);
+            return this;
+        }
     }
 
-    public final static class With6<T1, T2, T3, T4, T5, T6> extends ResultSet<Results.With6<T1, T2, T3, T4, T5, T6>> {
+    public final static class With6<T1, T2, T3, T4, T5, T6> extends ResultSet<Results.With6<T1, T2, T3, T4, T5, T6>> implements Results.Of6<T1, T2, T3, T4, T5, T6> {
         private final Class<T1> type1;
         private final Class<T2> type2;
         private final Class<T3> type3;
@@ -345,14 +1907,125 @@ public abstract class ResultSet<T> implements Results<T> {
             this.type4 = type4;
             this.type5 = type5;
             this.type6 = type6;
+            withDetached(type1, type2, type3, type4, type5, type6);
+        }
+
+        @Override
+        Results.With6<T1, T2, T3, T4, T5, T6> sparseResult(IntEntity entity) {
+            return new Results.With6<>(entity.get(type1), entity.get(type2), entity.get(type3), entity.get(type4), entity.get(type5), entity.get(type6), withEntity ? entity : null);
         }
 
         @Override
-        Iterator<Results.With6<T1, T2, T3, T4, T5, T6>> compositionIterator(DataComposition composition) {
-            var iterator = getPoolDataIterator(composition, true);
+        Iterator<Results.With6<T1, T2, T3, T4, T5, T6>> compositionIterator(DataComposition composition, Range range) {
+            var iterator = getPoolDataIterator(composition, true, range);
             var fetcher = iterator instanceof ChunkedPool.PoolMultiDataIteratorWithState<IntEntity> ? nextWith6 : null;
             return composition.select(type1, type2, type3, type4, type5, type6, iterator, fetcher);
         }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEach(Results.Consumer6<T1, T2, T3, T4, T5, T6> consumer) {
+            if (isSparse()) {
+                iterator().forEachRemaining(result -> consumer.accept(result.comp1(), result.comp2(), result.comp3(), result.comp4(), result.comp5(), result.comp6(), result.entity()));
+                return;
+            }
+            if (nodeMap == null) {
+                return;
+            }
+            boolean slotFiltered = isSlotFiltered();
+            for (CompositionRepository.Node node : nodeMap.values()) {
+                var composition = node.getComposition();
+                int i1 = composition.fetchComponentIndex(type1);
+                int i2 = composition.fetchComponentIndex(type2);
+                int i3 = composition.fetchComponentIndex(type3);
+                int i4 = composition.fetchComponentIndex(type4);
+                int i5 = composition.fetchComponentIndex(type5);
+                int i6 = composition.fetchComponentIndex(type6);
+                boolean direct = stateKey == null && !composition.isFlat() && !slotFiltered;
+                int[] columns = walkedColumns(composition);
+                for (var chunk = firstWalkedChunk(composition, columns); chunk != null; chunk = nextWalkedChunk(chunk, columns)) {
+                    if (direct && chunk.getTombstones() == 0) {
+                        Object[] data1 = chunk.getDataColumn(i1);
+                        Object[] data2 = chunk.getDataColumn(i2);
+                        Object[] data3 = chunk.getDataColumn(i3);
+                        Object[] data4 = chunk.getDataColumn(i4);
+                        Object[] data5 = chunk.getDataColumn(i5);
+                        Object[] data6 = chunk.getDataColumn(i6);
+                        if (withEntity) {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], (T4) data4[idx], (T5) data5[idx], (T6) data6[idx], chunk.getItem(idx));
+                            }
+                        } else {
+                            for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                                consumer.accept((T1) data1[idx], (T2) data2[idx], (T3) data3[idx], (T4) data4[idx], (T5) data5[idx], (T6) data6[idx], null);
+                            }
+                        }
+                        continue;
+                    }
+                    for (int idx = chunk.size() - 1; idx > -1; idx--) {
+                        IntEntity entity = chunk.getItem(idx);
+                        if (entity == null) {
+                            continue;
+                        }
+                        var dataChunk = chunk;
+                        int dataIdx = idx;
+                        if (stateKey != null) {
+                            if (!entity.isEnabled()) {
+                                continue;
+                            }
+                            dataChunk = entity.chunk;
+                            dataIdx = composition.getIdSchema().fetchObjectId(entity.getId());
+                        }
+                        if (slotFiltered && !dataChunk.matches(dataIdx, withTags, withoutTags, stateCodes)) {
+                            continue;
+                        }
+                        consumer.accept((T1) dataChunk.readData(i1, dataIdx), (T2) dataChunk.readData(i2, dataIdx), (T3) dataChunk.readData(i3, dataIdx), (T4) dataChunk.readData(i4, dataIdx), (T5) dataChunk.readData(i5, dataIdx), (T6) dataChunk.readData(i6, dataIdx), withEntity ? entity : null);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Results.Of6<T1, T2, T3, T4, T5, T6> without(Class<?>... componentTypes) {
+            super.without(componentTypes);
+            return this;
+        }
+
+        @Override
+        public Results.Of6<T1, T2, T3, T4, T5, T6> withAlso(Class<?>... componentTypes) {
+            super.withAlso(componentTypes);
+            return this;
+        }
+
+        @Override
+        public <S extends Enum<S>> Results.Of6<T1, T2, T3, T4, T5, T6> withState(S state) {
+            super.withState(state);
+            return this;
+        }
+
+        @Override
+        public Results.Of6<T1, T2, T3, T4, T5, T6> withAllStates(Enum<?>... states) {
+            super.withAllStates(states);
+            return this;
+        }
+
+        @Override
+        public Results.Of6<T1, T2, T3, T4, T5, T6> withAnyState(Enum<?>... states) {
+            super.withAnyState(states);
+            return this;
+        }
+
+        @Override
+        public <K> Results.Of6<T1, T2, T3, T4, T5, T6> where(Dominion.Index<?, K> index, K key) {
+            super.where(index, key);
+            return this;
+        }
+
+        @Override
+        public Results.Of6<T1, T2, T3, T4, T5, T6> changedSince(long version, Class<?>... componentTypes) {
+            super.changedSince(version, componentTypes);
+            return this;
+        }
     }
 
     public final static class NextWith1<T1> implements ChunkedPool.PoolIteratorNextWith1 {
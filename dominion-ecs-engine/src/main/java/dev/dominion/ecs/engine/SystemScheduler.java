@@ -26,6 +26,9 @@ public class SystemScheduler implements Scheduler {
     private final ForkJoinPool workStealExecutor;
     private final ScheduledExecutorService tickExecutor;
     private final Logging.Context loggingContext;
+    private final EntityRepository entityRepository;
+    private final ThreadLocal<CommandBuffer> commandBuffer;
+    private final Queue<CommandBuffer> commandBuffers = new ConcurrentLinkedQueue<>();
     private final StampedLock scheduleLock = new StampedLock();
     private final ReentrantLock tickLock = new ReentrantLock();
     private ScheduledFuture<?> scheduledTicks;
@@ -33,8 +36,18 @@ public class SystemScheduler implements Scheduler {
     private TickTime tickTime;
 
     public SystemScheduler(int timeoutSeconds, Logging.Context loggingContext) {
+        this(timeoutSeconds, loggingContext, null);
+    }
+
+    public SystemScheduler(int timeoutSeconds, Logging.Context loggingContext, EntityRepository entityRepository) {
         this.timeoutSeconds = timeoutSeconds;
         this.loggingContext = loggingContext;
+        this.entityRepository = entityRepository;
+        commandBuffer = ThreadLocal.withInitial(() -> {
+            CommandBuffer buffer = new CommandBuffer();
+            commandBuffers.add(buffer);
+            return buffer;
+        });
         var threadFactory = new ThreadFactory() {
 
             @Override
@@ -192,6 +205,21 @@ public class SystemScheduler implements Scheduler {
         this.tickTime = tickTime;
         var futures = mainExecutor.invokeAll(mainTasks);
         futures.get(0).get(timeoutSeconds, TimeUnit.SECONDS);
+        // sync point: all the systems have been executed
+        if (entityRepository != null) {
+            CommandBuffer.playback(entityRepository, commandBuffers, loggingContext);
+            // no system is iterating: the tombstones left by the deferred deletions can be compacted
+            entityRepository.getCompositionRepository().getPool().compact();
+            entityRepository.getCompositionRepository().getEntityEvents().deliver();
+        }
+    }
+
+    @Override
+    public Scheduler.Commands commands() {
+        if (entityRepository == null) {
+            throw new UnsupportedOperationException("Commands are only available to schedulers created by a Dominion.");
+        }
+        return commandBuffer.get();
     }
 
     @Override
@@ -5,32 +5,78 @@
 
 package dev.dominion.ecs.engine.collections;
 
+import dev.dominion.ecs.engine.system.Config;
+import dev.dominion.ecs.engine.system.FlatLayout;
 import dev.dominion.ecs.engine.system.Logging;
+import dev.dominion.ecs.engine.system.UncheckedUpdater;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * The ChunkedPool class is the core of the Dominion project.
  * This custom data structure implements multi-tenant management of a pool of items organized into linked
  * chunks to improve performance and have dynamic capacity.
+ * Chunks are indexed by a segmented directory that grows on demand up to the id space of the {@link IdSchema}, so a
+ * pool starts small and getting a chunk by id stays O(1).
+ * With the {@link Config.DeletionMode#DEFERRED} deletion mode, a freed id leaves a tombstone in its chunk instead of
+ * being filled by the last item of the chunk: iterators skip tombstones, and {@link #compact()} fills them later in bulk.
  *
  * @param <T> the managed type that must implement the {@link Item} interface
  */
 public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoCloseable {
     private static final System.Logger LOGGER = Logging.getLogger();
-    private final LinkedChunk<T>[] chunks;
+    public static final int MAX_SEGMENT_BIT = 10;
+    public static final int LAZY_INITIAL_CAPACITY = 16;
+    private final int segmentBit;
+    private final int segmentMask;
+    private final int maxSegmentCount;
+    private volatile LinkedChunk<T>[][] directory;
     private final List<Tenant<T>> tenants = new ArrayList<>();
     private final IdSchema idSchema;
     private final Logging.Context loggingContext;
+    private final int firstChunkCapacity;
+    private final boolean deferredDeletion;
+    private final boolean lockFreeCreation;
+    private final Queue<Tenant<T>> tenantsWithTombstones = new ConcurrentLinkedQueue<>();
+    private final AtomicLong version = new AtomicLong(1);
     private int chunkIndex = -1;
+    private int[] freeChunkIds = new int[16];
+    private int freeChunkCount;
 
-    @SuppressWarnings("unchecked")
     public ChunkedPool(IdSchema idSchema, Logging.Context loggingContext) {
+        this(idSchema, Config.ChunkAllocation.EAGER, loggingContext);
+    }
+
+    public ChunkedPool(IdSchema idSchema, Config.ChunkAllocation chunkAllocation, Logging.Context loggingContext) {
+        this(idSchema, chunkAllocation, Config.DeletionMode.IMMEDIATE, loggingContext);
+    }
+
+    public ChunkedPool(IdSchema idSchema, Config.ChunkAllocation chunkAllocation, Config.DeletionMode deletionMode,
+                       Logging.Context loggingContext) {
+        this(idSchema, chunkAllocation, deletionMode, Config.CreationMode.LOCK_FREE, loggingContext);
+    }
+
+    public ChunkedPool(IdSchema idSchema, Config.ChunkAllocation chunkAllocation, Config.DeletionMode deletionMode,
+                       Config.CreationMode creationMode, Logging.Context loggingContext) {
         this.idSchema = idSchema;
+        deferredDeletion = deletionMode == Config.DeletionMode.DEFERRED;
+        lockFreeCreation = creationMode == Config.CreationMode.LOCK_FREE;
         this.loggingContext = loggingContext;
+        firstChunkCapacity = chunkAllocation == Config.ChunkAllocation.LAZY ?
+                Math.min(LAZY_INITIAL_CAPACITY, idSchema.chunkCapacity) :
+                idSchema.chunkCapacity;
+        segmentBit = Math.min(MAX_SEGMENT_BIT, IdSchema.TOTAL_BIT - idSchema.chunkBit);
+        segmentMask = (1 << segmentBit) - 1;
+        maxSegmentCount = idSchema.chunkCount >>> segmentBit;
+        directory = newDirectory(1);
         if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
             LOGGER.log(
                     System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -38,7 +84,6 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                     )
             );
         }
-        chunks = new LinkedChunk[idSchema.chunkCount];
     }
 
     @Override
@@ -46,11 +91,13 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         return "ChunkedPool={"
                 + "chunkCount=" + idSchema.chunkCount
                 + ", chunkCapacity=" + idSchema.chunkCapacity
+                + ", segmentCapacity=" + (1 << segmentBit)
+                + ", firstChunkCapacity=" + firstChunkCapacity
                 + '}';
     }
 
-    private LinkedChunk<T> newChunk(Tenant<T> owner, LinkedChunk<T> previousChunk) {
-        int id = ++chunkIndex;
+    private synchronized LinkedChunk<T> newChunk(Tenant<T> owner, LinkedChunk<T> previousChunk) {
+        int id = freeChunkCount > 0 ? freeChunkIds[--freeChunkCount] : ++chunkIndex;
         if (id > idSchema.chunkCount - 1) {
             throw new OutOfMemoryError(ChunkedPool.class.getName() + ": cannot create a new memory chunk");
         }
@@ -58,12 +105,83 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         if (previousChunk != null) {
             previousChunk.setNext(newChunk);
         }
-        chunks[id] = newChunk;
+        putChunk(id, newChunk);
         return newChunk;
     }
 
+    // the released chunk instance is never reused: items detached from it (e.g. disabled entities) can still refer to
+    // its tenant, while its id is recycled by the next newChunk call of any tenant
+    private synchronized void releaseChunk(LinkedChunk<T> chunk) {
+        if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Releasing " + chunk
+                    )
+            );
+        }
+        putChunk(chunk.id, null);
+        chunk.close();
+        if (freeChunkCount == freeChunkIds.length) {
+            freeChunkIds = Arrays.copyOf(freeChunkIds, freeChunkCount << 1);
+        }
+        freeChunkIds[freeChunkCount++] = chunk.id;
+    }
+
+    public synchronized int freeChunkCount() {
+        return freeChunkCount;
+    }
+
+    private void putChunk(int chunkId, LinkedChunk<T> chunk) {
+        int segmentIndex = chunkId >>> segmentBit;
+        LinkedChunk<T>[][] directory = this.directory;
+        if (segmentIndex >= directory.length) {
+            if (chunk == null) {
+                return;
+            }
+            directory = Arrays.copyOf(directory, Math.min(maxSegmentCount, Math.max(segmentIndex + 1, directory.length << 1)));
+        }
+        LinkedChunk<T>[] segment = directory[segmentIndex];
+        if (segment == null) {
+            if (chunk == null) {
+                return;
+            }
+            directory[segmentIndex] = segment = newSegment(1 << segmentBit);
+        }
+        segment[chunkId & segmentMask] = chunk;
+        if (directory != this.directory) {
+            this.directory = directory;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Item> LinkedChunk<T>[][] newDirectory(int length) {
+        return (LinkedChunk<T>[][]) new LinkedChunk<?>[length][];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Item> LinkedChunk<T>[] newSegment(int length) {
+        return (LinkedChunk<T>[]) new LinkedChunk<?>[length];
+    }
+
+    private LinkedChunk<T> chunkAt(int chunkId) {
+        LinkedChunk<T>[][] directory = this.directory;
+        int segmentIndex = chunkId >>> segmentBit;
+        LinkedChunk<T>[] segment;
+        return segmentIndex < directory.length && (segment = directory[segmentIndex]) != null ?
+                segment[chunkId & segmentMask] :
+                null;
+    }
+
     private LinkedChunk<T> getChunk(int id) {
-        return chunks[idSchema.fetchChunkId(id)];
+        return chunkAt(idSchema.fetchChunkId(id));
+    }
+
+    public int segmentCount() {
+        int count = 0;
+        for (LinkedChunk<T>[] segment : directory) {
+            if (segment != null) count++;
+        }
+        return count;
     }
 
     public T getEntry(int id) {
@@ -75,30 +193,72 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
     }
 
     public Tenant<T> newTenant(int dataLength, Object owner, Object subject) {
-        Tenant<T> newTenant = new Tenant<>(this, idSchema, dataLength, owner, subject, loggingContext);
+        return newTenant(dataLength, null, owner, subject);
+    }
+
+    public Tenant<T> newTenant(int dataLength, FlatLayout[] flatLayouts, Object owner, Object subject) {
+        Tenant<T> newTenant = new Tenant<>(this, idSchema, dataLength, flatLayouts, owner, subject, loggingContext);
         tenants.add(newTenant);
         return newTenant;
     }
 
     public Iterator<T> allEntities() {
-        return new PoolAllEntitiesIterator<>(this.chunks, chunkIndex);
+        return new PoolAllEntitiesIterator<>(this, chunkIndex);
     }
 
     public int size() {
         int sum = 0;
         for (int i = 0; i <= chunkIndex; i++) {
-            var chunk = chunks[i];
-            sum += chunk.size();
+            var chunk = chunkAt(i);
+            if (chunk != null) {
+                sum += chunk.size() - chunk.tombstones;
+            }
         }
         return sum;
     }
 
+    // compacts every tenant left with tombstones since the last compaction, returning the number of filled tombstones
+    public int compact() {
+        int count = 0;
+        Tenant<T> tenant;
+        while ((tenant = tenantsWithTombstones.poll()) != null) {
+            synchronized (tenant) {
+                count += tenant.compact();
+            }
+        }
+        if (count > 0 && Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
+            LOGGER.log(
+                    System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
+                            , "Compacting " + count + " tombstones")
+            );
+        }
+        return count;
+    }
+
+    // starts a new change version and returns the last one: the chunks changed from now on are stamped with a greater
+    // version than the returned one
+    public long advanceVersion() {
+        return version.getAndIncrement();
+    }
+
+    public long currentVersion() {
+        return version.get();
+    }
+
     @Override
     public void close() {
         tenants.forEach(Tenant::close);
     }
 
 
+    private static <U> UncheckedUpdater.Int<U> newUpdater(Class<U> tClass, String fieldName) {
+        try {
+            return new UncheckedUpdater.Int<>(tClass, fieldName);
+        } catch (NoSuchFieldException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
     // INTERFACES
 
     public interface Item {
@@ -109,6 +269,11 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
 
         void setStateId(int id);
 
+        // an item in the state tenants of several states is told which of its state ids is moved by the chunk
+        default void setStateId(LinkedChunk<? extends Item> stateChunk, int id) {
+            setStateId(id);
+        }
+
         LinkedChunk<? extends Item> getChunk();
 
         void setChunk(LinkedChunk<? extends Item> chunk);
@@ -195,29 +360,36 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
 
     public static final class Tenant<T extends Item> implements AutoCloseable {
         private static final AtomicInteger idGenerator = new AtomicInteger();
+        @SuppressWarnings("rawtypes")
+        private static final UncheckedUpdater.Int<Tenant> creatorsUpdater = newUpdater(Tenant.class, "creators");
         private final int id = idGenerator.getAndIncrement();
         private final ChunkedPool<T> pool;
         private final IdSchema idSchema;
-        private final IntStack idStack;
-        private final LinkedChunk<T> firstChunk;
+        private LinkedChunk<T> firstChunk;
         private final Logging.Context loggingContext;
         private final int dataLength;
+        private final FlatLayout[] flatLayouts;
         private final Object owner;
         private final Object subject;
         private LinkedChunk<T> currentChunk;
-        private int nextId = IdSchema.DETACHED_BIT;
-
-        private Tenant(ChunkedPool<T> pool, IdSchema idSchema, int dataLength, Object owner, Object subject, Logging.Context loggingContext) {
+        // top of the previous chunks having free slots, linked through the chunks themselves
+        private LinkedChunk<T> chunkWithRoom;
+        private int tombstones;
+        // number of lock-free creations in progress, or -1 while the holder of the tenant lock is changing the chunks
+        private volatile int creators;
+        private int exclusiveDepth;
+
+        private Tenant(ChunkedPool<T> pool, IdSchema idSchema, int dataLength, FlatLayout[] flatLayouts, Object owner, Object subject, Logging.Context loggingContext) {
             this.pool = pool;
             this.idSchema = idSchema;
             this.dataLength = dataLength;
+            this.flatLayouts = flatLayouts;
             this.owner = owner;
             this.subject = subject;
             this.loggingContext = loggingContext;
-            idStack = new IntStack(IdSchema.DETACHED_BIT, idSchema.chunkCapacity << 3);
             currentChunk = pool.newChunk(this, null);
             firstChunk = currentChunk;
-            nextId();
+            currentChunk.incrementIndex();
             if (Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.DEBUG)) {
                 LOGGER.log(
                         System.Logger.Level.DEBUG, Logging.format(loggingContext.subject()
@@ -232,40 +404,115 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return "Tenant={" +
                     "id=" + id +
                     ", dataLength=" + dataLength +
-                    ", nextId=" + idSchema.idToString(nextId) +
+                    (flatLayouts != null ? ", flat" : "") +
+                    ", nextId=" + idSchema.idToString(reservedId()) +
                     ", subject=" + subject +
                     '}';
         }
 
+        // the next id is always reserved at the index of the current chunk
+        private int reservedId() {
+            LinkedChunk<T> chunk = currentChunk;
+            return chunk == null || chunk.index < 0 ? IdSchema.DETACHED_BIT : idSchema.createId(chunk.id, chunk.index);
+        }
+
+        // waits for the lock-free creations in progress and keeps new ones on the locked path: only the holder of the
+        // tenant lock can call it, even reentrantly
+        private void acquireChunks() {
+            if (exclusiveDepth++ == 0) {
+                while (!creatorsUpdater.compareAndSet(this, 0, -1)) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+
+        private void releaseChunks() {
+            if (--exclusiveDepth == 0) {
+                creators = 0;
+            }
+        }
+
+        // registers a new item without the tenant lock, by bumping the index of the current chunk: it leaves the
+        // creation to the locked path while the chunks are being changed, when previous chunks have free slots to be
+        // reused, or when the current chunk has no room left for the next reserved id, and always with the
+        // synchronized creation mode
+        public boolean tryRegister(T entry, Object[] data) {
+            if (!pool.lockFreeCreation) {
+                return false;
+            }
+            int state;
+            do {
+                if ((state = creators) < 0) {
+                    return false;
+                }
+            } while (!creatorsUpdater.compareAndSet(this, state, state + 1));
+            try {
+                if (chunkWithRoom != null) {
+                    return false;
+                }
+                LinkedChunk<T> chunk = currentChunk;
+                int idx;
+                do {
+                    idx = LinkedChunk.indexUpdater.getVolatile(chunk);
+                    if (idx >= chunk.itemArray.length || idx >= idSchema.chunkCapacity - 1) {
+                        return false;
+                    }
+                } while (!LinkedChunk.indexUpdater.compareAndSet(chunk, idx, idx + 1));
+                entry.setId(idSchema.createId(chunk.id, idx));
+                chunk.set(entry, data);
+                return true;
+            } finally {
+                creatorsUpdater.getAndAdd(this, -1);
+            }
+        }
+
         public int nextId() {
+            acquireChunks();
+            try {
+                return reserveNextId();
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private int reserveNextId() {
             boolean loggable = Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.TRACE);
             if (loggable) {
                 LOGGER.log(
                         System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
                                 , "Getting nextId from " + currentChunk
-                                        + " having current nextId " + idSchema.idToString(nextId)
+                                        + " having current nextId " + idSchema.idToString(reservedId())
                         )
                 );
             }
-            int returnValue = idStack.pop();
-            if (loggable) {
-                LOGGER.log(
-                        System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
-                                , "Popping nextId:" + idSchema.idToString(returnValue)
-                        )
-                );
-            }
-            if (returnValue != IdSchema.DETACHED_BIT) {
-                pool.getChunk(returnValue).incrementIndex();
+            int returnValue;
+            LinkedChunk<T> chunk = chunkWithRoom;
+            if (chunk != null) {
+                // chunks are dense, so the first free slot of a previous chunk is always at its size
+                int idx = chunk.size();
+                returnValue = idSchema.createId(chunk.id, idx);
+                chunk.ensureCapacity(idx);
+                chunk.incrementIndex();
+                if (chunk.size() == idSchema.chunkCapacity) {
+                    unlinkChunkWithRoom(chunk);
+                }
+                if (loggable) {
+                    LOGGER.log(
+                            System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
+                                    , "Reusing nextId:" + idSchema.idToString(returnValue)
+                            )
+                    );
+                }
                 return returnValue;
             }
-            returnValue = nextId;
-            if (currentChunk.index < idSchema.chunkCapacity - 1) {
-                nextId = idSchema.createId(currentChunk.id, currentChunk.incrementIndex());
-                return returnValue;
+            chunk = currentChunk;
+            returnValue = reservedId();
+            // the capacity of the returned slot is ensured here, where no lock-free creation is writing to the chunk
+            chunk.ensureCapacity(chunk.index);
+            if (!chunk.hasCapacity()) {
+                currentChunk = pool.newChunk(this, chunk);
             }
-            currentChunk = pool.newChunk(this, currentChunk);
-            nextId = idSchema.createId(currentChunk.id, currentChunk.incrementIndex());
+            currentChunk.incrementIndex();
             return returnValue;
         }
 
@@ -278,11 +525,23 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
 
         public int freeId(int id, boolean isState) {
+            acquireChunks();
+            try {
+                return removeId(id, isState);
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private int removeId(int id, boolean isState) {
             LinkedChunk<T> chunkById = pool.getChunk(id);
             boolean loggable = Logging.isLoggable(loggingContext.levelIndex(), System.Logger.Level.TRACE);
             if (chunkById == null || chunkById.tenant != this || chunkById.isEmpty()) {
                 return id;
             }
+            if (pool.deferredDeletion && !isState) {
+                return buryId(chunkById, id, loggable);
+            }
             int reusableId = chunkById.remove(id, isState);
             if (loggable) {
                 LOGGER.log(
@@ -295,31 +554,280 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                 );
             }
             if (reusableId == IdSchema.DETACHED_BIT) return reusableId;
-            if (chunkById != currentChunk) {
-                if (loggable) {
-                    LOGGER.log(
-                            System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
-                                    , "Pushing reusableId: " + idSchema.idToString(reusableId)
-                            )
-                    );
+            if (chunkById != currentChunk && chunkById.isEmpty()) {
+                releaseChunk(chunkById);
+            } else if (chunkById != currentChunk) {
+                if (!chunkById.withRoom) {
+                    linkChunkWithRoom(chunkById);
                 }
-                idStack.push(reusableId);
-            } else {
-                nextId = reusableId;
             }
             return reusableId;
         }
 
+        // leaves a tombstone in place of the item, so that no other item is moved until the next compaction
+        private int buryId(LinkedChunk<T> chunk, int id, boolean loggable) {
+            if (!chunk.bury(idSchema.fetchObjectId(id))) {
+                return IdSchema.DETACHED_BIT;
+            }
+            if (loggable) {
+                LOGGER.log(
+                        System.Logger.Level.TRACE, Logging.format(loggingContext.subject()
+                                , "Burying id=" + idSchema.idToString(id) + " having current " + currentChunk
+                        )
+                );
+            }
+            if (tombstones++ == 0) {
+                pool.tenantsWithTombstones.offer(this);
+            }
+            return id;
+        }
+
+        // fills the tombstones of every chunk with the last items of the same chunk: emptied previous chunks are
+        // released and previous chunks left with room are reused by the next ids
+        public int compact() {
+            acquireChunks();
+            try {
+                return compactChunks();
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private int compactChunks() {
+            int count = tombstones;
+            if (count == 0) {
+                return 0;
+            }
+            for (LinkedChunk<T> chunk = firstChunk; chunk != null; ) {
+                LinkedChunk<T> next = chunk.next;
+                if (chunk.tombstones > 0) {
+                    chunk.compact();
+                    if (chunk != currentChunk) {
+                        if (chunk.isEmpty()) {
+                            releaseChunk(chunk);
+                        } else if (!chunk.withRoom) {
+                            linkChunkWithRoom(chunk);
+                        }
+                    }
+                }
+                chunk = next;
+            }
+            tombstones = 0;
+            return count;
+        }
+
+        // moves the item at position order[p] to position p, where positions follow the iteration order of the tenant:
+        // chunk by chunk from the first one, and from the highest index of each chunk. Every cycle of the permutation
+        // is walked in place, keeping aside only the first slot of the cycle
+        public void reorder(int[] order) {
+            acquireChunks();
+            try {
+                reorderChunks(order);
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private void reorderChunks(int[] order) {
+            if (tombstones > 0) {
+                throw new IllegalStateException("Cannot reorder a tenant with tombstones: compact it first");
+            }
+            List<LinkedChunk<T>> chunks = new ArrayList<>();
+            int size = 0;
+            for (LinkedChunk<T> chunk = firstChunk; chunk != null; chunk = chunk.next) {
+                if (!chunk.isEmpty()) {
+                    chunks.add(chunk);
+                    size += chunk.size();
+                }
+            }
+            if (order.length != size) {
+                throw new IllegalArgumentException("The order has " + order.length + " positions, but the tenant has "
+                        + size + " items");
+            }
+            boolean[] visited = new boolean[size];
+            for (int position : order) {
+                if (position < 0 || position >= size || visited[position]) {
+                    throw new IllegalArgumentException("The order is not a permutation of the tenant positions");
+                }
+                visited[position] = true;
+            }
+            Arrays.fill(visited, false);
+            int[] ends = new int[chunks.size()];
+            for (int k = 0, end = 0; k < ends.length; k++) {
+                ends[k] = end += chunks.get(k).size();
+            }
+            for (int start = 0; start < size; start++) {
+                if (visited[start] || order[start] == start) {
+                    continue;
+                }
+                int startK = chunkOfPosition(ends, start);
+                LinkedChunk<T> startChunk = chunks.get(startK);
+                int startIdx = ends[startK] - 1 - start;
+                Item startItem = startChunk.itemArray[startIdx];
+                Object[] startData = startChunk.getData(idSchema.createId(startChunk.id, startIdx));
+                long startTags = startChunk.getTags(startIdx);
+                int[] startStates = startChunk.getStateValues(startIdx);
+                int position = start;
+                for (; ; ) {
+                    visited[position] = true;
+                    int k = chunkOfPosition(ends, position);
+                    int from = order[position];
+                    if (from == start) {
+                        chunks.get(k).place(startChunk, startItem, startData, startTags, startStates, ends[k] - 1 - position);
+                        break;
+                    }
+                    int fromK = chunkOfPosition(ends, from);
+                    chunks.get(k).moveFrom(chunks.get(fromK), ends[fromK] - 1 - from, ends[k] - 1 - position);
+                    position = from;
+                }
+            }
+        }
+
+        // the chunk holding a position is the first one whose cumulative size exceeds the position
+        private static int chunkOfPosition(int[] ends, int position) {
+            int lo = 0, hi = ends.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ends[mid] <= position) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // a previous chunk is linked once, when its first slot is freed, and unlinked when it is full or released
+        private void linkChunkWithRoom(LinkedChunk<T> chunk) {
+            chunk.withRoom = true;
+            chunk.previousWithRoom = null;
+            chunk.nextWithRoom = chunkWithRoom;
+            if (chunkWithRoom != null) {
+                chunkWithRoom.previousWithRoom = chunk;
+            }
+            chunkWithRoom = chunk;
+        }
+
+        private void unlinkChunkWithRoom(LinkedChunk<T> chunk) {
+            LinkedChunk<T> previous = chunk.previousWithRoom;
+            LinkedChunk<T> next = chunk.nextWithRoom;
+            if (previous == null) {
+                chunkWithRoom = next;
+            } else {
+                previous.nextWithRoom = next;
+            }
+            if (next != null) {
+                next.previousWithRoom = previous;
+            }
+            chunk.withRoom = false;
+            chunk.previousWithRoom = chunk.nextWithRoom = null;
+        }
+
+        // moves every item of the source tenant into this tenant, chunk range by chunk range, and then clears the
+        // source: added columns are indexed by data column and hold the added values in the source iteration order
+        public int migrateAll(Tenant<T> from, int[] indexMapping, Object[][] addedColumns) {
+            acquireChunks();
+            try {
+                return copyAll(from, indexMapping, addedColumns);
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private int copyAll(Tenant<T> from, int[] indexMapping, Object[][] addedColumns) {
+            from.compact();
+            int offset = 0;
+            for (LinkedChunk<T> chunk = from.firstChunk; chunk != null; chunk = chunk.next) {
+                int size = chunk.size();
+                int fromIdx = 0;
+                while (fromIdx < size) {
+                    int idx = currentChunk.index;
+                    int length = Math.min(size - fromIdx, idSchema.chunkCapacity - idx);
+                    currentChunk.copyRange(chunk, fromIdx, idx, length, indexMapping, addedColumns, offset);
+                    fromIdx += length;
+                    offset += length;
+                    if (!currentChunk.hasCapacity()) {
+                        currentChunk = pool.newChunk(this, currentChunk);
+                    }
+                    currentChunk.incrementIndex();
+                }
+            }
+            from.clear(null);
+            return offset;
+        }
+
+        // releases all the chunks at once and restarts from a new first chunk, as a new tenant would do: the action
+        // gets every item stored in the released chunks
+        public int clear(Consumer<T> action) {
+            acquireChunks();
+            try {
+                return releaseAll(action);
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private int releaseAll(Consumer<T> action) {
+            int count = 0;
+            for (LinkedChunk<T> chunk = firstChunk; chunk != null; ) {
+                int size = chunk.size();
+                if (action != null) {
+                    for (int i = 0; i < size; i++) {
+                        T item = chunk.getItem(i);
+                        if (item != null) {
+                            action.accept(item);
+                        }
+                    }
+                }
+                count += size - chunk.tombstones;
+                LinkedChunk<T> next = chunk.next;
+                pool.releaseChunk(chunk);
+                chunk = next;
+            }
+            chunkWithRoom = null;
+            tombstones = 0;
+            currentChunk = firstChunk = pool.newChunk(this, null);
+            currentChunk.incrementIndex();
+            return count;
+        }
+
+        private void releaseChunk(LinkedChunk<T> chunk) {
+            if (chunk.withRoom) {
+                unlinkChunkWithRoom(chunk);
+            }
+            LinkedChunk<T> previous = chunk.previous;
+            LinkedChunk<T> next = chunk.next;
+            if (previous == null) {
+                firstChunk = next;
+            } else {
+                previous.next = next;
+            }
+            next.previous = previous;
+            pool.releaseChunk(chunk);
+        }
+
         public PoolDataIterator<T> iterator() {
-            return dataLength == 1 ?
-                    new PoolDataIterator<>(firstChunk, idSchema) :
-                    new PoolMultiDataIterator<>(firstChunk, idSchema);
+            return flatLayouts != null ?
+                    new PoolFlatDataIterator<>(firstChunk, idSchema) :
+                    dataLength == 1 ?
+                            new PoolDataIterator<>(firstChunk, idSchema) :
+                            new PoolMultiDataIterator<>(firstChunk, idSchema);
         }
 
         public PoolDataIterator<T> noItemIterator() {
-            return dataLength == 1 ?
-                    new PoolDataNoItemIterator<>(firstChunk, idSchema) :
-                    new PoolMultiDataNoItemIterator<>(firstChunk, idSchema);
+            return flatLayouts != null ?
+                    new PoolFlatDataNoItemIterator<>(firstChunk, idSchema) :
+                    dataLength == 1 ?
+                            new PoolDataNoItemIterator<>(firstChunk, idSchema) :
+                            new PoolMultiDataNoItemIterator<>(firstChunk, idSchema);
+        }
+
+        public PoolDataIterator<T> flatIteratorWithState() {
+            return new PoolFlatDataIteratorWithState<>(firstChunk, idSchema);
+        }
+
+        public PoolDataIterator<T> noItemFlatIteratorWithState() {
+            return new PoolFlatDataNoItemIteratorWithState<>(firstChunk, idSchema);
         }
 
         public PoolDataIterator<T> iteratorWithState(boolean multiData) {
@@ -338,6 +846,32 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return pool.getChunk(entry.getId()).set(entry, data);
         }
 
+        // fills the current chunk from the reserved nextId onwards, one whole range per chunk, and reserves the nextId
+        // after the last entry; freed ids of previous chunks are left to the single nextId calls
+        public void registerAll(T[] entries, Object[][] columns) {
+            acquireChunks();
+            try {
+                setAll(entries, columns);
+            } finally {
+                releaseChunks();
+            }
+        }
+
+        private void setAll(T[] entries, Object[][] columns) {
+            int count = entries.length;
+            int offset = 0;
+            while (offset < count) {
+                int idx = currentChunk.index;
+                int length = Math.min(count - offset, idSchema.chunkCapacity - idx);
+                currentChunk.setAll(entries, columns, offset, idx, length);
+                offset += length;
+                if (!currentChunk.hasCapacity()) {
+                    currentChunk = pool.newChunk(this, currentChunk);
+                }
+                currentChunk.incrementIndex();
+            }
+        }
+
         public LinkedChunk<T> registerState(T entry) {
             int stateId = nextId();
             LinkedChunk<T> stateChunk = pool.getChunk(stateId);
@@ -373,6 +907,14 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return dataLength;
         }
 
+        public boolean isFlat() {
+            return flatLayouts != null;
+        }
+
+        public LinkedChunk<T> getFirstChunk() {
+            return firstChunk;
+        }
+
         public ChunkedPool<T> getPool() {
             return pool;
         }
@@ -387,7 +929,11 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
 
         @Override
         public void close() {
-            idStack.close();
+            if (flatLayouts != null) {
+                for (LinkedChunk<T> chunk = firstChunk; chunk != null; chunk = chunk.next) {
+                    chunk.close();
+                }
+            }
         }
     }
 
@@ -396,24 +942,57 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
 
     public static final class LinkedChunk<T extends Item> {
         private static final System.Logger LOGGER = Logging.getLogger();
+        @SuppressWarnings("rawtypes")
+        private static final UncheckedUpdater.Int<LinkedChunk> indexUpdater = newUpdater(LinkedChunk.class, "index");
         private final IdSchema idSchema;
-        private final Item[] itemArray;
-        private final Object[] dataArray;
+        private Item[] itemArray;
+        private Object[] dataArray;
         private final Object[][] multiDataArray;
-        private final LinkedChunk<T> previous;
+        private final FlatColumn[] flatColumns;
+        private LinkedChunk<T> previous;
         private final Tenant<T> tenant;
         private final int id;
         private final int dataLength;
         private int index = -1;
         private LinkedChunk<T> next;
         private int sizeOffset = 0;
+        private LinkedChunk<T> previousWithRoom;
+        private LinkedChunk<T> nextWithRoom;
+        private boolean withRoom;
+        private int tombstones;
+        private final long[] columnVersions;
+        private long version;
+        // the tag bits of each slot, only allocated when the first tag is set in the chunk
+        private long[] tags;
+        // the state values of each slot with the column state mode, a column for each state type: a column is only
+        // allocated when the first state of its type is set in the chunk
+        private int[][] states;
 
         public LinkedChunk(int id, IdSchema idSchema, LinkedChunk<T> previous, int dataLength, Tenant<T> tenant, Logging.Context loggingContext) {
             this.idSchema = idSchema;
             this.dataLength = dataLength;
-            itemArray = new Item[idSchema.chunkCapacity];
-            dataArray = dataLength == 1 ? new Object[idSchema.chunkCapacity * dataLength] : null;
-            multiDataArray = dataLength > 1 ? new Object[dataLength][idSchema.chunkCapacity * dataLength] : null;
+            // only the first chunk of a tenant can start below the chunk capacity: any further chunk is needed by a
+            // tenant that has already filled a chunk
+            int capacity = tenant == null || previous != null ? idSchema.chunkCapacity : tenant.pool.firstChunkCapacity;
+            itemArray = new Item[capacity];
+            FlatLayout[] flatLayouts = tenant == null ? null : tenant.flatLayouts;
+            if (flatLayouts == null) {
+                flatColumns = null;
+                dataArray = dataLength == 1 ? new Object[capacity] : null;
+                multiDataArray = dataLength > 1 ? new Object[dataLength][capacity] : null;
+            } else {
+                flatColumns = new FlatColumn[dataLength];
+                multiDataArray = dataLength > 1 ? new Object[dataLength][] : null;
+                for (int i = 0; i < dataLength; i++) {
+                    if (flatLayouts[i] != null) {
+                        flatColumns[i] = FlatColumn.create(flatLayouts[i], capacity);
+                    } else if (multiDataArray != null) {
+                        multiDataArray[i] = new Object[capacity];
+                    }
+                }
+                dataArray = null;
+            }
+            columnVersions = new long[dataLength];
             this.previous = previous;
             this.tenant = tenant;
             this.id = id;
@@ -430,6 +1009,46 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return ++index;
         }
 
+        private void ensureCapacity(int idx) {
+            int length = itemArray.length;
+            if (idx < length) {
+                return;
+            }
+            int newLength = Math.min(idSchema.chunkCapacity, Math.max(idx + 1, length << 1));
+            itemArray = Arrays.copyOf(itemArray, newLength);
+            if (dataArray != null) {
+                dataArray = Arrays.copyOf(dataArray, newLength);
+            }
+            if (multiDataArray != null) {
+                for (int i = 0; i < dataLength; i++) {
+                    if (multiDataArray[i] != null) {
+                        multiDataArray[i] = Arrays.copyOf(multiDataArray[i], newLength);
+                    }
+                }
+            }
+            if (flatColumns != null) {
+                for (FlatColumn flatColumn : flatColumns) {
+                    if (flatColumn != null) {
+                        flatColumn.resize(newLength);
+                    }
+                }
+            }
+            if (tags != null) {
+                tags = Arrays.copyOf(tags, newLength);
+            }
+            if (states != null) {
+                for (int i = 0; i < states.length; i++) {
+                    if (states[i] != null) {
+                        states[i] = Arrays.copyOf(states[i], newLength);
+                    }
+                }
+            }
+        }
+
+        public int capacity() {
+            return itemArray.length;
+        }
+
         public int remove(int id, boolean isState) {
             int removedIndex = idSchema.fetchObjectId(id);
             int lastIndex = --index + sizeOffset;
@@ -442,16 +1061,9 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                 if (!isState) {
                     last.setId(id);
                 } else {
-                    last.setStateId(id);
-                }
-                if (dataLength == 1) {
-                    dataArray[removedIndex] = dataArray[lastIndex];
-                }
-                if (dataLength > 1) {
-                    for (int i = 0; i < dataLength; i++) {
-                        multiDataArray[i][removedIndex] = multiDataArray[i][lastIndex];
-                    }
+                    last.setStateId(this, id);
                 }
+                moveData(lastIndex, removedIndex);
                 itemArray[removedIndex] = last;
                 itemArray[lastIndex] = null;
             } else {
@@ -460,6 +1072,100 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return idSchema.mergeId(id, lastIndex);
         }
 
+        private void moveData(int fromIdx, int idx) {
+            if (flatColumns != null) {
+                for (int i = 0; i < dataLength; i++) {
+                    if (flatColumns[i] != null) {
+                        flatColumns[i].move(fromIdx, idx);
+                    } else {
+                        multiDataArray[i][idx] = multiDataArray[i][fromIdx];
+                    }
+                }
+            } else if (dataLength == 1) {
+                dataArray[idx] = dataArray[fromIdx];
+            } else if (dataLength > 1) {
+                for (int i = 0; i < dataLength; i++) {
+                    multiDataArray[i][idx] = multiDataArray[i][fromIdx];
+                }
+            }
+            if (tags != null) {
+                tags[idx] = tags[fromIdx];
+            }
+            if (states != null) {
+                for (int[] column : states) {
+                    if (column != null) {
+                        column[idx] = column[fromIdx];
+                    }
+                }
+            }
+        }
+
+        // only the item is dropped, while the size of the chunk is kept: its data is left in place, as a removal
+        // leaves the data of the last index, until the compaction overwrites it
+        private boolean bury(int idx) {
+            if (idx >= size() || itemArray[idx] == null) {
+                return false;
+            }
+            itemArray[idx] = null;
+            tombstones++;
+            return true;
+        }
+
+        // moves the last items of the chunk into its tombstones, the lowest tombstone first, so that the chunk is
+        // dense again with the same items
+        private void compact() {
+            int live = size() - tombstones;
+            int lo = 0, hi = size() - 1;
+            for (; ; ) {
+                while (lo < hi && itemArray[lo] != null) lo++;
+                while (hi > lo && itemArray[hi] == null) hi--;
+                if (lo >= hi) {
+                    break;
+                }
+                Item item = itemArray[hi];
+                moveData(hi, lo);
+                item.setId(idSchema.createId(id, lo));
+                itemArray[lo] = item;
+                itemArray[hi] = null;
+            }
+            index = live - sizeOffset;
+            tombstones = 0;
+        }
+
+        // moves the item and the data of a slot, of this or another chunk of the tenant, to the given index: the
+        // source slot is left stale and must be overwritten by the caller
+        private void moveFrom(LinkedChunk<T> from, int fromIdx, int idx) {
+            if (from == this) {
+                moveData(fromIdx, idx);
+            } else {
+                for (int i = 0; i < dataLength; i++) {
+                    copyData(from, i, fromIdx, i, idx);
+                }
+                setTags(idx, from.getTags(fromIdx));
+                setStateValues(idx, from.getStateValues(fromIdx));
+                mergeVersions(from);
+            }
+            place(from.itemArray[fromIdx], idx);
+        }
+
+        private void place(LinkedChunk<T> from, Item item, Object[] data, long tags, int[] stateValues, int idx) {
+            for (int i = 0; i < dataLength; i++) {
+                writeData(i, idx, data[i]);
+            }
+            setTags(idx, tags);
+            setStateValues(idx, stateValues);
+            if (from != this) {
+                mergeVersions(from);
+            }
+            place(item, idx);
+        }
+
+        private void place(Item item, int idx) {
+            itemArray[idx] = item;
+            item.setId(idSchema.createId(id, idx));
+            item.setChunk(this);
+        }
+
         @SuppressWarnings("unchecked")
         public T get(int id) {
             return (T) itemArray[idSchema.fetchObjectId(id)];
@@ -468,20 +1174,125 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         @SuppressWarnings("unchecked")
         public T set(T value, Object[] data) {
             int idx = idSchema.fetchObjectId(value.getId());
-            if (dataLength == 1) {
+            ensureCapacity(idx);
+            if (flatColumns != null) {
+                for (int i = 0; i < dataLength; i++) {
+                    writeData(i, idx, data[i]);
+                }
+            } else if (dataLength == 1) {
                 dataArray[idx] = data[0];
-            }
-            if (dataLength > 1) {
+            } else if (dataLength > 1) {
                 for (int i = 0; i < dataLength; i++) {
                     multiDataArray[i][idx] = data[i];
                 }
             }
+            if (tags != null) {
+                tags[idx] = 0;
+            }
+            setStateValues(idx, null);
+            markChanged();
             value.setChunk(this);
             return (T) (itemArray[idx] = value);
         }
 
+        // the range from idx to idx + length - 1 must start at the reserved slot of the chunk
+        public void setAll(T[] values, Object[][] columns, int offset, int idx, int length) {
+            ensureCapacity(idx + length - 1);
+            for (int i = 0; i < dataLength; i++) {
+                FlatColumn flatColumn;
+                if (flatColumns != null && (flatColumn = flatColumns[i]) != null) {
+                    Object[] column = columns[i];
+                    for (int k = 0; k < length; k++) {
+                        flatColumn.write(idx + k, column[offset + k]);
+                    }
+                } else {
+                    System.arraycopy(columns[i], offset, dataLength == 1 ? dataArray : multiDataArray[i], idx, length);
+                }
+            }
+            if (tags != null) {
+                Arrays.fill(tags, idx, idx + length, 0);
+            }
+            if (states != null) {
+                for (int[] column : states) {
+                    if (column != null) {
+                        Arrays.fill(column, idx, idx + length, 0);
+                    }
+                }
+            }
+            for (int k = 0; k < length; k++) {
+                T value = values[offset + k];
+                value.setId(idSchema.createId(id, idx + k));
+                value.setChunk(this);
+                itemArray[idx + k] = value;
+            }
+            markChanged();
+            index = idx + length - 1;
+        }
+
+        // the range from idx to idx + length - 1 must start at the reserved slot of the chunk
+        public void copyRange(LinkedChunk<T> from, int fromIdx, int idx, int length, int[] indexMapping,
+                              Object[][] addedColumns, int offset) {
+            ensureCapacity(idx + length - 1);
+            for (int i = 0; i < indexMapping.length; i++) {
+                int to = indexMapping[i];
+                if (to < 0) {
+                    continue;
+                }
+                FlatColumn flatColumn;
+                if (flatColumns != null && (flatColumn = flatColumns[to]) != null) {
+                    for (int k = 0; k < length; k++) {
+                        flatColumn.copy(from.flatColumns[i], fromIdx + k, idx + k);
+                    }
+                } else {
+                    System.arraycopy(from.getDataColumn(i), fromIdx, getDataColumn(to), idx, length);
+                }
+            }
+            if (addedColumns != null) {
+                for (int i = 0; i < addedColumns.length; i++) {
+                    Object[] column = addedColumns[i];
+                    if (column == null) {
+                        continue;
+                    }
+                    FlatColumn flatColumn;
+                    if (flatColumns != null && (flatColumn = flatColumns[i]) != null) {
+                        for (int k = 0; k < length; k++) {
+                            flatColumn.write(idx + k, column[offset + k]);
+                        }
+                    } else {
+                        System.arraycopy(column, offset, getDataColumn(i), idx, length);
+                    }
+                }
+            }
+            if (from.tags != null) {
+                if (tags == null) {
+                    tags = new long[itemArray.length];
+                }
+                System.arraycopy(from.tags, fromIdx, tags, idx, length);
+            } else if (tags != null) {
+                Arrays.fill(tags, idx, idx + length, 0);
+            }
+            int stateTypes = Math.max(from.states == null ? 0 : from.states.length, states == null ? 0 : states.length);
+            for (int type = 0; type < stateTypes; type++) {
+                int[] fromColumn = from.states == null || type >= from.states.length ? null : from.states[type];
+                if (fromColumn != null) {
+                    System.arraycopy(fromColumn, fromIdx, fetchStateColumn(type), idx, length);
+                } else if (states != null && type < states.length && states[type] != null) {
+                    Arrays.fill(states[type], idx, idx + length, 0);
+                }
+            }
+            for (int k = 0; k < length; k++) {
+                Item value = from.itemArray[fromIdx + k];
+                value.setId(idSchema.createId(id, idx + k));
+                value.setChunk(this);
+                itemArray[idx + k] = value;
+            }
+            markChanged();
+            index = idx + length - 1;
+        }
+
         public void setState(int stateId, T value) {
             int idx = idSchema.fetchObjectId(stateId);
+            ensureCapacity(idx);
             value.setStateId(stateId);
             value.setStateChunk(this);
             itemArray[idx] = value;
@@ -491,7 +1302,14 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         public void copy(T value, LinkedChunk<T> prevChunk, int newId, int[] indexMapping) {
             int prevIdx = idSchema.fetchObjectId(value.getId());
             int newIdx = idSchema.fetchObjectId(newId);
-            if (indexMapping.length > 0) {
+            ensureCapacity(newIdx);
+            if (flatColumns != null || prevChunk.flatColumns != null) {
+                for (int i = 0; i < indexMapping.length; i++) {
+                    if (indexMapping[i] > -1) {
+                        copyData(prevChunk, i, prevIdx, indexMapping[i], newIdx);
+                    }
+                }
+            } else if (indexMapping.length > 0) {
                 if (dataLength == 1) { // copy to new dataArray
                     if (prevChunk.dataLength == 1) { // copy from prev.dataArray
                         dataArray[newIdx] = prevChunk.dataArray[prevIdx];
@@ -516,6 +1334,9 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                     }
                 }
             }
+            setTags(newIdx, prevChunk.getTags(prevIdx));
+            setStateValues(newIdx, prevChunk.getStateValues(prevIdx));
+            markChanged();
             value.setId(newId);
             value.setChunk(this);
             itemArray[newIdx] = value;
@@ -523,7 +1344,14 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
 
         public void add(int id, int[] addedIndexMapping, Object addedComponent, Object[] addedComponents) {
             int idx = idSchema.fetchObjectId(id);
-            if (dataLength == 1) { // add to dataArray
+            if (flatColumns != null) {
+                if (addedComponent != null) writeData(addedIndexMapping[0], idx, addedComponent);
+                else for (int i = 0; i < addedIndexMapping.length; i++) {
+                    if (addedIndexMapping[i] > -1) {
+                        writeData(addedIndexMapping[i], idx, addedComponents[i]);
+                    }
+                }
+            } else if (dataLength == 1) { // add to dataArray
                 if (addedComponent != null) dataArray[idx] = addedComponent;
                 else for (int i = 0; i < addedIndexMapping.length; i++) {
                     if (addedIndexMapping[i] == 0) {
@@ -538,6 +1366,15 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
                     }
                 }
             }
+            if (addedComponent != null) {
+                markChanged(addedIndexMapping[0]);
+            } else {
+                for (int i : addedIndexMapping) {
+                    if (i > -1) {
+                        markChanged(i);
+                    }
+                }
+            }
         }
 
         public Object[] shelve(T value) {
@@ -555,10 +1392,13 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         public Object[] getData(int id) {
             int idx = idSchema.fetchObjectId(id);
             Object[] data = new Object[dataLength];
-            if (dataLength == 1) {
+            if (flatColumns != null) {
+                for (int i = 0; i < dataLength; i++) {
+                    data[i] = readData(i, idx);
+                }
+            } else if (dataLength == 1) {
                 data[0] = dataArray[idx];
-            }
-            if (dataLength > 1) {
+            } else if (dataLength > 1) {
                 for (int i = 0; i < dataLength; i++) {
                     data[i] = multiDataArray[i][idx];
                 }
@@ -567,11 +1407,164 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         }
 
         public Object getFromDataArray(int id) {
-            return dataArray[idSchema.fetchObjectId(id)];
+            return flatColumns != null ?
+                    flatColumns[0].read(idSchema.fetchObjectId(id)) :
+                    dataArray[idSchema.fetchObjectId(id)];
         }
 
         public Object getFromMultiDataArray(int id, int i) {
-            return multiDataArray[i][idSchema.fetchObjectId(id)];
+            return flatColumns != null ?
+                    readData(i, idSchema.fetchObjectId(id)) :
+                    multiDataArray[i][idSchema.fetchObjectId(id)];
+        }
+
+        public Object readData(int i, int idx) {
+            FlatColumn flatColumn;
+            if (flatColumns != null && (flatColumn = flatColumns[i]) != null) {
+                return flatColumn.read(idx);
+            }
+            return dataLength == 1 ? dataArray[idx] : multiDataArray[i][idx];
+        }
+
+        private void writeData(int i, int idx, Object value) {
+            FlatColumn flatColumn;
+            if (flatColumns != null && (flatColumn = flatColumns[i]) != null) {
+                flatColumn.write(idx, value);
+            } else if (dataLength == 1) {
+                dataArray[idx] = value;
+            } else {
+                multiDataArray[i][idx] = value;
+            }
+        }
+
+        private void copyData(LinkedChunk<T> from, int fromI, int fromIdx, int i, int idx) {
+            FlatColumn flatColumn;
+            if (flatColumns != null && (flatColumn = flatColumns[i]) != null) {
+                flatColumn.copy(from.flatColumns[fromI], fromIdx, idx);
+            } else {
+                writeData(i, idx, from.readData(fromI, fromIdx));
+            }
+        }
+
+        public long getTags(int idx) {
+            long[] tags = this.tags;
+            return tags == null ? 0 : tags[idx];
+        }
+
+        // a chunk without tags only allocates its tag bits when a tag is set
+        public void setTags(int idx, long bits) {
+            if (tags == null) {
+                if (bits == 0) {
+                    return;
+                }
+                tags = new long[itemArray.length];
+            }
+            tags[idx] = bits;
+        }
+
+        // the state value of a slot is the ordinal of its state plus one, 0 if the slot has no state of the type
+        public int getStateValue(int type, int idx) {
+            int[][] states = this.states;
+            int[] column;
+            return states == null || type >= states.length || (column = states[type]) == null ? 0 : column[idx];
+        }
+
+        // a chunk only allocates the column of a state type when the first state of the type is set
+        public void setStateValue(int type, int idx, int value) {
+            if (value == 0 && getStateValue(type, idx) == 0) {
+                return;
+            }
+            fetchStateColumn(type)[idx] = value;
+        }
+
+        private int[] fetchStateColumn(int type) {
+            if (states == null) {
+                states = new int[type + 1][];
+            } else if (type >= states.length) {
+                states = Arrays.copyOf(states, type + 1);
+            }
+            int[] column = states[type];
+            return column == null ? states[type] = new int[itemArray.length] : column;
+        }
+
+        /**
+         * Provides the state values of a slot, indexed by state type, to be moved to another slot.
+         *
+         * @param idx the slot index
+         * @return the state values, or null if the slot has no state
+         */
+        public int[] getStateValues(int idx) {
+            int[][] states = this.states;
+            if (states == null) {
+                return null;
+            }
+            int[] values = null;
+            for (int type = 0; type < states.length; type++) {
+                int[] column = states[type];
+                if (column != null && column[idx] != 0) {
+                    if (values == null) {
+                        values = new int[states.length];
+                    }
+                    values[type] = column[idx];
+                }
+            }
+            return values;
+        }
+
+        // replaces all the state values of a slot, clearing them if the given values are null
+        public void setStateValues(int idx, int[] values) {
+            int length = Math.max(values == null ? 0 : values.length, states == null ? 0 : states.length);
+            for (int type = 0; type < length; type++) {
+                setStateValue(type, idx, values == null || type >= values.length ? 0 : values[type]);
+            }
+        }
+
+        // tests the tag bits of a slot against a whole word of required and excluded tags at once, and its state values
+        // against the required state clauses, if any: each clause is a set of alternative state codes, with the state
+        // type in the high bits and the state value in the low 16 bits
+        public boolean matches(int idx, long withTags, long withoutTags, int[][] stateClauses) {
+            long bits = getTags(idx);
+            if ((bits & withTags) != withTags || (bits & withoutTags) != 0) {
+                return false;
+            }
+            if (stateClauses != null) {
+                for (int[] clause : stateClauses) {
+                    if (!matchesAny(idx, clause)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesAny(int idx, int[] clause) {
+            for (int code : clause) {
+                if (getStateValue(code >>> 16, idx) == (code & 0xFFFF)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public FlatColumn getFlatColumn(int i) {
+            return flatColumns == null ? null : flatColumns[i];
+        }
+
+        /**
+         * Provides the column of the i-th component, or null if the component is stored in a flat column.
+         * A growing chunk replaces its columns: the returned array should not be kept across structural changes.
+         *
+         * @param i the component index
+         * @return the data column
+         */
+        public Object[] getDataColumn(int i) {
+            return flatColumns != null && flatColumns[i] != null ? null :
+                    dataLength == 1 ? dataArray : multiDataArray[i];
+        }
+
+        @SuppressWarnings("unchecked")
+        public T getItem(int idx) {
+            return (T) itemArray[idx];
         }
 
         public Tenant<T> getTenant() {
@@ -590,6 +1583,10 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return previous;
         }
 
+        public LinkedChunk<T> getNext() {
+            return next;
+        }
+
         private void setNext(LinkedChunk<T> next) {
             this.next = next;
             sizeOffset = 1;
@@ -603,6 +1600,54 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return size() == 0;
         }
 
+        public int getTombstones() {
+            return tombstones;
+        }
+
+        // stamps the i-th column, and the chunk as a whole, with the current version of the pool
+        public void markChanged(int i) {
+            long current = tenant == null ? 0 : tenant.pool.currentVersion();
+            columnVersions[i] = current;
+            version = current;
+        }
+
+        public void markChanged() {
+            long current = tenant == null ? 0 : tenant.pool.currentVersion();
+            Arrays.fill(columnVersions, current);
+            version = current;
+        }
+
+        // items moved from another chunk keep the versions of their columns
+        private void mergeVersions(LinkedChunk<T> from) {
+            for (int i = 0; i < dataLength; i++) {
+                columnVersions[i] = Math.max(columnVersions[i], from.columnVersions[i]);
+            }
+            version = Math.max(version, from.version);
+        }
+
+        // checks whether any of the given columns, or the chunk as a whole if columns is null, changed after the version
+        public boolean changedSince(long version, int[] columns) {
+            if (columns == null) {
+                return this.version > version;
+            }
+            for (int i : columns) {
+                if (columnVersions[i] > version) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void close() {
+            if (flatColumns != null) {
+                for (FlatColumn flatColumn : flatColumns) {
+                    if (flatColumn != null) {
+                        flatColumn.close();
+                    }
+                }
+            }
+        }
+
         @Override
         public String toString() {
             return "LinkedChunk={"
@@ -625,6 +1670,14 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
         protected LinkedChunk<T> currentChunk;
         protected IdSchema idSchema;
         private int begin;
+        private int floor;
+        private boolean bounded;
+        private long changedSince = -1;
+        private int[] changedColumns;
+        private boolean filtered;
+        protected long withTags;
+        protected long withoutTags;
+        protected int[][] stateClauses;
 
         public PoolIterator(LinkedChunk<T> currentChunk, IdSchema idSchema) {
             this.currentChunk = currentChunk;
@@ -632,20 +1685,100 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             next = begin = currentChunk == null ? 0 : currentChunk.size() - 1;
         }
 
+        /**
+         * Restricts the iteration to the [from, to) index range of a single chunk, in the usual descending order.
+         *
+         * @param chunk the chunk to iterate
+         * @param from  the lowest index, inclusive
+         * @param to    the highest index, exclusive
+         * @return this iterator
+         */
+        public PoolIterator<T> bound(LinkedChunk<T> chunk, int from, int to) {
+            currentChunk = chunk;
+            next = Math.min(to, chunk.size()) - 1;
+            floor = from;
+            bounded = true;
+            return this;
+        }
+
+        /**
+         * Restricts the iteration to the chunks changed after the given version, skipping unchanged chunks as a whole.
+         *
+         * @param version the version
+         * @param columns the columns to check, or null to check the chunks as a whole
+         * @return this iterator
+         */
+        public PoolIterator<T> changedSince(long version, int[] columns) {
+            changedSince = version;
+            changedColumns = columns;
+            if (currentChunk != null) {
+                next = begin = firstIndex(currentChunk);
+            }
+            return this;
+        }
+
+        /**
+         * Restricts the iteration to the items whose tag bits include all the required tags and none of the excluded
+         * ones, and whose state values satisfy every state clause.
+         *
+         * @param withTags     the required tag bits
+         * @param withoutTags  the excluded tag bits
+         * @param stateClauses the required clauses of alternative state codes, or null for any state
+         * @return this iterator
+         */
+        public PoolIterator<T> filter(long withTags, long withoutTags, int[][] stateClauses) {
+            this.withTags = withTags;
+            this.withoutTags = withoutTags;
+            this.stateClauses = stateClauses;
+            filtered = withTags != 0 || withoutTags != 0 || stateClauses != null;
+            return this;
+        }
+
+        // an unchanged chunk starts below any index, so that the iteration moves on to the next chunk
+        private int firstIndex(LinkedChunk<T> chunk) {
+            return changedSince < 0 || chunk.changedSince(changedSince, changedColumns) ? chunk.size() - 1 : -1;
+        }
+
         @SuppressWarnings("ConstantConditions")
         @Override
         public boolean hasNext() {
-            return next > -1
-                    ||
-                    (
+            do {
+                if (next >= floor && (filtered ? skipUnmatched() : currentChunk.tombstones == 0 || skipTombstones())) {
+                    return true;
+                }
+            } while (
+                    !bounded
+                            &&
                             currentChunk != null
-                                    &&
-                                    (currentChunk = currentChunk.next) != null
-                                    &&
-                                    !currentChunk.isEmpty()
-                                    &&
-                                    (next = begin = currentChunk.size() - 1) == begin
-                    );
+                            &&
+                            (currentChunk = currentChunk.next) != null
+                            &&
+                            !currentChunk.isEmpty()
+                            &&
+                            (next = begin = firstIndex(currentChunk)) == begin
+            );
+            return false;
+        }
+
+        private boolean skipTombstones() {
+            Item[] items = currentChunk.itemArray;
+            while (next >= floor && items[next] == null) {
+                next--;
+            }
+            return next >= floor;
+        }
+
+        // skips the tombstones and the items whose slots do not match the filters
+        private boolean skipUnmatched() {
+            Item[] items = currentChunk.itemArray;
+            while (next >= floor && (items[next] == null || !matches(items[next], next))) {
+                next--;
+            }
+            return next >= floor;
+        }
+
+        protected boolean matches(Item item, int idx) {
+            return currentChunk.matches(idx, withTags, withoutTags, stateClauses);
         }
 
         @SuppressWarnings({"unchecked"})
@@ -659,30 +1792,39 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
     // ALL-ENTITIES ITERATOR
 
     public static class PoolAllEntitiesIterator<T extends ChunkedPool.Item> extends PoolIterator<T> {
-        private final LinkedChunk<T>[] chunks;
+        private final ChunkedPool<T> pool;
         private int chunkIndex;
 
-        public PoolAllEntitiesIterator(LinkedChunk<T>[] chunks, int chunkIndex) {
-            super(chunks[chunkIndex], null);
-            this.chunks = chunks;
+        public PoolAllEntitiesIterator(ChunkedPool<T> pool, int chunkIndex) {
+            super(pool.chunkAt(chunkIndex), null);
+            this.pool = pool;
             this.chunkIndex = chunkIndex;
-            currentChunk = chunks[chunkIndex];
+            next = currentChunk == null ? -1 : currentChunk.size() - 1;
         }
 
-        @SuppressWarnings("ConstantConditions")
         @Override
         public boolean hasNext() {
-            return next > -1
-                    ||
-                    (
-                            chunkIndex > 0
-                                    &&
-                                    (currentChunk = chunks[--chunkIndex]) != null
-                                    &&
-                                    !currentChunk.isEmpty()
-                                    &&
-                                    (next = currentChunk.size() - 1) == next
-                    );
+            do {
+                while (next > -1) {
+                    if (currentChunk.itemArray[next] != null) {
+                        return true;
+                    }
+                    next--;
+                }
+            } while (nextChunk());
+            return false;
+        }
+
+        // released chunks leave holes in the directory and empty chunks can be followed by non-empty ones
+        private boolean nextChunk() {
+            while (chunkIndex > 0) {
+                currentChunk = pool.chunkAt(--chunkIndex);
+                if (currentChunk != null && !currentChunk.isEmpty()) {
+                    next = currentChunk.size() - 1;
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
@@ -749,6 +1891,12 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             super(currentChunk, idSchema);
         }
 
+        // the tag bits of a state item are kept in its data chunk
+        @Override
+        protected boolean matches(Item item, int idx) {
+            return item.getChunk().matches(idSchema.fetchObjectId(item.getId()), withTags, withoutTags, stateClauses);
+        }
+
         public Object next(PoolIteratorNextWith1 nextWith1, int i1) {
             var item = currentChunk.itemArray[next];
             var itemChunk = item.getChunk();
@@ -880,4 +2028,56 @@ public final class ChunkedPool<T extends ChunkedPool.Item> implements AutoClosea
             return null;
         }
     }
+
+
+    // FLAT-DATA ITERATORS
+
+    public static class PoolFlatDataIterator<T extends Item> extends PoolDataIterator<T> {
+        public PoolFlatDataIterator(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public Object data(int i) {
+            return currentChunk.readData(i, next);
+        }
+    }
+
+    public static class PoolFlatDataIteratorWithState<T extends Item> extends PoolDataIterator<T> {
+        public PoolFlatDataIteratorWithState(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public Object data(int i) {
+            var item = currentChunk.itemArray[next];
+            var itemChunk = item.getChunk();
+            var itemIdx = idSchema.fetchObjectId(item.getId());
+            return itemChunk.readData(i, itemIdx);
+        }
+    }
+
+    public static final class PoolFlatDataNoItemIterator<T extends Item> extends PoolFlatDataIterator<T> {
+        public PoolFlatDataNoItemIterator(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public T next() {
+            next--;
+            return null;
+        }
+    }
+
+    public static final class PoolFlatDataNoItemIteratorWithState<T extends Item> extends PoolFlatDataIteratorWithState<T> {
+        public PoolFlatDataNoItemIteratorWithState(LinkedChunk<T> currentChunk, IdSchema idSchema) {
+            super(currentChunk, idSchema);
+        }
+
+        @Override
+        public T next() {
+            next--;
+            return null;
+        }
+    }
 }
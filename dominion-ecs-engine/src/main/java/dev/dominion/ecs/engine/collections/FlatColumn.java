@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.collections;
+
+import dev.dominion.ecs.engine.system.FlatLayout;
+import dev.dominion.ecs.engine.system.UnsafeFactory;
+import sun.misc.Unsafe;
+
+import java.util.Arrays;
+
+/**
+ * The FlatColumn class keeps the fields of a flat component type in primitive storage, so that a chunk stores the
+ * component values instead of object references. The {@link Heap} column is a struct-of-arrays with one primitive
+ * array per field, the {@link OffHeap} column is a native memory block of fixed-size structs.
+ */
+public abstract class FlatColumn implements AutoCloseable {
+    private static final String[] KIND_NAMES = {"int", "long", "float", "double"};
+    protected final FlatLayout layout;
+    protected final int[] slots;
+
+    protected FlatColumn(FlatLayout layout) {
+        this.layout = layout;
+        this.slots = layout.getSlots();
+    }
+
+    public static FlatColumn create(FlatLayout layout, int capacity) {
+        return layout.isOffHeap() ? new OffHeap(layout, capacity) : new Heap(layout, capacity);
+    }
+
+    public FlatLayout getLayout() {
+        return layout;
+    }
+
+    public abstract int getInt(int field, int idx);
+
+    public abstract long getLong(int field, int idx);
+
+    public abstract float getFloat(int field, int idx);
+
+    public abstract double getDouble(int field, int idx);
+
+    public abstract void setInt(int field, int idx, int value);
+
+    public abstract void setLong(int field, int idx, long value);
+
+    public abstract void setFloat(int field, int idx, float value);
+
+    public abstract void setDouble(int field, int idx, double value);
+
+    public int[] intArray(int field) {
+        checkKind(field, FlatLayout.INT);
+        throw new UnsupportedOperationException(this + " is not backed by arrays");
+    }
+
+    public long[] longArray(int field) {
+        checkKind(field, FlatLayout.LONG);
+        throw new UnsupportedOperationException(this + " is not backed by arrays");
+    }
+
+    public float[] floatArray(int field) {
+        checkKind(field, FlatLayout.FLOAT);
+        throw new UnsupportedOperationException(this + " is not backed by arrays");
+    }
+
+    public double[] doubleArray(int field) {
+        checkKind(field, FlatLayout.DOUBLE);
+        throw new UnsupportedOperationException(this + " is not backed by arrays");
+    }
+
+    protected void checkKind(int field, int kind) {
+        if (field < 0 || field >= slots.length || layout.kind(field) != kind) {
+            throw new IllegalArgumentException("Field " + field + " of " + layout.getType().getName()
+                    + " is not a " + KIND_NAMES[kind] + " field");
+        }
+    }
+
+    public void write(int idx, Object component) {
+        for (int field = 0; field < slots.length; field++) {
+            switch (layout.kind(field)) {
+                case FlatLayout.INT -> setInt(field, idx, layout.readInt(component, field));
+                case FlatLayout.LONG -> setLong(field, idx, layout.readLong(component, field));
+                case FlatLayout.FLOAT -> setFloat(field, idx, layout.readFloat(component, field));
+                default -> setDouble(field, idx, layout.readDouble(component, field));
+            }
+        }
+    }
+
+    public Object read(int idx) {
+        Object[] values = new Object[slots.length];
+        for (int field = 0; field < slots.length; field++) {
+            values[field] = switch (layout.kind(field)) {
+                case FlatLayout.INT -> getInt(field, idx);
+                case FlatLayout.LONG -> getLong(field, idx);
+                case FlatLayout.FLOAT -> getFloat(field, idx);
+                default -> getDouble(field, idx);
+            };
+        }
+        return layout.newInstance(values);
+    }
+
+    public void move(int fromIdx, int toIdx) {
+        copy(this, fromIdx, toIdx);
+    }
+
+    public abstract void resize(int capacity);
+
+    public void copy(FlatColumn from, int fromIdx, int toIdx) {
+        for (int field = 0; field < slots.length; field++) {
+            switch (layout.kind(field)) {
+                case FlatLayout.INT -> setInt(field, toIdx, from.getInt(field, fromIdx));
+                case FlatLayout.LONG -> setLong(field, toIdx, from.getLong(field, fromIdx));
+                case FlatLayout.FLOAT -> setFloat(field, toIdx, from.getFloat(field, fromIdx));
+                default -> setDouble(field, toIdx, from.getDouble(field, fromIdx));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public static final class Heap extends FlatColumn {
+        private final int[][] ints;
+        private final long[][] longs;
+        private final float[][] floats;
+        private final double[][] doubles;
+
+        public Heap(FlatLayout layout, int capacity) {
+            super(layout);
+            ints = new int[layout.kindCount(FlatLayout.INT)][capacity];
+            longs = new long[layout.kindCount(FlatLayout.LONG)][capacity];
+            floats = new float[layout.kindCount(FlatLayout.FLOAT)][capacity];
+            doubles = new double[layout.kindCount(FlatLayout.DOUBLE)][capacity];
+        }
+
+        @Override
+        public int getInt(int field, int idx) {
+            return ints[slots[field]][idx];
+        }
+
+        @Override
+        public long getLong(int field, int idx) {
+            return longs[slots[field]][idx];
+        }
+
+        @Override
+        public float getFloat(int field, int idx) {
+            return floats[slots[field]][idx];
+        }
+
+        @Override
+        public double getDouble(int field, int idx) {
+            return doubles[slots[field]][idx];
+        }
+
+        @Override
+        public void setInt(int field, int idx, int value) {
+            ints[slots[field]][idx] = value;
+        }
+
+        @Override
+        public void setLong(int field, int idx, long value) {
+            longs[slots[field]][idx] = value;
+        }
+
+        @Override
+        public void setFloat(int field, int idx, float value) {
+            floats[slots[field]][idx] = value;
+        }
+
+        @Override
+        public void setDouble(int field, int idx, double value) {
+            doubles[slots[field]][idx] = value;
+        }
+
+        @Override
+        public int[] intArray(int field) {
+            checkKind(field, FlatLayout.INT);
+            return ints[slots[field]];
+        }
+
+        @Override
+        public long[] longArray(int field) {
+            checkKind(field, FlatLayout.LONG);
+            return longs[slots[field]];
+        }
+
+        @Override
+        public float[] floatArray(int field) {
+            checkKind(field, FlatLayout.FLOAT);
+            return floats[slots[field]];
+        }
+
+        @Override
+        public double[] doubleArray(int field) {
+            checkKind(field, FlatLayout.DOUBLE);
+            return doubles[slots[field]];
+        }
+
+        @Override
+        public void resize(int capacity) {
+            for (int i = 0; i < ints.length; i++) ints[i] = Arrays.copyOf(ints[i], capacity);
+            for (int i = 0; i < longs.length; i++) longs[i] = Arrays.copyOf(longs[i], capacity);
+            for (int i = 0; i < floats.length; i++) floats[i] = Arrays.copyOf(floats[i], capacity);
+            for (int i = 0; i < doubles.length; i++) doubles[i] = Arrays.copyOf(doubles[i], capacity);
+        }
+
+        @Override
+        public void move(int fromIdx, int toIdx) {
+            for (int[] array : ints) array[toIdx] = array[fromIdx];
+            for (long[] array : longs) array[toIdx] = array[fromIdx];
+            for (float[] array : floats) array[toIdx] = array[fromIdx];
+            for (double[] array : doubles) array[toIdx] = array[fromIdx];
+        }
+
+        @Override
+        public String toString() {
+            return "FlatColumn.Heap={"
+                    + "type=" + layout.getType().getName()
+                    + '}';
+        }
+    }
+
+    public static final class OffHeap extends FlatColumn {
+        private static final Unsafe unsafe = UnsafeFactory.INSTANCE;
+        private final int[] offsets;
+        private final int structSize;
+        private long capacity;
+        private long address;
+
+        public OffHeap(FlatLayout layout, int capacity) {
+            super(layout);
+            offsets = layout.getOffsets();
+            structSize = layout.structSize();
+            this.capacity = (long) capacity * structSize;
+            address = unsafe.allocateMemory(this.capacity);
+            unsafe.setMemory(address, this.capacity, (byte) 0);
+        }
+
+        // every typed accessor goes through the closed check, so that a view kept past the release of the column
+        // throws instead of touching freed memory
+        private long fieldAddress(int field, int idx) {
+            checkState();
+            return address + (long) idx * structSize + offsets[field];
+        }
+
+        @Override
+        public int getInt(int field, int idx) {
+            return unsafe.getInt(fieldAddress(field, idx));
+        }
+
+        @Override
+        public long getLong(int field, int idx) {
+            return unsafe.getLong(fieldAddress(field, idx));
+        }
+
+        @Override
+        public float getFloat(int field, int idx) {
+            return unsafe.getFloat(fieldAddress(field, idx));
+        }
+
+        @Override
+        public double getDouble(int field, int idx) {
+            return unsafe.getDouble(fieldAddress(field, idx));
+        }
+
+        @Override
+        public void setInt(int field, int idx, int value) {
+            unsafe.putInt(fieldAddress(field, idx), value);
+        }
+
+        @Override
+        public void setLong(int field, int idx, long value) {
+            unsafe.putLong(fieldAddress(field, idx), value);
+        }
+
+        @Override
+        public void setFloat(int field, int idx, float value) {
+            unsafe.putFloat(fieldAddress(field, idx), value);
+        }
+
+        @Override
+        public void setDouble(int field, int idx, double value) {
+            unsafe.putDouble(fieldAddress(field, idx), value);
+        }
+
+        @Override
+        public void write(int idx, Object component) {
+            checkState();
+            super.write(idx, component);
+        }
+
+        @Override
+        public Object read(int idx) {
+            checkState();
+            return super.read(idx);
+        }
+
+        @Override
+        public void resize(int capacity) {
+            checkState();
+            long newCapacity = (long) capacity * structSize;
+            address = unsafe.reallocateMemory(address, newCapacity);
+            if (newCapacity > this.capacity) {
+                unsafe.setMemory(address + this.capacity, newCapacity - this.capacity, (byte) 0);
+            }
+            this.capacity = newCapacity;
+        }
+
+        private void checkState() {
+            if (address == 0) throw new IllegalStateException(this + " has already been closed.");
+        }
+
+        @Override
+        public void move(int fromIdx, int toIdx) {
+            checkState();
+            unsafe.copyMemory(address + (long) fromIdx * structSize, address + (long) toIdx * structSize, structSize);
+        }
+
+        @Override
+        public void copy(FlatColumn from, int fromIdx, int toIdx) {
+            if (from instanceof OffHeap offHeap) {
+                checkState();
+                offHeap.checkState();
+                unsafe.copyMemory(offHeap.address + (long) fromIdx * structSize, address + (long) toIdx * structSize, structSize);
+                return;
+            }
+            super.copy(from, fromIdx, toIdx);
+        }
+
+        @Override
+        public void close() {
+            if (address != 0) {
+                unsafe.freeMemory(address);
+                address = 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "FlatColumn.OffHeap={"
+                    + "type=" + layout.getType().getName()
+                    + ", capacity=" + capacity + "|off-heap"
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.collections;
+
+import dev.dominion.ecs.api.Sparse;
+
+import java.util.Arrays;
+
+/**
+ * The SparseSet class stores the values of a {@link Sparse} component type outside the chunks of the compositions.
+ * A paged sparse array maps the key of each item to its position in dense arrays of items and values, so that putting,
+ * getting and removing a value are O(1) and never move the item to another composition. Removing a value swaps the
+ * last dense entry into its position.
+ * Keys are reused by other items after a release: an item is only found if it is the one stored at the key position.
+ *
+ * @param <T> the type of the items
+ */
+public final class SparseSet<T> {
+    public static final int PAGE_BIT = 12;
+    private static final int PAGE_MASK = (1 << PAGE_BIT) - 1;
+    private static final ClassValue<Boolean> sparseTypes = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(Sparse.class);
+        }
+    };
+    private final Class<?> type;
+    // the dense position of each key plus one, 0 if the key is not in the set
+    private int[][] pages = new int[1][];
+    private Object[] items = new Object[16];
+    private Object[] values = new Object[16];
+    private int[] keys = new int[16];
+    private int size;
+
+    public SparseSet(Class<?> type) {
+        this.type = type;
+    }
+
+    public static boolean isSparse(Class<?> type) {
+        return sparseTypes.get(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    private int position(int key, Object item) {
+        int pageIndex = key >>> PAGE_BIT;
+        int[] page;
+        if (pageIndex >= pages.length || (page = pages[pageIndex]) == null) {
+            return -1;
+        }
+        int position = page[key & PAGE_MASK] - 1;
+        return position > -1 && items[position] == item ? position : -1;
+    }
+
+    /**
+     * Puts the value of the item with the given key, replacing the previous one if any.
+     *
+     * @param key   the key of the item, not negative
+     * @param item  the item
+     * @param value the value
+     * @return the previous value of the item, or null
+     */
+    public synchronized Object put(int key, T item, Object value) {
+        int position = position(key, item);
+        if (position > -1) {
+            Object previous = values[position];
+            values[position] = value;
+            return previous;
+        }
+        int pageIndex = key >>> PAGE_BIT;
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length << 1));
+        }
+        int[] page = pages[pageIndex];
+        if (page == null) {
+            pages[pageIndex] = page = new int[1 << PAGE_BIT];
+        }
+        if (size == items.length) {
+            int capacity = size << 1;
+            items = Arrays.copyOf(items, capacity);
+            values = Arrays.copyOf(values, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        items[size] = item;
+        values[size] = value;
+        keys[size] = key;
+        page[key & PAGE_MASK] = ++size;
+        return null;
+    }
+
+    /**
+     * Removes the value of the item with the given key.
+     *
+     * @param key  the key of the item
+     * @param item the item
+     * @return the removed value, or null if the item is not in the set
+     */
+    public synchronized Object remove(int key, T item) {
+        int position = position(key, item);
+        if (position < 0) {
+            return null;
+        }
+        Object removed = values[position];
+        int last = --size;
+        if (position != last) {
+            items[position] = items[last];
+            values[position] = values[last];
+            keys[position] = keys[last];
+            pages[keys[position] >>> PAGE_BIT][keys[position] & PAGE_MASK] = position + 1;
+        }
+        items[last] = null;
+        values[last] = null;
+        pages[key >>> PAGE_BIT][key & PAGE_MASK] = 0;
+        return removed;
+    }
+
+    public synchronized Object get(int key, T item) {
+        int position = position(key, item);
+        return position > -1 ? values[position] : null;
+    }
+
+    public synchronized boolean contains(int key, T item) {
+        return position(key, item) > -1;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Provides a snapshot of the items in the set, in dense order.
+     *
+     * @return the items
+     */
+    public synchronized Object[] items() {
+        return Arrays.copyOf(items, size);
+    }
+
+    @Override
+    public String toString() {
+        return "SparseSet={"
+                + "type=" + type.getSimpleName()
+                + ", size=" + size()
+                + '}';
+    }
+}
@@ -16,6 +16,10 @@ public final class Config {
     public static final String CLASS_INDEX_BIT = "class-index-bit";
     public static final String CHUNK_BIT = "chunk-bit";
     public static final String SYSTEM_TIMEOUT_SECONDS = "system-timeout-seconds";
+    public static final String CHUNK_ALLOCATION = "chunk-allocation";
+    public static final String DELETION_MODE = "deletion-mode";
+    public static final String STATE_MODE = "state-mode";
+    public static final String CREATION_MODE = "creation-mode";
     public static final int DEFAULT_SYSTEM_TIMEOUT_SECONDS = 3;
 
     public static boolean showBanner() {
@@ -33,6 +37,26 @@ public final class Config {
         return Optional.ofNullable(sizeStr != null ? DominionSize.valueOf(sizeStr.toUpperCase()) : null);
     }
 
+    public static Optional<ChunkAllocation> fetchChunkAllocation(String name) {
+        String allocationStr = System.getProperty(getPropertyName(name, CHUNK_ALLOCATION));
+        return Optional.ofNullable(allocationStr != null ? ChunkAllocation.valueOf(allocationStr.toUpperCase()) : null);
+    }
+
+    public static Optional<DeletionMode> fetchDeletionMode(String name) {
+        String modeStr = System.getProperty(getPropertyName(name, DELETION_MODE));
+        return Optional.ofNullable(modeStr != null ? DeletionMode.valueOf(modeStr.toUpperCase()) : null);
+    }
+
+    public static Optional<StateMode> fetchStateMode(String name) {
+        String modeStr = System.getProperty(getPropertyName(name, STATE_MODE));
+        return Optional.ofNullable(modeStr != null ? StateMode.valueOf(modeStr.toUpperCase()) : null);
+    }
+
+    public static Optional<CreationMode> fetchCreationMode(String name) {
+        String modeStr = System.getProperty(getPropertyName(name, CREATION_MODE));
+        return Optional.ofNullable(modeStr != null ? CreationMode.valueOf(modeStr.toUpperCase()) : null);
+    }
+
     public static boolean logCaller() {
         String callerStr = System.getProperty(getPropertyName(LOGGING_CALLER));
         return callerStr != null && callerStr.equals("true");
@@ -86,4 +110,68 @@ public final class Config {
                     '}';
         }
     }
+
+    public enum ChunkAllocation {
+        EAGER("Every chunk is allocated with its full capacity"),
+        LAZY("The first chunk of each composition starts small and grows up to its full capacity");
+
+        private final String note;
+
+        ChunkAllocation(String note) {
+            this.note = note;
+        }
+
+        @Override
+        public String toString() {
+            return name() + " - " + note;
+        }
+    }
+
+    public enum StateMode {
+        TENANT("The entities with a state are registered in a state tenant of their composition"),
+        COLUMN("The state of an entity is a code in a column of its chunk, filtered in place by the chunk scans");
+
+        private final String note;
+
+        StateMode(String note) {
+            this.note = note;
+        }
+
+        @Override
+        public String toString() {
+            return name() + " - " + note;
+        }
+    }
+
+    public enum CreationMode {
+        LOCK_FREE("An entity is created by bumping the index of the current chunk, the locks are only taken to change the chunks"),
+        SYNCHRONIZED("Every entity is created under the lock of its tenant");
+
+        private final String note;
+
+        CreationMode(String note) {
+            this.note = note;
+        }
+
+        @Override
+        public String toString() {
+            return name() + " - " + note;
+        }
+    }
+
+    public enum DeletionMode {
+        IMMEDIATE("A deleted entity is replaced at once by the last entity of its chunk"),
+        DEFERRED("A deleted entity leaves a tombstone until the chunks are compacted at the end of a tick");
+
+        private final String note;
+
+        DeletionMode(String note) {
+            this.note = note;
+        }
+
+        @Override
+        public String toString() {
+            return name() + " - " + note;
+        }
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.system;
+
+import dev.dominion.ecs.api.Flat;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InaccessibleObjectException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+
+/**
+ * The FlatLayout class describes how the fields of a {@link Flat} record are laid out in primitive columns.
+ * Each field has a kind (int, long, float or double) and a slot, the position of the field among the fields of the
+ * same kind. Off-heap layouts also have a fixed-size struct, where each field is placed at a naturally aligned
+ * offset. Layouts are computed once per type and cached.
+ */
+public final class FlatLayout {
+    public static final int INT = 0;
+    public static final int LONG = 1;
+    public static final int FLOAT = 2;
+    public static final int DOUBLE = 3;
+    private static final FlatLayout NONE = new FlatLayout();
+    private static final ClassValue<FlatLayout> layouts = new ClassValue<>() {
+        @Override
+        protected FlatLayout computeValue(Class<?> type) {
+            return type.isAnnotationPresent(Flat.class) ? new FlatLayout(type) : NONE;
+        }
+    };
+    private final Class<?> type;
+    private final int[] kinds;
+    private final int[] slots;
+    private final int[] kindCounts = new int[4];
+    private final int[] offsets;
+    private final int structSize;
+    private final boolean offHeap;
+    private final MethodHandle[] accessors;
+    private final MethodHandle constructor;
+
+    private FlatLayout() {
+        type = null;
+        kinds = slots = offsets = null;
+        structSize = 0;
+        offHeap = false;
+        accessors = null;
+        constructor = null;
+    }
+
+    private FlatLayout(Class<?> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(type.getName() + " is annotated as @Flat but it is not a record");
+        }
+        this.type = type;
+        offHeap = type.getAnnotation(Flat.class).offHeap();
+        RecordComponent[] components = type.getRecordComponents();
+        kinds = new int[components.length];
+        slots = new int[components.length];
+        offsets = new int[components.length];
+        accessors = new MethodHandle[components.length];
+        Class<?>[] parameterTypes = new Class<?>[components.length];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (int i = 0; i < components.length; i++) {
+                RecordComponent component = components[i];
+                Class<?> fieldType = component.getType();
+                int kind = fieldType == int.class ? INT :
+                        fieldType == long.class ? LONG :
+                                fieldType == float.class ? FLOAT :
+                                        fieldType == double.class ? DOUBLE : -1;
+                if (kind < 0) {
+                    throw new IllegalArgumentException(type.getName() + "." + component.getName()
+                            + " must be an int, long, float or double field to be @Flat");
+                }
+                kinds[i] = kind;
+                slots[i] = kindCounts[kind]++;
+                Method accessor = component.getAccessor();
+                accessor.setAccessible(true);
+                accessors[i] = lookup.unreflect(accessor)
+                        .asType(MethodType.methodType(fieldType, Object.class));
+                parameterTypes[i] = fieldType;
+            }
+            Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+            canonical.setAccessible(true);
+            constructor = lookup.unreflectConstructor(canonical)
+                    .asType(MethodType.genericMethodType(components.length))
+                    .asSpreader(Object[].class, components.length);
+        } catch (ReflectiveOperationException | InaccessibleObjectException e) {
+            throw new IllegalArgumentException("Cannot access the @Flat record " + type.getName(), e);
+        }
+        // 8-byte fields first, then 4-byte fields: every offset stays naturally aligned
+        int offset = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            if (kindBytes(kinds[i]) == 8) {
+                offsets[i] = offset;
+                offset += 8;
+            }
+        }
+        for (int i = 0; i < kinds.length; i++) {
+            if (kindBytes(kinds[i]) == 4) {
+                offsets[i] = offset;
+                offset += 4;
+            }
+        }
+        structSize = kindCounts[LONG] + kindCounts[DOUBLE] > 0 ? (offset + 7) & ~7 : Math.max(4, offset);
+    }
+
+    private static int kindBytes(int kind) {
+        return kind == LONG || kind == DOUBLE ? 8 : 4;
+    }
+
+    /**
+     * Provides the layout of a component type.
+     *
+     * @param type the component type
+     * @return the layout or null if the type is not a {@link Flat} component
+     */
+    public static FlatLayout of(Class<?> type) {
+        FlatLayout layout = layouts.get(type);
+        return layout == NONE ? null : layout;
+    }
+
+    /**
+     * Provides the layouts of the given component types.
+     *
+     * @param componentTypes the component types
+     * @return the layouts, null for each non-flat type, or null if there is no flat type at all
+     */
+    public static FlatLayout[] of(Class<?>[] componentTypes) {
+        FlatLayout[] flatLayouts = null;
+        for (int i = 0; i < componentTypes.length; i++) {
+            FlatLayout layout = of(componentTypes[i]);
+            if (layout != null) {
+                if (flatLayouts == null) {
+                    flatLayouts = new FlatLayout[componentTypes.length];
+                }
+                flatLayouts[i] = layout;
+            }
+        }
+        return flatLayouts;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public int fieldCount() {
+        return kinds.length;
+    }
+
+    public int kind(int field) {
+        return kinds[field];
+    }
+
+    public int slot(int field) {
+        return slots[field];
+    }
+
+    public int[] getSlots() {
+        return slots;
+    }
+
+    public int kindCount(int kind) {
+        return kindCounts[kind];
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int structSize() {
+        return structSize;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public int readInt(Object component, int field) {
+        try {
+            return (int) accessors[field].invokeExact(component);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long readLong(Object component, int field) {
+        try {
+            return (long) accessors[field].invokeExact(component);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public float readFloat(Object component, int field) {
+        try {
+            return (float) accessors[field].invokeExact(component);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public double readDouble(Object component, int field) {
+        try {
+            return (double) accessors[field].invokeExact(component);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Object newInstance(Object[] values) {
+        try {
+            return constructor.invokeExact(values);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FlatLayout={"
+                + "type=" + (type == null ? null : type.getName())
+                + ", kinds=" + Arrays.toString(kinds)
+                + (offHeap ? ", structSize=" + structSize + "|off-heap" : "")
+                + '}';
+    }
+}
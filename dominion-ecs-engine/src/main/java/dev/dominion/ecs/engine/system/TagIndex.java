@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.engine.system;
+
+import dev.dominion.ecs.api.Tag;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The TagIndex class assigns a bit to each {@link Tag} component type of a Dominion, so that the tags of an entity fit
+ * in a single long word stored in its chunk slot. Bits are assigned on first use and never reused; the first instance
+ * added for a tag type is kept to be returned by the entities with the tag.
+ */
+public final class TagIndex {
+    public static final int MAX_TAGS = Long.SIZE;
+    private static final ClassValue<Boolean> tagTypes = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(Tag.class);
+        }
+    };
+    private final Map<Class<?>, Integer> bits = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Object> instances = new ConcurrentHashMap<>();
+    private int size;
+
+    public static boolean isTag(Class<?> type) {
+        return tagTypes.get(type);
+    }
+
+    // the bit of a tag type that has never been added is unknown: no entity has the tag
+    public int getBit(Class<?> type) {
+        Integer bit = bits.get(type);
+        return bit == null ? -1 : bit;
+    }
+
+    public int fetchBit(Class<?> type) {
+        Integer bit = bits.get(type);
+        return bit == null ? assignBit(type) : bit;
+    }
+
+    private synchronized int assignBit(Class<?> type) {
+        Integer bit = bits.get(type);
+        if (bit != null) {
+            return bit;
+        }
+        for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                throw new IllegalArgumentException(type.getName() + " is a @Tag component type with fields: tags have no state");
+            }
+        }
+        if (size == MAX_TAGS) {
+            throw new IllegalStateException("Unable to add " + type.getName() + " : a Dominion supports up to " + MAX_TAGS + " @Tag component types");
+        }
+        bits.put(type, size);
+        return size++;
+    }
+
+    // the mask of the given tag types, assigning a bit to the types that have never been added
+    public long getMask(Class<?>... types) {
+        long mask = 0;
+        for (Class<?> type : types) {
+            mask |= 1L << fetchBit(type);
+        }
+        return mask;
+    }
+
+    public void putInstance(Object tag) {
+        instances.putIfAbsent(tag.getClass(), tag);
+    }
+
+    public Object getInstance(Class<?> type) {
+        return instances.get(type);
+    }
+}
@@ -36,5 +36,13 @@ public class UncheckedUpdater<T> {
         public boolean compareAndSet(T obj, int expect, int update) {
             return unsafe.compareAndSwapInt(obj, offset, expect, update);
         }
+
+        public int getVolatile(T obj) {
+            return unsafe.getIntVolatile(obj, offset);
+        }
+
+        public int getAndAdd(T obj, int delta) {
+            return unsafe.getAndAddInt(obj, offset, delta);
+        }
     }
 }
@@ -3,18 +3,34 @@ package dev.dominion.ecs.test.engine;
 import dev.dominion.ecs.api.Composition;
 import dev.dominion.ecs.api.Dominion;
 import dev.dominion.ecs.api.Entity;
+import dev.dominion.ecs.api.Flat;
+import dev.dominion.ecs.api.Results;
+import dev.dominion.ecs.api.Sparse;
+import dev.dominion.ecs.api.Tag;
 import dev.dominion.ecs.engine.EntityRepository;
 import dev.dominion.ecs.engine.IntEntity;
 import dev.dominion.ecs.engine.collections.ChunkedPool;
+import dev.dominion.ecs.engine.system.Config;
+import dev.dominion.ecs.engine.system.Logging;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 class EntityRepositoryTest {
 
@@ -51,6 +67,95 @@ class EntityRepositoryTest {
         Assertions.assertEquals(capacity, count.get());
     }
 
+    @Test
+    public void concurrentCreateEntitySynchronized() throws InterruptedException {
+        EntityRepository entityRepository = new EntityRepository("stress-test",
+                Config.DominionSize.MEDIUM.classIndexBit(), Config.DominionSize.MEDIUM.chunkBit(),
+                Config.ChunkAllocation.EAGER, Config.DeletionMode.IMMEDIATE, Config.StateMode.TENANT,
+                Config.CreationMode.SYNCHRONIZED, Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Logging.Context.TEST);
+        final int capacity = 1 << 18;
+        final ExecutorService pool = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < capacity; i++) {
+            pool.execute(() -> entityRepository.createEntity(new C1(0), new C2(0)));
+        }
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(capacity, entityRepository.findEntitiesWith(C1.class).stream().count());
+        Assertions.assertEquals(capacity, entityRepository.getCompositionRepository().getEntityTable().size());
+        entityRepository.close();
+    }
+
+    @Test
+    public void concurrentCreateAndDeleteEntity() throws InterruptedException {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("stress-test");
+        final int capacity = 1 << 18;
+        final ExecutorService pool = Executors.newFixedThreadPool(10);
+        for (int i = 0; i < capacity; i++) {
+            int idx = i;
+            pool.execute(() -> {
+                Entity entity = entityRepository.createEntity(new C1(idx), new C2(idx));
+                if ((idx & 1) == 1) {
+                    entityRepository.deleteEntity(entity);
+                }
+            });
+        }
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        var ids = new HashSet<Integer>();
+        for (var rs : entityRepository.findEntitiesWith(C1.class, C2.class)) {
+            Assertions.assertEquals(0, rs.comp1().id() & 1);
+            Assertions.assertEquals(rs.comp1().id(), rs.comp2().id());
+            IntEntity entity = (IntEntity) rs.entity();
+            Assertions.assertSame(entity, entity.getChunk().getTenant().getPool().getEntry(entity.getId()));
+            Assertions.assertTrue(ids.add(rs.comp1().id()));
+        }
+        Assertions.assertEquals(capacity >>> 1, ids.size());
+    }
+
+    @Test
+    void deferredDeletion() {
+        EntityRepository entityRepository = new EntityRepository("test", Config.DominionSize.MEDIUM.classIndexBit(),
+                Config.DominionSize.MEDIUM.chunkBit(), Config.ChunkAllocation.EAGER, Config.DeletionMode.DEFERRED,
+                Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Logging.Context.TEST);
+        IntEntity[] entities = new IntEntity[10];
+        int[] ids = new int[entities.length];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = (IntEntity) entityRepository.createEntity(new C1(i), new C2(i));
+            ids[i] = entities[i].getId();
+        }
+        // deleting while iterating neither moves the other entities nor stops the iteration
+        int visited = 0;
+        for (var rs : entityRepository.findEntitiesWith(C1.class, C2.class)) {
+            if (rs.comp1().id() % 2 == 0) {
+                Assertions.assertTrue(entityRepository.deleteEntity(rs.entity()));
+            }
+            visited++;
+        }
+        Assertions.assertEquals(entities.length, visited);
+        for (int i = 1; i < entities.length; i += 2) {
+            Assertions.assertEquals(ids[i], entities[i].getId());
+        }
+        Assertions.assertEquals(entities.length / 2, entityRepository.findEntitiesWith(C1.class).stream().count());
+        AtomicInteger count = new AtomicInteger();
+        entityRepository.findEntitiesWith(C1.class, C2.class).forEach((c1, c2, entity) -> {
+            Assertions.assertNotNull(entity);
+            count.incrementAndGet();
+        });
+        Assertions.assertEquals(entities.length / 2, count.get());
+        Assertions.assertEquals(entities.length / 2, entityRepository.compact());
+        Assertions.assertEquals(0, entityRepository.compact());
+        var found = entityRepository.findEntitiesWith(C1.class, C2.class).stream().toList();
+        Assertions.assertEquals(entities.length / 2, found.size());
+        for (var rs : found) {
+            IntEntity entity = (IntEntity) rs.entity();
+            Assertions.assertEquals(1, rs.comp1().id() % 2);
+            Assertions.assertEquals(rs.comp1(), entity.get(C1.class));
+            Assertions.assertSame(entity, entity.getChunk().getTenant().getPool().getEntry(entity.getId()));
+            Assertions.assertSame(entity, entityRepository.getEntity(entity.getHandle()));
+        }
+    }
+
     @Test
     void createAndDeleteEntityBulk() {
         int capacity = 1_000_000;
@@ -128,6 +233,59 @@ class EntityRepositoryTest {
         Assertions.assertArrayEquals(new Object[]{c1, c2}, entity2.getComponentArray());
     }
 
+    @Test
+    void createPreparedEntities() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Composition.Of2<C2, C1> ofC2C1 = entityRepository.composition().of(C2.class, C1.class);
+        IntEntity first = (IntEntity) entityRepository.createPreparedEntity(ofC2C1.withValue(new C2(-1), new C1(-1)));
+        final int count = 10_000;
+        Entity[] entities = entityRepository.createPreparedEntities(count, i -> ofC2C1.withValue(new C2(i), new C1(i)));
+        Assertions.assertEquals(count, entities.length);
+        for (int i = 0; i < count; i++) {
+            IntEntity entity = (IntEntity) entities[i];
+            Assertions.assertEquals(entity.getChunk().getTenant().getPool().getEntry(entity.getId()), entity);
+            Assertions.assertEquals(new C1(i), entity.get(C1.class));
+            Assertions.assertEquals(new C2(i), entity.get(C2.class));
+            Assertions.assertEquals(entity, entityRepository.getEntity(entity.getHandle()));
+        }
+        Assertions.assertEquals(first.getChunk(), ((IntEntity) entities[0]).getChunk());
+        Assertions.assertNotEquals(first.getChunk(), ((IntEntity) entities[count - 1]).getChunk());
+
+        // single creations and deletions go on from the range end
+        IntEntity next = (IntEntity) entityRepository.createEntity(new C1(count), new C2(count));
+        Assertions.assertEquals(((IntEntity) entities[count - 1]).getChunk(), next.getChunk());
+        entityRepository.deleteEntity(entities[0]);
+        Assertions.assertEquals(count + 1, entityRepository.findEntitiesWith(C1.class, C2.class).stream().count());
+        Assertions.assertEquals(count + 1, entityRepository.findEntitiesWith(C1.class).stream()
+                .map(rs -> rs.comp().id()).distinct().count());
+
+        Assertions.assertEquals(0, entityRepository.createPreparedEntities(0, i -> null).length);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> entityRepository.createPreparedEntities(-1, i -> null));
+        Composition.Of1<C1> ofC1 = entityRepository.composition().of(C1.class);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> entityRepository.createPreparedEntities(2, i -> i == 0 ? ofC1.withValue(new C1(0)) :
+                        ofC2C1.withValue(new C2(0), new C1(0))));
+    }
+
+    @Test
+    void createPreparedFlatEntities() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Composition.Of3<P, C1, S> composition = entityRepository.composition().of(P.class, C1.class, S.class);
+        final int count = 5_000;
+        entityRepository.createPreparedEntities(count,
+                i -> composition.withValue(new P(i, -i), new C1(i), new S(i, i, i, i)));
+        var sum = new AtomicInteger();
+        entityRepository.findEntitiesWith(P.class, C1.class, S.class).forEach((p, c1, s, entity) -> {
+            Assertions.assertEquals(c1.id(), (int) p.x());
+            Assertions.assertEquals(-c1.id(), (int) p.y());
+            Assertions.assertEquals(c1.id(), s.i());
+            sum.addAndGet(c1.id());
+        });
+        Assertions.assertEquals(count * (count - 1) / 2, sum.get());
+        entityRepository.close();
+    }
+
     @Test
     void createEntityAs() {
         EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
@@ -155,6 +313,554 @@ class EntityRepositoryTest {
         Assertions.assertNull(entity.getStateChunk());
     }
 
+    @Test
+    void getEntityByHandle() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity = (IntEntity) entityRepository.createEntity(new C1(0));
+        long handle = entity.getHandle();
+        Assertions.assertNotEquals(0, handle);
+        Assertions.assertEquals(entity, entityRepository.getEntity(handle));
+
+        entity.add(new C2(0));
+        entity.setEnabled(false);
+        Assertions.assertEquals(handle, entity.getHandle());
+        Assertions.assertEquals(entity, entityRepository.getEntity(handle));
+
+        entityRepository.deleteEntity(entity);
+        Assertions.assertNull(entityRepository.getEntity(handle));
+        IntEntity reused = (IntEntity) entityRepository.createEntity(new C1(1));
+        Assertions.assertNotEquals(handle, reused.getHandle());
+        Assertions.assertNull(entityRepository.getEntity(handle));
+        Assertions.assertEquals(reused, entityRepository.getEntity(reused.getHandle()));
+        Assertions.assertNull(entityRepository.getEntity(0));
+        Assertions.assertNull(entityRepository.getEntity(-1));
+    }
+
+    @Test
+    void deleteAll() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        final int count = 10_000;
+        Entity[] entities = new Entity[count];
+        for (int i = 0; i < count; i++) {
+            entities[i] = i % 2 == 0 ?
+                    entityRepository.createEntity(new C1(i)) :
+                    entityRepository.createEntity(new C1(i), new P(i, i));
+        }
+        IntEntity other = (IntEntity) entityRepository.createEntity(new C2(0));
+        IntEntity disabled = (IntEntity) entityRepository.createEntity(new C1(-1)).setEnabled(false);
+        entities[1].setState(State.ONE);
+
+        Assertions.assertEquals(count, entityRepository.findEntitiesWith(C1.class).deleteAll());
+        for (Entity entity : entities) {
+            Assertions.assertTrue(entity.isDeleted());
+            Assertions.assertNull(((IntEntity) entity).getChunk());
+            Assertions.assertNull(((IntEntity) entity).getStateChunk());
+            Assertions.assertNull(entityRepository.getEntity(entity.getHandle()));
+        }
+        Assertions.assertFalse(entityRepository.findEntitiesWith(C1.class).iterator().hasNext());
+        Assertions.assertFalse(entityRepository.findEntitiesWith(P.class).withState(State.ONE).iterator().hasNext());
+        Assertions.assertFalse(disabled.isDeleted());
+        Assertions.assertEquals(other, entityRepository.getEntity(other.getHandle()));
+
+        // cleared compositions start over from an empty chunk
+        IntEntity entity = (IntEntity) entityRepository.createEntity(new C1(0), new P(0, 0));
+        Assertions.assertEquals(0, entity.getComposition().getIdSchema().fetchObjectId(entity.getId()));
+        entity.setState(State.TWO);
+        Assertions.assertEquals(entity, entityRepository.findEntitiesWith(C1.class).stream().findFirst().orElseThrow().entity());
+        Assertions.assertEquals(entity, entityRepository.findEntitiesWith(P.class).withState(State.TWO).stream().findFirst().orElseThrow().entity());
+        disabled.setEnabled(true);
+        Assertions.assertEquals(2, entityRepository.findEntitiesWith(C1.class).stream().count());
+
+        Assertions.assertEquals(3, entityRepository.findAllEntities().deleteAll());
+        Assertions.assertFalse(entityRepository.findAllEntities().iterator().hasNext());
+        entityRepository.close();
+    }
+
+    @Test
+    void deleteAllWithState() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1)).setState(State.ONE);
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2)).setState(State.TWO);
+        IntEntity entity3 = (IntEntity) entityRepository.createEntity(new C1(3), new C2(3)).setState(State.ONE);
+        Assertions.assertEquals(2, entityRepository.findEntitiesWith(C1.class).withState(State.ONE).deleteAll());
+        Assertions.assertTrue(entity1.isDeleted());
+        Assertions.assertFalse(entity2.isDeleted());
+        Assertions.assertTrue(entity3.isDeleted());
+        Assertions.assertEquals(entity2, entityRepository.findEntitiesWith(C1.class).stream().findFirst().orElseThrow().entity());
+    }
+
+    @Test
+    void clearComposition() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1), new C2(1));
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2));
+        Assertions.assertEquals(1, entityRepository.clear(entityRepository.composition().of(C2.class, C1.class)));
+        Assertions.assertTrue(entity1.isDeleted());
+        Assertions.assertFalse(entity2.isDeleted());
+        Assertions.assertEquals(0, entityRepository.clear(entityRepository.composition().of(C2.class, C1.class)));
+    }
+
+    @Test
+    void clearCompositionWithDisabledState() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1)).setState(State.ONE);
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2)).setState(State.ONE);
+        entity1.setEnabled(false);
+        Assertions.assertEquals(1, entityRepository.clear(entityRepository.composition().of(C1.class)));
+        Assertions.assertTrue(entity2.isDeleted());
+        Assertions.assertFalse(entity1.isDeleted());
+        // the state chunk released by the clear is reused by the next entity with the same state
+        IntEntity entity3 = (IntEntity) entityRepository.createEntity(new C1(3)).setState(State.ONE);
+        entity1.setEnabled(true);
+        entity1.setState(State.TWO);
+        Assertions.assertEquals(State.ONE, entity3.getState(State.class));
+        Assertions.assertEquals(entity3, entityRepository.findEntitiesWith(C1.class).withState(State.ONE)
+                .stream().findFirst().orElseThrow().entity());
+        Assertions.assertEquals(entity1, entityRepository.findEntitiesWith(C1.class).withState(State.TWO)
+                .stream().findFirst().orElseThrow().entity());
+        entityRepository.close();
+    }
+
+    @Test
+    void modifyAll() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        final int count = 10_000;
+        IntEntity[] entities = new IntEntity[count];
+        for (int i = 0; i < count; i++) {
+            entities[i] = (IntEntity) entityRepository.createEntity(new C1(i), new P(i, -i), new S(i, i, i, i));
+        }
+        IntEntity disabled = (IntEntity) entityRepository.createEntity(new C1(-1), new P(0, 0), new S(0, 0, 0, 0))
+                .setEnabled(false);
+        entities[1].setState(State.ONE);
+        Composition composition = entityRepository.composition();
+
+        var byAdding = composition.byAdding2AndRemoving(C2.class, V.class, C1.class);
+        Assertions.assertEquals(count, entityRepository.findEntitiesWith(C1.class)
+                .modifyAll(entity -> byAdding.withValue(entity, new C2(((IntEntity) entity).get(C1.class).id()),
+                        new V(1, 2, 3))));
+        for (int i = 0; i < count; i++) {
+            IntEntity entity = entities[i];
+            Assertions.assertFalse(entity.has(C1.class));
+            Assertions.assertEquals(new C2(i), entity.get(C2.class));
+            Assertions.assertEquals(new P(i, -i), entity.get(P.class));
+            Assertions.assertEquals(new S(i, i, i, i), entity.get(S.class));
+            Assertions.assertEquals(new V(1, 2, 3), entity.get(V.class));
+            Assertions.assertEquals(entity, entityRepository.getEntity(entity.getHandle()));
+        }
+        Assertions.assertEquals(count, entityRepository.findEntitiesWith(C2.class, P.class, S.class, V.class).stream().count());
+        Assertions.assertEquals(entities[1], entityRepository.findEntitiesWith(C2.class).withState(State.ONE)
+                .stream().findFirst().orElseThrow().entity());
+        Assertions.assertFalse(entityRepository.findEntitiesWith(C1.class).iterator().hasNext());
+        disabled.setEnabled(true);
+        Assertions.assertEquals(new C1(-1), disabled.get(C1.class));
+
+        // removing the only component of the composition
+        Assertions.assertEquals(count, entityRepository.findEntitiesWith(V.class)
+                .modifyAll(composition.byRemoving(V.class)::withValue));
+        Assertions.assertFalse(entities[count - 1].has(V.class));
+        Assertions.assertEquals(new P(count - 1, 1 - count), entities[count - 1].get(P.class));
+        Assertions.assertEquals(0, entityRepository.findEntitiesWith(V.class)
+                .modifyAll(composition.byRemoving(V.class)::withValue));
+        entityRepository.close();
+    }
+
+    @Test
+    void modifyAllWithState() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1)).setState(State.ONE);
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2)).setState(State.TWO);
+        var byAdding = entityRepository.composition().byAdding1AndRemoving(C2.class);
+        Assertions.assertEquals(1, entityRepository.findEntitiesWith(C1.class).withState(State.ONE)
+                .modifyAll(entity -> byAdding.withValue(entity, new C2(0))));
+        Assertions.assertTrue(entity1.has(C2.class));
+        Assertions.assertFalse(entity2.has(C2.class));
+    }
+
+    @Test
+    void modifyAllToTheSameComposition() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1));
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2), new C2(2));
+        // removing a missing type leaves the entities in their composition
+        Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class)
+                .modifyAll(entityRepository.composition().byRemoving(C3.class)::withValue));
+        Assertions.assertEquals(new C1(1), entity1.get(C1.class));
+        Assertions.assertEquals(new C2(2), entity2.get(C2.class));
+        Assertions.assertEquals(2, entityRepository.findEntitiesWith(C1.class).stream().count());
+        Assertions.assertEquals(0, entityRepository.findAllEntities()
+                .modifyAll(entityRepository.composition().byRemoving(C3.class)::withValue));
+        // only the compositions having the type are migrated, the others are left in place
+        IntEntity entity3 = (IntEntity) entityRepository.createEntity(new C1(3), new C3(3));
+        Assertions.assertEquals(1, entityRepository.findAllEntities()
+                .modifyAll(entityRepository.composition().byRemoving(C3.class)::withValue));
+        Assertions.assertFalse(entity3.has(C3.class));
+        Assertions.assertEquals(entity1.getComposition(), entity3.getComposition());
+        Assertions.assertEquals(3, entityRepository.findEntitiesWith(C1.class).stream().count());
+        entityRepository.close();
+    }
+
+    @Test
+    void modifyAllToDifferentCompositions() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1));
+        entityRepository.createEntity(new C1(2));
+        Composition composition = entityRepository.composition();
+        var byAddingC2 = composition.byAdding1AndRemoving(C2.class);
+        var byAddingC3 = composition.byAdding1AndRemoving(C3.class);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> entityRepository.findEntitiesWith(C1.class)
+                .modifyAll(entity -> entity == entity1 ?
+                        byAddingC2.withValue(entity, new C2(0)) :
+                        byAddingC3.withValue(entity, new C3(0))));
+        Assertions.assertFalse(entity1.has(C2.class));
+    }
+
+    @Test
+    void changedSince() {
+        EntityRepository entityRepository = new EntityRepository("test", Config.DominionSize.MEDIUM.classIndexBit(),
+                Config.DominionSize.NANO.chunkBit(), Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Logging.Context.TEST);
+        final int capacity = 1 << Config.DominionSize.NANO.chunkBit();
+        IntEntity[] entities = new IntEntity[capacity * 4];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = (IntEntity) entityRepository.createEntity(new C1(i), new C2(i));
+        }
+        long since = entityRepository.version();
+        Assertions.assertEquals(entities.length, entityRepository.findEntitiesWith(C1.class)
+                .changedSince(0).stream().count());
+        Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class)
+                .changedSince(since).stream().count());
+
+        // marking components changed in place
+        Assertions.assertTrue(entities[capacity + 1].markChanged(C2.class));
+        Assertions.assertTrue(entities[3 * capacity].markChanged(C1.class));
+        Assertions.assertFalse(entities[0].markChanged(C3.class));
+        Assertions.assertEquals(2 * capacity, entityRepository.findEntitiesWith(C1.class, C2.class)
+                .changedSince(since).stream().count());
+        var changedC2 = entityRepository.findEntitiesWith(C1.class, C2.class).changedSince(since, C2.class)
+                .stream().toList();
+        Assertions.assertEquals(capacity, changedC2.size());
+        Assertions.assertTrue(changedC2.stream().allMatch(rs -> rs.comp1().id() >= capacity && rs.comp1().id() < 2 * capacity));
+        Assertions.assertEquals(capacity, entityRepository.findEntitiesWith(C1.class)
+                .changedSince(since, C1.class).parallelStream().count());
+        AtomicInteger count = new AtomicInteger();
+        entityRepository.findEntitiesWith(C1.class).changedSince(since, C1.class)
+                .forEach((c1, entity) -> count.incrementAndGet());
+        Assertions.assertEquals(capacity, count.get());
+
+        // accessing a batch column marks it as changed, and the next version only finds the later changes
+        long next = entityRepository.version();
+        Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class).changedSince(next).stream().count());
+        entityRepository.findEntitiesWith(C1.class).changedSince(since, C2.class)
+                .forEachChunk(batch -> batch.column(C1.class));
+        Assertions.assertEquals(capacity, entityRepository.findEntitiesWith(C1.class)
+                .changedSince(next, C1.class).stream().count());
+        Assertions.assertEquals(0, entityRepository.findEntitiesWith(C1.class)
+                .changedSince(next, C2.class).stream().count());
+        Entity created = entityRepository.createEntity(new C1(-1), new C2(-1));
+        Assertions.assertEquals(created, entityRepository.findEntitiesWith(C1.class)
+                .changedSince(next, C2.class).stream().findFirst().orElseThrow().entity());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> entityRepository.findEntitiesWith(C1.class)
+                .withState(State.ONE).changedSince(since));
+        entityRepository.close();
+    }
+
+    @Test
+    void observers() throws InterruptedException {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        List<Entity> created = new ArrayList<>();
+        List<Entity> deleted = new ArrayList<>();
+        Map<Class<?>, List<Entity>> added = new HashMap<>();
+        Map<Class<?>, List<Entity>> removed = new HashMap<>();
+        Dominion.Observer observer = new Dominion.Observer() {
+            @Override
+            public void onCreated(List<Entity> entities) {
+                created.addAll(entities);
+            }
+
+            @Override
+            public void onAdded(Class<?> componentType, List<Entity> entities) {
+                added.computeIfAbsent(componentType, k -> new ArrayList<>()).addAll(entities);
+            }
+
+            @Override
+            public void onRemoved(Class<?> componentType, List<Entity> entities) {
+                removed.computeIfAbsent(componentType, k -> new ArrayList<>()).addAll(entities);
+            }
+
+            @Override
+            public void onDeleted(List<Entity> entities) {
+                deleted.addAll(entities);
+            }
+        };
+        // nothing is recorded without observers
+        entityRepository.createEntity(new C1(0));
+        Assertions.assertEquals(0, entityRepository.notifyObservers());
+
+        entityRepository.addObserver(observer);
+        Entity entity1 = entityRepository.createEntity(new C1(1));
+        Entity entity2 = entityRepository.createEntity(new C1(2), new C2(2));
+        entity1.add(new C2(1));
+        entity2.removeType(C1.class);
+        entityRepository.deleteEntity(entity2);
+        Assertions.assertTrue(created.isEmpty());
+        Assertions.assertEquals(5, entityRepository.notifyObservers());
+        Assertions.assertEquals(List.of(entity1, entity2), created);
+        Assertions.assertEquals(Map.of(C2.class, List.of(entity1)), added);
+        Assertions.assertEquals(Map.of(C1.class, List.of(entity2)), removed);
+        Assertions.assertEquals(List.of(entity2), deleted);
+        Assertions.assertEquals(0, entityRepository.notifyObservers());
+
+        // events recorded by other threads are delivered together
+        created.clear();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 100; i++) {
+            int id = i;
+            executorService.execute(() -> entityRepository.createEntity(new C3(id)));
+        }
+        executorService.shutdown();
+        Assertions.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(100, entityRepository.notifyObservers());
+        Assertions.assertEquals(100, created.size());
+
+        // the buffers of terminated threads are dropped once drained, only the one of the current thread is left
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> entityRepository.createEntity(new C3(id)));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(4, entityRepository.notifyObservers());
+        Assertions.assertEquals(1, entityRepository.getCompositionRepository().getEntityEvents().getBufferCount());
+
+        // bulk changes are observed too
+        deleted.clear();
+        Assertions.assertEquals(104, entityRepository.findEntitiesWith(C3.class).deleteAll());
+        entityRepository.notifyObservers();
+        Assertions.assertEquals(104, deleted.size());
+
+        Assertions.assertTrue(entityRepository.removeObserver(observer));
+        Assertions.assertFalse(entityRepository.removeObserver(observer));
+        entityRepository.createEntity(new C1(3));
+        Assertions.assertEquals(0, entityRepository.notifyObservers());
+        entityRepository.close();
+    }
+
+    @Test
+    void observeSparseComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Map<Class<?>, List<Entity>> added = new HashMap<>();
+        Map<Class<?>, List<Entity>> removed = new HashMap<>();
+        entityRepository.addObserver(new Dominion.Observer() {
+            @Override
+            public void onAdded(Class<?> componentType, List<Entity> entities) {
+                added.computeIfAbsent(componentType, k -> new ArrayList<>()).addAll(entities);
+            }
+
+            @Override
+            public void onRemoved(Class<?> componentType, List<Entity> entities) {
+                removed.computeIfAbsent(componentType, k -> new ArrayList<>()).addAll(entities);
+            }
+        });
+        Entity entity1 = entityRepository.createEntity(new C1(1));
+        Entity entity2 = entityRepository.createEntity(new C1(2), new S1(2));
+        Assertions.assertEquals(2, entityRepository.notifyObservers());
+        entity1.add(new S1(1));
+        // replacing a sparse component is not an addition
+        entity1.add(new S1(10));
+        entity2.removeType(S1.class);
+        Assertions.assertFalse(entity2.removeType(S1.class));
+        Assertions.assertEquals(2, entityRepository.notifyObservers());
+        Assertions.assertEquals(Map.of(S1.class, List.of(entity1)), added);
+        Assertions.assertEquals(Map.of(S1.class, List.of(entity2)), removed);
+        entityRepository.close();
+    }
+
+    @Test
+    void observeTagComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Map<Class<?>, List<Entity>> added = new HashMap<>();
+        Map<Class<?>, List<Entity>> removed = new HashMap<>();
+        entityRepository.addObserver(new Dominion.Observer() {
+            @Override
+            public void onAdded(Class<?> componentType, List<Entity> entities) {
+                added.computeIfAbsent(componentType, k -> new ArrayList<>()).addAll(entities);
+            }
+
+            @Override
+            public void onRemoved(Class<?> componentType, List<Entity> entities) {
+                removed.computeIfAbsent(componentType, k -> new ArrayList<>()).addAll(entities);
+            }
+        });
+        Entity entity1 = entityRepository.createEntity(new C1(1));
+        Entity entity2 = entityRepository.createEntity(new C1(2), new T1());
+        Assertions.assertEquals(2, entityRepository.notifyObservers());
+        entity1.add(new T1());
+        // only the tags that are actually set or cleared are observed
+        entity1.add(new T1());
+        entity2.removeType(T1.class);
+        Assertions.assertFalse(entity2.removeType(T1.class));
+        Assertions.assertFalse(entity2.removeType(T2.class));
+        Assertions.assertEquals(2, entityRepository.notifyObservers());
+        Assertions.assertEquals(Map.of(T1.class, List.of(entity1)), added);
+        Assertions.assertEquals(Map.of(T1.class, List.of(entity2)), removed);
+        entityRepository.close();
+    }
+
+    @Test
+    void sparseComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Entity entity1 = entityRepository.createEntity(new C1(1), new S1(1));
+        Entity entity2 = entityRepository.createEntity(new C1(2), new C2(2));
+        Entity entity3 = entityRepository.createEntity(new S1(3));
+        IntEntity intEntity2 = (IntEntity) entity2;
+        var composition2 = intEntity2.getComposition();
+
+        // sparse components never move the entity to another composition
+        Assertions.assertEquals(((IntEntity) entity1).getComposition(), entityRepository.getCompositionRepository().getOrCreate(new Object[]{new C1(0)}));
+        entity2.add(new S1(2));
+        Assertions.assertEquals(composition2, intEntity2.getComposition());
+        Assertions.assertTrue(entity2.has(S1.class));
+        Assertions.assertEquals(new S1(2), entity2.get(S1.class));
+        Assertions.assertTrue(entity2.contains(new S1(2)));
+        Assertions.assertTrue(entity3.has(S1.class));
+
+        // sparse types mixed with regular ones
+        Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(C1.class, S1.class)
+                .stream().map(Results.With2::entity).collect(Collectors.toSet()));
+        Assertions.assertEquals(Set.of(entity1, entity2, entity3), entityRepository.findEntitiesWith(S1.class)
+                .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+        Assertions.assertEquals(List.of(entity2), entityRepository.findEntitiesWith(C1.class, S1.class).withAlso(C2.class)
+                .stream().map(Results.With2::entity).toList());
+        Assertions.assertEquals(List.of(entity1), entityRepository.findEntitiesWith(S1.class).without(C2.class).withAlso(C1.class)
+                .stream().map(Results.With1::entity).toList());
+        Assertions.assertEquals(List.of(new S1(2)), entityRepository.findEntitiesWith(C1.class, C2.class).withAlso(S1.class)
+                .stream().map(rs -> rs.entity().get(S1.class)).toList());
+        AtomicInteger sum = new AtomicInteger();
+        entityRepository.findEntitiesWith(C1.class, S1.class).forEach((c1, s1, entity) -> sum.addAndGet(c1.id() + s1.id()));
+        Assertions.assertEquals(6, sum.get());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> entityRepository.findEntitiesWith(C1.class, S1.class).forEachChunk(batch -> {
+                }));
+
+        Assertions.assertTrue(entity2.removeType(S1.class));
+        Assertions.assertFalse(entity2.removeType(S1.class));
+        Assertions.assertEquals(composition2, intEntity2.getComposition());
+        Assertions.assertEquals(List.of(entity2), entityRepository.findEntitiesWith(C1.class).without(S1.class)
+                .stream().map(Results.With1::entity).toList());
+
+        // deleted entities leave their sparse sets
+        entityRepository.deleteEntity(entity1);
+        Assertions.assertEquals(1, entityRepository.getCompositionRepository().getSparseSet(S1.class).size());
+        Assertions.assertEquals(1, entityRepository.findEntitiesWith(S1.class).deleteAll());
+        Assertions.assertEquals(0, entityRepository.getCompositionRepository().getSparseSet(S1.class).size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> entityRepository.composition().of(C1.class, S1.class));
+        entityRepository.close();
+    }
+
+    @Test
+    void tagComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Entity entity1 = entityRepository.createEntity(new C1(1), new T1());
+        Entity entity2 = entityRepository.createEntity(new C1(2));
+        Entity entity3 = entityRepository.createEntity(new C1(3), new C2(3));
+        IntEntity intEntity2 = (IntEntity) entity2;
+        var composition2 = intEntity2.getComposition();
+
+        // tags never move the entity to another composition
+        Assertions.assertEquals(((IntEntity) entity1).getComposition(), composition2);
+        entity2.add(new T1()).add(new T2());
+        Assertions.assertEquals(composition2, intEntity2.getComposition());
+        Assertions.assertTrue(entity2.has(T1.class));
+        Assertions.assertTrue(entity2.contains(new T2()));
+        Assertions.assertEquals(new T1(), entity2.get(T1.class));
+        Assertions.assertNull(entity3.get(T1.class));
+
+        // tag filters are tested per slot
+        Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(C1.class).withAlso(T1.class)
+                .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+        Assertions.assertEquals(List.of(entity2), entityRepository.findEntitiesWith(C1.class).withAlso(T1.class, T2.class)
+                .stream().map(Results.With1::entity).toList());
+        Assertions.assertEquals(Set.of(entity1, entity3), entityRepository.findEntitiesWith(C1.class).without(T2.class)
+                .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+        Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(T1.class)
+                .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+        AtomicInteger sum = new AtomicInteger();
+        entityRepository.findEntitiesWith(C1.class).without(T1.class).forEach((c1, entity) -> sum.addAndGet(c1.id()));
+        Assertions.assertEquals(3, sum.get());
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> entityRepository.findEntitiesWith(C1.class).withAlso(T1.class).forEachChunk(batch -> {
+                }));
+
+        // tags follow the entity when it is moved, disabled or swapped by a removal
+        entity2.add(new C2(2));
+        Assertions.assertTrue(entity2.has(T2.class));
+        entity1.setEnabled(false);
+        Assertions.assertTrue(entity1.has(T1.class));
+        entityRepository.deleteEntity(entity3);
+        entity1.setEnabled(true);
+        Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(C1.class).withAlso(T1.class)
+                .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+
+        Assertions.assertTrue(entity2.removeType(T1.class));
+        Assertions.assertFalse(entity2.removeType(T1.class));
+        Assertions.assertEquals(List.of(entity1), entityRepository.findEntitiesWith(C1.class).withAlso(T1.class)
+                .stream().map(Results.With1::entity).toList());
+        Assertions.assertEquals(1, entityRepository.findEntitiesWith(C1.class).withAlso(T2.class).deleteAll());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> entityRepository.composition().of(C1.class, T1.class));
+        entityRepository.close();
+    }
+
+    @Test
+    void sortBy() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        final int count = 50_000;
+        IntEntity[] entities = new IntEntity[count];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            entities[i] = (IntEntity) entityRepository.createEntity(new C1(random.nextInt(count)), new P(i, -i));
+        }
+        for (int i = 0; i < count; i += 7) {
+            entityRepository.deleteEntity(entities[i]);
+        }
+        entities[1].setState(State.ONE);
+        entityRepository.createEntity(new C1(-1));
+
+        Assertions.assertEquals(count - (count + 6) / 7, entityRepository.findEntitiesWith(C1.class, P.class)
+                .sortBy(Comparator.comparingInt(rs -> rs.comp1().id())));
+        int previous = Integer.MIN_VALUE;
+        for (var rs : entityRepository.findEntitiesWith(C1.class, P.class)) {
+            Assertions.assertTrue(rs.comp1().id() >= previous);
+            previous = rs.comp1().id();
+        }
+        var pool = entityRepository.getCompositionRepository().getPool();
+        for (int i = 0; i < count; i++) {
+            IntEntity entity = entities[i];
+            if (i % 7 == 0) {
+                Assertions.assertTrue(entity.isDeleted());
+                continue;
+            }
+            Assertions.assertEquals(entity, pool.getEntry(entity.getId()));
+            Assertions.assertEquals(new P(i, -i), entity.get(P.class));
+            Assertions.assertEquals(entity, entityRepository.getEntity(entity.getHandle()));
+        }
+        Assertions.assertEquals(entities[1], entityRepository.findEntitiesWith(C1.class).withState(State.ONE)
+                .stream().findFirst().orElseThrow().entity());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> entityRepository.findEntitiesWith(C1.class)
+                .withState(State.ONE).sortBy(Comparator.comparingInt(rs -> rs.comp().id())));
+
+        // sorting all the entities by handle
+        Assertions.assertEquals(count - (count + 6) / 7 + 1, entityRepository.findAllEntities()
+                .sortBy(Comparator.comparingLong(Entity::getHandle).reversed()));
+        long previousHandle = Long.MAX_VALUE;
+        for (var rs : entityRepository.findEntitiesWith(C1.class, P.class)) {
+            Assertions.assertTrue(rs.entity().getHandle() < previousHandle);
+            previousHandle = rs.entity().getHandle();
+        }
+        entityRepository.close();
+    }
+
     @Test
     void modifyEntity() {
         EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
@@ -339,6 +1045,168 @@ class EntityRepositoryTest {
 
     }
 
+    @Test
+    void findComponentsWithColumnState() {
+        EntityRepository entityRepository = new EntityRepository("test", Config.DominionSize.MEDIUM.classIndexBit(),
+                Config.DominionSize.MEDIUM.chunkBit(), Config.ChunkAllocation.EAGER, Config.DeletionMode.IMMEDIATE,
+                Config.StateMode.COLUMN, Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Logging.Context.TEST);
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(10)).setState(State.ONE);
+        Entity entity2 = entityRepository.createEntity(new C1(11), new C2(20)).setState(State.ONE);
+        Entity entity3 = entityRepository.createEntity(new C1(12), new C2(21)).setState(State.TWO);
+        Entity entity4 = entityRepository.createEntity(new C1(13));
+
+        // no state tenant is involved
+        Assertions.assertNull(entity1.getStateChunk());
+        Assertions.assertNull(entity1.getComposition().getStateTenant(State.ONE));
+        Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(C1.class).withState(State.ONE)
+                .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+        Assertions.assertEquals(List.of(entity3), entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.TWO)
+                .stream().map(Results.With2::entity).toList());
+        AtomicInteger sum = new AtomicInteger();
+        entityRepository.findEntitiesWith(C1.class).withState(State.ONE).forEach((c1, entity) -> sum.addAndGet(c1.id()));
+        Assertions.assertEquals(21, sum.get());
+
+        // the state follows the entity when it is moved or disabled, and can be combined with changedSince
+        long version = entityRepository.version();
+        entity1.add(new C2(19));
+        entity2.setEnabled(false);
+        entityRepository.deleteEntity(entity4);
+        entity2.setEnabled(true);
+        Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE)
+                .stream().map(Results.With2::entity).collect(Collectors.toSet()));
+        Assertions.assertEquals(List.of(entity3), entityRepository.findEntitiesWith(C1.class).withState(State.TWO)
+                .changedSince(version).stream().map(Results.With1::entity).toList());
+
+        entity2.setState(null);
+        Assertions.assertEquals(List.of(entity1), entityRepository.findEntitiesWith(C1.class).withState(State.ONE)
+                .stream().map(Results.With1::entity).toList());
+        Assertions.assertEquals(1, entityRepository.findEntitiesWith(C1.class).withState(State.TWO).deleteAll());
+        Assertions.assertTrue(entity3.isDeleted());
+        entityRepository.close();
+    }
+
+    @Test
+    void findComponentsWithSeveralStates() {
+        for (Config.StateMode stateMode : Config.StateMode.values()) {
+            EntityRepository entityRepository = new EntityRepository("test", Config.DominionSize.MEDIUM.classIndexBit(),
+                    Config.DominionSize.MEDIUM.chunkBit(), Config.ChunkAllocation.EAGER, Config.DeletionMode.IMMEDIATE,
+                    stateMode, Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Logging.Context.TEST);
+            Entity entity1 = entityRepository.createEntity(new C1(10)).setState(State.ONE).setState(Mood.CALM);
+            Entity entity2 = entityRepository.createEntity(new C1(11), new C2(20)).setState(State.ONE).setState(Mood.ANGRY);
+            Entity entity3 = entityRepository.createEntity(new C1(12), new C2(21)).setState(State.TWO).setState(Mood.ANGRY);
+            Entity entity4 = entityRepository.createEntity(new C1(13)).setState(Mood.CALM);
+
+            // an entity has a state of each enumeration type
+            Assertions.assertEquals(State.ONE, entity1.getState(State.class));
+            Assertions.assertEquals(Mood.CALM, entity1.getState(Mood.class));
+            Assertions.assertNull(entity4.getState(State.class));
+            Assertions.assertEquals(Set.of(entity2), entityRepository.findEntitiesWith(C1.class)
+                    .withAllStates(State.ONE, Mood.ANGRY)
+                    .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(entity1, entity3, entity4), entityRepository.findEntitiesWith(C1.class)
+                    .withAnyState(State.TWO, Mood.CALM)
+                    .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+            Assertions.assertEquals(Set.of(entity1), entityRepository.findEntitiesWith(C1.class)
+                    .withAnyState(State.ONE, State.TWO).withAllStates(Mood.CALM)
+                    .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+            AtomicInteger sum = new AtomicInteger();
+            entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE).withAllStates(Mood.ANGRY)
+                    .forEach((c1, c2, entity) -> sum.addAndGet(c1.id()));
+            Assertions.assertEquals(11, sum.get());
+
+            // the states follow the entity when it is moved or disabled, and are replaced or removed by type
+            entity1.add(new C2(19));
+            entity2.setEnabled(false);
+            entity2.setEnabled(true);
+            Assertions.assertEquals(Set.of(entity1, entity2), entityRepository.findEntitiesWith(C1.class, C2.class)
+                    .withAllStates(State.ONE)
+                    .stream().map(Results.With2::entity).collect(Collectors.toSet()));
+            Assertions.assertEquals(Mood.ANGRY, entity2.getState(Mood.class));
+            Assertions.assertTrue(entity1.removeState(Mood.class));
+            Assertions.assertFalse(entity1.removeState(Mood.class));
+            Assertions.assertEquals(State.ONE, entity1.getState(State.class));
+            entity3.setState(Mood.CALM);
+            Assertions.assertEquals(State.TWO, entity3.getState(State.class));
+            entity4.setState(null);
+            Assertions.assertNull(entity4.getState(Mood.class));
+            Assertions.assertEquals(Set.of(entity3), entityRepository.findEntitiesWith(C1.class).withAnyState(Mood.CALM)
+                    .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+            Assertions.assertEquals(1, entityRepository.findEntitiesWith(C1.class)
+                    .withAllStates(State.TWO, Mood.CALM).deleteAll());
+            Assertions.assertTrue(entity3.isDeleted());
+            Assertions.assertEquals(Set.of(entity2), entityRepository.findEntitiesWith(C1.class).withAnyState(Mood.ANGRY)
+                    .stream().map(Results.With1::entity).collect(Collectors.toSet()));
+            entityRepository.close();
+        }
+    }
+
+    @Test
+    void indexComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        Entity entity1 = entityRepository.createEntity(new C1(1));
+        Entity entity2 = entityRepository.createEntity(new C1(2), new C2(20));
+        Entity entity3 = entityRepository.createEntity(new C1(2), new C3(30));
+        Entity entity4 = entityRepository.createEntity(new C2(40));
+
+        // the existing entities are indexed when the index is created, and the new ones when they are created
+        Dominion.Index<C1, Integer> byId = entityRepository.createIndex(C1.class, C1::id);
+        Entity entity5 = entityRepository.createEntity(new C1(5), new C2(50));
+        Assertions.assertEquals(4, byId.size());
+        Assertions.assertEquals(entity1, byId.findFirst(1));
+        Assertions.assertEquals(Set.of(entity2, entity3), new HashSet<>(byId.find(2)));
+        Assertions.assertEquals(List.of(entity5), byId.find(5));
+        Assertions.assertTrue(byId.find(4).isEmpty());
+        Assertions.assertEquals(List.of(entity2), entityRepository.findEntitiesWith(C1.class, C2.class).where(byId, 2)
+                .stream().map(Results.With2::entity).toList());
+        AtomicInteger sum = new AtomicInteger();
+        entityRepository.findEntitiesWith(C1.class).where(byId, 2).forEach((c1, entity) -> sum.addAndGet(c1.id()));
+        Assertions.assertEquals(4, sum.get());
+
+        // the index follows the components added, replaced and removed, one by one or in bulk
+        entity1.add(new C2(10));
+        Assertions.assertEquals(List.of(entity1), entityRepository.findEntitiesWith(C2.class).where(byId, 1)
+                .stream().map(Results.With1::entity).toList());
+        entity1.removeType(C1.class);
+        Assertions.assertNull(byId.findFirst(1));
+        entity1.add(new C1(3));
+        Assertions.assertEquals(entity1, byId.findFirst(3));
+        entity3.removeType(C1.class);
+        Assertions.assertEquals(List.of(entity2), byId.find(2));
+        entity4.add(new C1(4));
+        Assertions.assertEquals(entity4, byId.findFirst(4));
+        Assertions.assertEquals(4, entityRepository.findEntitiesWith(C1.class, C2.class)
+                .modifyAll(entityRepository.composition().byRemoving(C1.class)::withValue));
+        Assertions.assertEquals(0, byId.size());
+        Assertions.assertTrue(entity5.has(C2.class));
+
+        // a component mutated in place is indexed again once marked as changed
+        Dominion.Index<M, Integer> byValue = entityRepository.createIndex(M.class, m -> m.value);
+        M m = new M(7);
+        Entity entity6 = entityRepository.createEntity(m, new C2(60));
+        m.value = 8;
+        Assertions.assertEquals(entity6, byValue.findFirst(7));
+        entity6.markChanged(M.class);
+        Assertions.assertNull(byValue.findFirst(7));
+        Assertions.assertEquals(entity6, byValue.findFirst(8));
+        entity6.setEnabled(false);
+        Assertions.assertNull(byValue.findFirst(8));
+        entity6.setEnabled(true);
+        Assertions.assertEquals(entity6, byValue.findFirst(8));
+        entityRepository.deleteEntity(entity6);
+        Assertions.assertEquals(0, byValue.size());
+        entityRepository.createEntity(new M(9));
+        entityRepository.createEntity(new M(9));
+        Assertions.assertEquals(2, byValue.find(9).size());
+        Assertions.assertEquals(2, entityRepository.findEntitiesWith(M.class).deleteAll());
+        Assertions.assertEquals(0, byValue.size());
+        Assertions.assertTrue(entityRepository.dropIndex(byValue));
+        Assertions.assertFalse(entityRepository.dropIndex(byValue));
+        entityRepository.createEntity(new M(10));
+        Assertions.assertEquals(0, byValue.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> entityRepository.createIndex(T1.class, T1::hashCode));
+        entityRepository.close();
+    }
+
     @Test
     void findComponents1FromMoreCompositions() {
         EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
@@ -523,6 +1391,250 @@ class EntityRepositoryTest {
         Assertions.assertFalse(iterator.hasNext());
     }
 
+    @Test
+    void splitParallelStream() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        for (int i = 0; i < 10_000; i++) {
+            entityRepository.createEntity(new C1(i));
+        }
+        for (int i = 10_000; i < 15_000; i++) {
+            entityRepository.createEntity(new C1(i), new C2(i));
+        }
+        var spliterator = entityRepository.findEntitiesWith(C1.class).spliterator();
+        Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        Assertions.assertEquals(15_000, spliterator.getExactSizeIfKnown());
+        // the first split is at the composition boundary
+        var prefix = spliterator.trySplit();
+        Assertions.assertNotNull(prefix);
+        Assertions.assertEquals(Set.of(10_000L, 5_000L), Set.of(prefix.estimateSize(), spliterator.estimateSize()));
+
+        Set<Integer> ids = entityRepository.findEntitiesWith(C1.class).parallelStream()
+                .map(rs -> rs.comp().id())
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(15_000, ids.size());
+        Assertions.assertEquals(15_000, entityRepository.findEntitiesWith(C1.class).parallelStream().count());
+    }
+
+    @Test
+    void splitParallelStreamByChunkRange() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        for (int i = 0; i < 4_000; i++) {
+            entityRepository.createEntity(new C1(i));
+        }
+        var spliterator = entityRepository.findEntitiesWith(C1.class).spliterator();
+        var prefix = spliterator.trySplit();
+        Assertions.assertNotNull(prefix);
+        Assertions.assertEquals(2_000, prefix.getExactSizeIfKnown());
+        Assertions.assertEquals(2_000, spliterator.getExactSizeIfKnown());
+        Assertions.assertNull(prefix.trySplit());
+
+        // the prefix keeps the encounter order of the sequential iterator
+        Iterator<Results.With1<C1>> iterator = entityRepository.findEntitiesWith(C1.class).iterator();
+        prefix.forEachRemaining(rs -> Assertions.assertEquals(iterator.next().comp(), rs.comp()));
+        spliterator.forEachRemaining(rs -> Assertions.assertEquals(iterator.next().comp(), rs.comp()));
+        Assertions.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    void forEachComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        var entity1 = entityRepository.createEntity(new C1(1), new C2(2));
+        var entity2 = entityRepository.createEntity(new C1(3), new C2(4), new C3(5));
+        entityRepository.createEntity(new C1(6));
+
+        // the callback follows the iterator order
+        Iterator<Results.With2<C1, C2>> iterator = entityRepository.findEntitiesWith(C1.class, C2.class).iterator();
+        entityRepository.findEntitiesWith(C1.class, C2.class).forEach((c1, c2, entity) -> {
+            Assertions.assertTrue(iterator.hasNext());
+            var next = iterator.next();
+            Assertions.assertEquals(next.comp1(), c1);
+            Assertions.assertEquals(next.comp2(), c2);
+            Assertions.assertEquals(next.entity(), entity);
+        });
+        Assertions.assertFalse(iterator.hasNext());
+
+        AtomicInteger sum = new AtomicInteger(0);
+        entityRepository.findEntitiesWith(C1.class).forEach((c1, entity) -> sum.addAndGet(c1.id()));
+        Assertions.assertEquals(10, sum.get());
+
+        sum.set(0);
+        entityRepository.findEntitiesWith(C1.class, C2.class, C3.class).forEach((c1, c2, c3, entity) -> {
+            Assertions.assertEquals(entity2, entity);
+            sum.addAndGet(c1.id() + c2.id() + c3.id());
+        });
+        Assertions.assertEquals(12, sum.get());
+
+        sum.set(0);
+        entityRepository.findEntitiesWith(C1.class).without(C2.class).forEach((c1, entity) -> sum.addAndGet(c1.id()));
+        Assertions.assertEquals(6, sum.get());
+
+        entity1.setState(State.ONE);
+        entity2.setState(State.TWO);
+        sum.set(0);
+        entityRepository.findEntitiesWith(C1.class, C2.class).withState(State.ONE).forEach((c1, c2, entity) -> {
+            Assertions.assertEquals(entity1, entity);
+            sum.addAndGet(c1.id() + c2.id());
+        });
+        Assertions.assertEquals(3, sum.get());
+    }
+
+    @Test
+    void findFlatComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1), new P(1f, 2f));
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2), new P(3f, 4f), new V(1, 2L, 0.5));
+        Assertions.assertEquals(new P(1f, 2f), entity1.get(P.class));
+        Assertions.assertEquals(new P(3f, 4f), entity2.get(P.class));
+        Assertions.assertEquals(new V(1, 2L, 0.5), entity2.get(V.class));
+
+        var iterator = entityRepository.findEntitiesWith(P.class, V.class).iterator();
+        Assertions.assertTrue(iterator.hasNext());
+        var next = iterator.next();
+        Assertions.assertEquals(new P(3f, 4f), next.comp1());
+        Assertions.assertEquals(entity2, next.entity());
+        Assertions.assertFalse(iterator.hasNext());
+
+        var cursor = entityRepository.findEntitiesWith(P.class, V.class).cursor();
+        var p = cursor.view(P.class);
+        var v = cursor.view(V.class);
+        Assertions.assertTrue(cursor.next());
+        Assertions.assertEquals(entity2, cursor.entity());
+        p.setFloat(0, p.getFloat(0) + v.getInt(0));
+        p.setFloat(1, p.getFloat(1) + v.getLong(1));
+        v.setDouble(2, v.getDouble(2) * 2);
+        Assertions.assertFalse(cursor.next());
+        Assertions.assertEquals(new P(4f, 6f), entity2.get(P.class));
+        Assertions.assertEquals(new V(1, 2L, 1.0), entity2.get(V.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cursor.view(C1.class));
+
+        entity2.removeType(V.class);
+        Assertions.assertEquals(new P(4f, 6f), entity2.get(P.class));
+        entityRepository.deleteEntity(entity1);
+        int count = 0;
+        var cursor2 = entityRepository.findEntitiesWith(P.class).cursor();
+        var p2 = cursor2.view(P.class);
+        while (cursor2.next()) {
+            Assertions.assertEquals(entity2, cursor2.entity());
+            Assertions.assertEquals(4f, p2.getFloat(0));
+            count++;
+        }
+        Assertions.assertEquals(1, count);
+    }
+
+    @Test
+    void findFlatComponentsWithState() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        entityRepository.createEntity(new P(1f, 1f)).setState(State.ONE);
+        var entity = entityRepository.createEntity(new P(2f, 2f)).setState(State.TWO);
+        entityRepository.createEntity(new P(3f, 3f)).setState(State.ONE);
+
+        var iterator = entityRepository.findEntitiesWith(P.class).withState(State.TWO).iterator();
+        Assertions.assertTrue(iterator.hasNext());
+        Assertions.assertEquals(new P(2f, 2f), iterator.next().comp());
+        Assertions.assertFalse(iterator.hasNext());
+
+        var cursor = entityRepository.findEntitiesWith(P.class).withState(State.ONE).cursor();
+        var p = cursor.view(P.class);
+        float sum = 0;
+        while (cursor.next()) {
+            Assertions.assertNotEquals(entity, cursor.entity());
+            sum += p.getFloat(0);
+        }
+        Assertions.assertEquals(4f, sum);
+    }
+
+    @Test
+    void forEachChunkBatch() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        for (int i = 0; i < 5_000; i++) {
+            entityRepository.createEntity(new C1(i), new P(i, 1f), new V(i, i, 0.5));
+        }
+        var entity = entityRepository.createEntity(new C1(-1), new P(0f, 0f));
+        AtomicInteger batches = new AtomicInteger(0);
+        AtomicInteger total = new AtomicInteger(0);
+        entityRepository.findEntitiesWith(P.class, V.class).forEachChunk(batch -> {
+            float[] x = batch.floatColumn(P.class, 0);
+            float[] y = batch.floatColumn(P.class, 1);
+            int[] dx = batch.intColumn(V.class, 0);
+            double[] dz = batch.doubleColumn(V.class, 2);
+            for (int i = 0; i < batch.size(); i++) {
+                x[i] += dx[i];
+                y[i] += (float) dz[i];
+            }
+            Object[] c1 = batch.column(C1.class);
+            Assertions.assertEquals(c1[0], batch.entity(0).get(C1.class));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.column(P.class));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.intColumn(P.class, 0));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> batch.floatColumn(C1.class, 0));
+            batches.incrementAndGet();
+            total.addAndGet(batch.size());
+        });
+        Assertions.assertEquals(2, batches.get());
+        Assertions.assertEquals(5_000, total.get());
+        entityRepository.findEntitiesWith(C1.class, P.class).forEach((c1, p, e) -> {
+            if (c1.id() >= 0) {
+                Assertions.assertEquals(new P(c1.id() * 2f, 1.5f), p);
+            } else {
+                Assertions.assertEquals(entity, e);
+                Assertions.assertEquals(new P(0f, 0f), p);
+            }
+        });
+
+        entityRepository.createEntity(new S(1, 2L, 3f, 4.0));
+        entityRepository.findEntitiesWith(S.class).forEachChunk(batch ->
+                Assertions.assertThrows(UnsupportedOperationException.class, () -> batch.intColumn(S.class, 0)));
+        Assertions.assertThrows(UnsupportedOperationException.class, () ->
+                entityRepository.findEntitiesWith(P.class).withState(State.ONE).forEachChunk(batch -> {
+                }));
+    }
+
+    @Test
+    void findOffHeapFlatComponents() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        IntEntity entity1 = (IntEntity) entityRepository.createEntity(new C1(1), new S(1, 10L, 0.5f, 2.5));
+        IntEntity entity2 = (IntEntity) entityRepository.createEntity(new C1(2), new S(2, 20L, 1.5f, 3.5));
+        Assertions.assertEquals(new S(1, 10L, 0.5f, 2.5), entity1.get(S.class));
+
+        var cursor = entityRepository.findEntitiesWith(S.class).cursor();
+        var s = cursor.view(S.class);
+        while (cursor.next()) {
+            s.setLong(1, s.getLong(1) + s.getInt(0));
+            s.setDouble(3, s.getDouble(3) + s.getFloat(2));
+        }
+        Assertions.assertEquals(new S(1, 11L, 0.5f, 3.0), entity1.get(S.class));
+        Assertions.assertEquals(new S(2, 22L, 1.5f, 5.0), entity2.get(S.class));
+
+        entityRepository.deleteEntity(entity1);
+        Assertions.assertEquals(new S(2, 22L, 1.5f, 5.0), entity2.get(S.class));
+        entity2.add(new P(1f, 1f));
+        Assertions.assertEquals(new S(2, 22L, 1.5f, 5.0), entity2.get(S.class));
+        Assertions.assertEquals(new P(1f, 1f), entity2.get(P.class));
+        entityRepository.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> entity2.get(S.class));
+    }
+
+    @Test
+    void accessOffHeapFlatComponentsAfterRelease() {
+        EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
+        entityRepository.createEntity(new C1(1), new S(1, 10L, 0.5f, 2.5));
+        var cursor = entityRepository.findEntitiesWith(S.class).cursor();
+        var s = cursor.view(S.class);
+        Assertions.assertTrue(cursor.next());
+        // the chunks of the cleared composition are released along with their off-heap memory
+        Assertions.assertEquals(1, entityRepository.findEntitiesWith(C1.class, S.class).deleteAll());
+        Assertions.assertThrows(IllegalStateException.class, () -> s.getInt(0));
+        Assertions.assertThrows(IllegalStateException.class, () -> s.setLong(1, 0L));
+
+        entityRepository.createEntity(new C1(2), new S(2, 20L, 1.5f, 3.5));
+        var cursor2 = entityRepository.findEntitiesWith(S.class).cursor();
+        var s2 = cursor2.view(S.class);
+        Assertions.assertTrue(cursor2.next());
+        Assertions.assertEquals(2, s2.getInt(0));
+        entityRepository.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> s2.getFloat(2));
+        Assertions.assertThrows(IllegalStateException.class, () -> s2.setDouble(3, 0.0));
+    }
+
     @Test
     void close() {
         EntityRepository entityRepository = (EntityRepository) new EntityRepository.Factory().create("test");
@@ -536,6 +1648,30 @@ class EntityRepositoryTest {
         ONE, TWO
     }
 
+    enum Mood {
+        CALM, ANGRY
+    }
+
+    @Sparse
+    record S1(int id) {
+    }
+
+    @Tag
+    record T1() {
+    }
+
+    @Tag
+    record T2() {
+    }
+
+    static final class M {
+        private int value;
+
+        M(int value) {
+            this.value = value;
+        }
+    }
+
     record C1(int id) {
     }
 
@@ -553,4 +1689,16 @@ class EntityRepositoryTest {
 
     record C6(int id) {
     }
+
+    @Flat
+    record P(float x, float y) {
+    }
+
+    @Flat
+    record V(int dx, long dy, double dz) {
+    }
+
+    @Flat(offHeap = true)
+    record S(int i, long l, float f, double d) {
+    }
 }
@@ -0,0 +1,87 @@
+package dev.dominion.ecs.test.engine;
+
+import dev.dominion.ecs.engine.EntityTable;
+import dev.dominion.ecs.engine.IntEntity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+class EntityTableTest {
+
+    @Test
+    void register() {
+        EntityTable table = new EntityTable();
+        IntEntity entity = new IntEntity(0);
+        long handle = table.register(entity);
+        Assertions.assertEquals(handle, entity.getHandle());
+        Assertions.assertEquals(0, EntityTable.slotOf(handle));
+        Assertions.assertEquals(1, EntityTable.generationOf(handle));
+        Assertions.assertEquals(entity, table.get(handle));
+        Assertions.assertEquals(1, table.size());
+    }
+
+    @Test
+    void release() {
+        EntityTable table = new EntityTable();
+        IntEntity entity = new IntEntity(0);
+        long handle = table.register(entity);
+        Assertions.assertTrue(table.release(entity));
+        Assertions.assertFalse(table.release(entity));
+        Assertions.assertNull(table.get(handle));
+        Assertions.assertEquals(0, table.size());
+
+        IntEntity next = new IntEntity(1);
+        long nextHandle = table.register(next);
+        Assertions.assertEquals(EntityTable.slotOf(handle), EntityTable.slotOf(nextHandle));
+        Assertions.assertEquals(2, EntityTable.generationOf(nextHandle));
+        Assertions.assertNull(table.get(handle));
+        Assertions.assertEquals(next, table.get(nextHandle));
+        Assertions.assertFalse(table.release(new IntEntity(2)));
+    }
+
+    @Test
+    void grow() {
+        EntityTable table = new EntityTable();
+        int capacity = (1 << EntityTable.SEGMENT_BIT) * 3 + 1;
+        IntEntity[] entities = new IntEntity[capacity];
+        for (int i = 0; i < capacity; i++) {
+            table.register(entities[i] = new IntEntity(i));
+        }
+        for (int i = 0; i < capacity; i++) {
+            Assertions.assertEquals(i, EntityTable.slotOf(entities[i].getHandle()));
+            Assertions.assertEquals(entities[i], table.get(entities[i].getHandle()));
+        }
+        Assertions.assertNull(table.get(capacity));
+        Assertions.assertNull(table.get(1L << 32 | (1 << 24)));
+    }
+
+    @Test
+    void concurrentRegisterAndRelease() throws InterruptedException {
+        EntityTable table = new EntityTable();
+        final int capacity = 1 << 16;
+        IntEntity[] entities = new IntEntity[capacity];
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < capacity; i++) {
+            int idx = i;
+            pool.execute(() -> {
+                table.register(entities[idx] = new IntEntity(idx));
+                if ((idx & 1) == 1) {
+                    table.release(entities[idx]);
+                }
+            });
+        }
+        pool.shutdown();
+        Assertions.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(capacity >>> 1, table.size());
+        for (int i = 0; i < capacity; i++) {
+            if ((i & 1) == 0) {
+                Assertions.assertEquals(entities[i], table.get(entities[i].getHandle()));
+            } else {
+                Assertions.assertNull(table.get(entities[i].getHandle()));
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package dev.dominion.ecs.test.engine;
 
+import dev.dominion.ecs.api.Dominion;
+import dev.dominion.ecs.api.Entity;
 import dev.dominion.ecs.api.Scheduler;
+import dev.dominion.ecs.engine.EntityRepository;
 import dev.dominion.ecs.engine.SystemScheduler;
 import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.Logging.Context;
@@ -163,4 +166,140 @@ class SystemSchedulerTest {
         d = count.get();
         Assertions.assertEquals(0.5f, d, .0001);
     }
-}
\ No newline at end of file
+
+    @Test
+    void compactAtTheEndOfTick() {
+        EntityRepository dominion = new EntityRepository("test", Config.DominionSize.MEDIUM.classIndexBit(),
+                Config.DominionSize.MEDIUM.chunkBit(), Config.ChunkAllocation.EAGER, Config.DeletionMode.DEFERRED,
+                Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Context.TEST);
+        Scheduler scheduler = dominion.createScheduler();
+        for (int i = 0; i < 1_000; i++) {
+            dominion.createEntity(new C1(i));
+        }
+        AtomicInteger deleted = new AtomicInteger();
+        scheduler.schedule(() -> dominion.findEntitiesWith(C1.class).forEach(rs -> {
+            if (rs.comp().id() % 3 == 0 && dominion.deleteEntity(rs.entity())) {
+                deleted.incrementAndGet();
+            }
+        }));
+        scheduler.tick();
+        Assertions.assertEquals(334, deleted.get());
+        Assertions.assertEquals(0, dominion.compact());
+        Assertions.assertEquals(666, dominion.getCompositionRepository().getPool().size());
+        Assertions.assertEquals(666, dominion.findEntitiesWith(C1.class).stream().count());
+    }
+
+    @Test
+    void commands() {
+        Dominion dominion = new EntityRepository.Factory().create("test");
+        Scheduler scheduler = dominion.createScheduler();
+        Entity[] entities = new Entity[1_000];
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = dominion.createEntity(new C1(i));
+        }
+        Entity toDelete = dominion.createEntity(new C2(0));
+        scheduler.parallelSchedule(
+                () -> {
+                    for (int i = 0; i < entities.length; i += 2) scheduler.commands().add(entities[i], new C2(i));
+                    scheduler.commands().deleteEntity(toDelete);
+                },
+                () -> {
+                    for (int i = 1; i < entities.length; i += 2) scheduler.commands().removeType(entities[i], C1.class);
+                    scheduler.commands().createEntity(new C2(-1));
+                }
+        );
+        scheduler.schedule(() -> {
+            // commands are not played back before the end of the tick
+            Assertions.assertFalse(entities[0].has(C2.class));
+            scheduler.commands().setState(entities[0], State.ONE);
+        });
+        scheduler.tick();
+        for (int i = 0; i < entities.length; i++) {
+            Assertions.assertEquals(i % 2 == 0, entities[i].has(C1.class));
+            Assertions.assertEquals(i % 2 == 0, entities[i].has(C2.class));
+        }
+        Assertions.assertTrue(toDelete.isDeleted());
+        Assertions.assertEquals(entities.length / 2 + 1, dominion.findEntitiesWith(C2.class).stream().count());
+        Assertions.assertEquals(entities[0], dominion.findEntitiesWith(C1.class, C2.class).withState(State.ONE)
+                .stream().findFirst().orElseThrow().entity());
+        scheduler.shutDown();
+        dominion.close();
+    }
+
+    @Test
+    void commandsMerged() {
+        Dominion dominion = new EntityRepository.Factory().create("test");
+        Scheduler scheduler = dominion.createScheduler();
+        Entity entity1 = dominion.createEntity(new C1(1));
+        Entity entity2 = dominion.createEntity(new C1(2));
+        Entity entity3 = dominion.createEntity(new C1(3));
+        scheduler.schedule(() -> {
+            Scheduler.Commands commands = scheduler.commands();
+            // added and then removed
+            commands.add(entity1, new C2(1));
+            commands.removeType(entity1, C2.class);
+            // removed and then added again, replacing the component
+            commands.removeType(entity2, C1.class);
+            commands.add(entity2, new C1(20));
+            commands.add(entity2, new C2(20));
+            // changed and then deleted
+            commands.add(entity3, new C2(3));
+            commands.deleteEntity(entity3);
+        });
+        scheduler.tick();
+        Assertions.assertEquals(new C1(1), entity1.get(C1.class));
+        Assertions.assertFalse(entity1.has(C2.class));
+        Assertions.assertEquals(new C1(20), entity2.get(C1.class));
+        Assertions.assertEquals(new C2(20), entity2.get(C2.class));
+        Assertions.assertTrue(entity3.isDeleted());
+        scheduler.shutDown();
+        dominion.close();
+    }
+
+    @Test
+    void commandsWithSeveralStates() {
+        Dominion dominion = new EntityRepository.Factory().create("test");
+        Scheduler scheduler = dominion.createScheduler();
+        Entity entity1 = dominion.createEntity(new C1(1));
+        Entity entity2 = dominion.createEntity(new C1(2)).setState(State.ONE);
+        scheduler.schedule(() -> {
+            Scheduler.Commands commands = scheduler.commands();
+            // one state of each enumeration type is kept
+            commands.setState(entity1, State.ONE);
+            commands.setState(entity1, Mood.CALM);
+            commands.setState(entity1, Mood.ANGRY);
+            // the states are removed, and then a state is set again
+            commands.setState(entity2, null);
+            commands.setState(entity2, Mood.CALM);
+        });
+        scheduler.tick();
+        Assertions.assertEquals(State.ONE, entity1.getState(State.class));
+        Assertions.assertEquals(Mood.ANGRY, entity1.getState(Mood.class));
+        Assertions.assertNull(entity2.getState(State.class));
+        Assertions.assertEquals(Mood.CALM, entity2.getState(Mood.class));
+        Assertions.assertEquals(entity1, dominion.findEntitiesWith(C1.class).withState(State.ONE)
+                .stream().findFirst().orElseThrow().entity());
+        scheduler.shutDown();
+        dominion.close();
+    }
+
+    @Test
+    void commandsWithoutDominion() {
+        Scheduler scheduler = new SystemScheduler(Config.DEFAULT_SYSTEM_TIMEOUT_SECONDS, Context.TEST);
+        Assertions.assertThrows(UnsupportedOperationException.class, scheduler::commands);
+    }
+
+    enum State {
+        ONE
+    }
+
+    enum Mood {
+        CALM, ANGRY
+    }
+
+    record C1(int id) {
+    }
+
+    record C2(int id) {
+    }
+}
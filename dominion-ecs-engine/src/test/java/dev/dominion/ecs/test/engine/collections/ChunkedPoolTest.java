@@ -1,6 +1,7 @@
 package dev.dominion.ecs.test.engine.collections;
 
 import dev.dominion.ecs.engine.collections.ChunkedPool;
+import dev.dominion.ecs.engine.collections.ChunkedPool.IdSchema;
 import dev.dominion.ecs.engine.collections.ChunkedPool.Item;
 import dev.dominion.ecs.engine.system.Config;
 import dev.dominion.ecs.engine.system.Logging;
@@ -35,6 +36,44 @@ class ChunkedPoolTest {
         }
     }
 
+    @Test
+    public void growDirectory() {
+        ChunkedPool.IdSchema idSchema = new ChunkedPool.IdSchema(ChunkedPool.IdSchema.MIN_CHUNK_BIT);
+        try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(idSchema, Logging.Context.TEST)) {
+            ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant();
+            Assertions.assertEquals(1, chunkedPool.segmentCount());
+            int segmentCapacity = 1 << ChunkedPool.MAX_SEGMENT_BIT;
+            int lastId = 0;
+            for (int i = 0; i < segmentCapacity * idSchema.chunkCapacity() + 1; i++) {
+                lastId = tenant.nextId();
+                tenant.register(new TestEntity(lastId, null, null), null);
+            }
+            Assertions.assertEquals(segmentCapacity, idSchema.fetchChunkId(lastId));
+            Assertions.assertEquals(2, chunkedPool.segmentCount());
+            Assertions.assertEquals(lastId, chunkedPool.getEntry(lastId).getId());
+            Assertions.assertEquals(0, chunkedPool.getEntry(0).getId());
+        }
+    }
+
+    @Test
+    public void lazyChunkAllocation() {
+        try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Config.ChunkAllocation.LAZY, Logging.Context.TEST)) {
+            ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant(2, null, null);
+            ChunkedPool.LinkedChunk<TestEntity> firstChunk = tenant.getFirstChunk();
+            Assertions.assertEquals(ChunkedPool.LAZY_INITIAL_CAPACITY, firstChunk.capacity());
+            for (int i = 0; i < ID_SCHEMA.chunkCapacity() + 1; i++) {
+                int id = tenant.nextId();
+                tenant.register(new TestEntity(id, null, null), new Object[]{i, -i});
+            }
+            Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), firstChunk.capacity());
+            Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), firstChunk.getNext().capacity());
+            Assertions.assertArrayEquals(new Object[]{100, -100}, firstChunk.getData(100));
+        }
+        try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.TEST)) {
+            Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), chunkedPool.newTenant().getFirstChunk().capacity());
+        }
+    }
+
     public record TestEntity(int id, Item prev, Item next) implements Item {
         @Override
         public int getId() {
@@ -111,6 +150,80 @@ class ChunkedPoolTest {
             }
         }
 
+        @Test
+        public void reuseFreedSlotsOfPreviousChunks() {
+            try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.TEST)) {
+                ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant();
+                for (int i = 0; i < ID_SCHEMA.chunkCapacity() * 2; i++) {
+                    tenant.nextId();
+                }
+                // chunk 0 and 1 are full, chunk 2 is current
+                tenant.freeId(ID_SCHEMA.createId(0, 0));
+                tenant.freeId(ID_SCHEMA.createId(0, 0));
+                tenant.freeId(ID_SCHEMA.createId(1, 0));
+                Assertions.assertEquals(ID_SCHEMA.createId(1, ID_SCHEMA.chunkCapacity() - 1), tenant.nextId());
+                Assertions.assertEquals(ID_SCHEMA.createId(0, ID_SCHEMA.chunkCapacity() - 2), tenant.nextId());
+                Assertions.assertEquals(ID_SCHEMA.createId(0, ID_SCHEMA.chunkCapacity() - 1), tenant.nextId());
+                Assertions.assertEquals(ID_SCHEMA.createId(2, 0), tenant.nextId());
+                Assertions.assertEquals(ID_SCHEMA.chunkCapacity() * 2 + 1, chunkedPool.size());
+            }
+        }
+
+        @Test
+        public void concurrentNextAndFreeIdReusesSlots() throws InterruptedException {
+            try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.TEST)) {
+                ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant();
+                final int capacity = 1 << 18;
+                for (int i = 0; i < capacity; i++) {
+                    tenant.nextId();
+                }
+                final ExecutorService pool = Executors.newFixedThreadPool(8);
+                for (int i = 0; i < capacity; i++) {
+                    final int chunkId = i % (capacity / ID_SCHEMA.chunkCapacity());
+                    pool.execute(() -> {
+                        synchronized (tenant) {
+                            tenant.freeId(ID_SCHEMA.createId(chunkId, 0));
+                            tenant.nextId();
+                        }
+                    });
+                }
+                pool.shutdown();
+                Assertions.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+                // every freed slot has been taken back before growing the tenant
+                Assertions.assertEquals(capacity, chunkedPool.size());
+                Assertions.assertEquals(capacity / ID_SCHEMA.chunkCapacity(), ID_SCHEMA.fetchChunkId(tenant.nextId()));
+            }
+        }
+
+        @Test
+        public void buryAndCompact() {
+            try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Config.ChunkAllocation.EAGER,
+                    Config.DeletionMode.DEFERRED, Logging.Context.TEST)) {
+                ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant();
+                for (int i = 0; i < 10; i++) {
+                    tenant.register(new TestEntity(tenant.nextId(), null, null), null);
+                }
+                Assertions.assertEquals(ID_SCHEMA.createId(0, 2), tenant.freeId(ID_SCHEMA.createId(0, 2)));
+                Assertions.assertEquals(ID_SCHEMA.createId(0, 9), tenant.freeId(ID_SCHEMA.createId(0, 9)));
+                Assertions.assertEquals(IdSchema.DETACHED_BIT, tenant.freeId(ID_SCHEMA.createId(0, 9)));
+                // tombstones keep their slots until the compaction
+                Assertions.assertEquals(10, tenant.currentChunkSize());
+                Assertions.assertEquals(8, chunkedPool.size());
+                Iterator<TestEntity> iterator = tenant.iterator();
+                int count = 0;
+                while (iterator.hasNext()) {
+                    Assertions.assertNotNull(iterator.next());
+                    count++;
+                }
+                Assertions.assertEquals(8, count);
+                Assertions.assertEquals(2, chunkedPool.compact());
+                Assertions.assertEquals(0, chunkedPool.compact());
+                Assertions.assertEquals(8, tenant.currentChunkSize());
+                Assertions.assertEquals(ID_SCHEMA.createId(0, 8), chunkedPool.getEntry(ID_SCHEMA.createId(0, 2)).id());
+                Assertions.assertEquals(ID_SCHEMA.createId(0, 8), tenant.nextId());
+            }
+        }
+
 //        @Test
 //        public void concurrentNextId() throws InterruptedException {
 //            try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.STRESS_TEST)) {
@@ -208,6 +321,36 @@ class ChunkedPoolTest {
             }
         }
 
+        @Test
+        public void releaseAndReuseChunk() {
+            try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.TEST)) {
+                ChunkedPool.Tenant<TestEntity> tenant = chunkedPool.newTenant();
+                for (int i = 0; i < ID_SCHEMA.chunkCapacity() * 2; i++) {
+                    tenant.register(new TestEntity(tenant.nextId(), null, null), null);
+                }
+                // chunk 0 and 1 are full, chunk 2 is current
+                int firstId = ID_SCHEMA.createId(0, 0);
+                for (int i = 0; i < ID_SCHEMA.chunkCapacity(); i++) {
+                    tenant.freeId(firstId);
+                }
+                Assertions.assertEquals(1, chunkedPool.freeChunkCount());
+                Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), chunkedPool.size());
+                Iterator<TestEntity> allEntities = chunkedPool.allEntities();
+                int count = 0;
+                while (allEntities.hasNext()) {
+                    Assertions.assertNotNull(allEntities.next());
+                    count++;
+                }
+                Assertions.assertEquals(ID_SCHEMA.chunkCapacity(), count);
+                // stale ids of the released chunk are not reused by the previous owner
+                Assertions.assertEquals(2, ID_SCHEMA.fetchChunkId(tenant.nextId()));
+                ChunkedPool.Tenant<TestEntity> newTenant = chunkedPool.newTenant();
+                Assertions.assertEquals(0, chunkedPool.freeChunkCount());
+                Assertions.assertEquals(0, ID_SCHEMA.fetchChunkId(newTenant.nextId()));
+                Assertions.assertEquals(2, ID_SCHEMA.fetchChunkId(tenant.nextId()));
+            }
+        }
+
         @Test
         public void iterator() {
             try (ChunkedPool<TestEntity> chunkedPool = new ChunkedPool<>(ID_SCHEMA, Logging.Context.STRESS_TEST)) {
@@ -0,0 +1,54 @@
+package dev.dominion.ecs.test.engine.collections;
+
+import dev.dominion.ecs.api.Sparse;
+import dev.dominion.ecs.engine.collections.SparseSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SparseSetTest {
+
+    @Test
+    void put() {
+        SparseSet<String> sparseSet = new SparseSet<>(Integer.class);
+        Assertions.assertNull(sparseSet.put(1, "a", 10));
+        Assertions.assertNull(sparseSet.put(1 << 20, "b", 20));
+        Assertions.assertEquals(10, sparseSet.put(1, "a", 11));
+        Assertions.assertEquals(2, sparseSet.size());
+        Assertions.assertEquals(11, sparseSet.get(1, "a"));
+        Assertions.assertEquals(20, sparseSet.get(1 << 20, "b"));
+        Assertions.assertNull(sparseSet.get(2, "a"));
+        // a key reused by another item does not find the previous one
+        Assertions.assertFalse(sparseSet.contains(1, "c"));
+    }
+
+    @Test
+    void remove() {
+        SparseSet<String> sparseSet = new SparseSet<>(Integer.class);
+        String[] items = new String[100];
+        for (int i = 0; i < items.length; i++) {
+            sparseSet.put(i, items[i] = "item-" + i, i);
+        }
+        Assertions.assertEquals(0, sparseSet.remove(0, items[0]));
+        Assertions.assertNull(sparseSet.remove(0, items[0]));
+        Assertions.assertNull(sparseSet.remove(1, items[0]));
+        Assertions.assertEquals(99, sparseSet.size());
+        // the last item has been swapped into the removed position
+        Assertions.assertEquals(items[99], sparseSet.items()[0]);
+        Assertions.assertEquals(99, sparseSet.get(99, items[99]));
+        Assertions.assertEquals(99, sparseSet.remove(99, items[99]));
+        for (int i = 1; i < 99; i++) {
+            Assertions.assertEquals(i, sparseSet.get(i, items[i]));
+        }
+        Assertions.assertEquals(98, sparseSet.items().length);
+    }
+
+    @Test
+    void isSparse() {
+        Assertions.assertTrue(SparseSet.isSparse(Stunned.class));
+        Assertions.assertFalse(SparseSet.isSparse(Integer.class));
+    }
+
+    @Sparse
+    record Stunned(int ticks) {
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+package dev.dominion.ecs.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Objects;
+
+/**
+ * ColumnKernels provides SIMD operations over primitive component columns, running through the lanes of the preferred
+ * species of the incubating Vector API and finishing the elements that do not fill a whole vector with a scalar loop.
+ * <p>
+ * Columns are the arrays of a chunk batch, and every kernel works on the indexes from 0 (inclusive) to the given
+ * length (exclusive), that is the batch size:
+ * <pre>
+ *     dominion.findEntitiesWith(Position.class, Velocity.class).forEachChunk(batch -&gt; {
+ *         ColumnKernels.fma(batch.floatColumn(Position.class, 0), batch.floatColumn(Velocity.class, 0), dt, batch.size());
+ *         ColumnKernels.fma(batch.floatColumn(Position.class, 1), batch.floatColumn(Velocity.class, 1), dt, batch.size());
+ *     });
+ * </pre>
+ * The module requires {@code jdk.incubator.vector}: applications running on the class path have to add it with the
+ * {@code --add-modules jdk.incubator.vector} option.
+ */
+public final class ColumnKernels {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    private ColumnKernels() {
+    }
+
+    /**
+     * Adds the product of each source element and a scalar to the target element at the same index, with a single
+     * rounding: {@code target[i] = source[i] * scalar + target[i]}.
+     *
+     * @param target the column to be updated
+     * @param source the column to be scaled
+     * @param scalar the scale factor
+     * @param length the number of elements to process
+     * @throws IndexOutOfBoundsException if the length exceeds one of the columns
+     */
+    public static void fma(float[] target, float[] source, float scalar, int length) {
+        Objects.checkFromIndexSize(0, length, target.length);
+        Objects.checkFromIndexSize(0, length, source.length);
+        FloatVector factor = FloatVector.broadcast(FLOATS, scalar);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, source, i)
+                    .fma(factor, FloatVector.fromArray(FLOATS, target, i))
+                    .intoArray(target, i);
+        }
+        for (; i < length; i++) {
+            target[i] = Math.fma(source[i], scalar, target[i]);
+        }
+    }
+
+    /**
+     * Adds the product of each source element and a scalar to the target element at the same index, with a single
+     * rounding: {@code target[i] = source[i] * scalar + target[i]}.
+     *
+     * @param target the column to be updated
+     * @param source the column to be scaled
+     * @param scalar the scale factor
+     * @param length the number of elements to process
+     * @throws IndexOutOfBoundsException if the length exceeds one of the columns
+     */
+    public static void fma(double[] target, double[] source, double scalar, int length) {
+        Objects.checkFromIndexSize(0, length, target.length);
+        Objects.checkFromIndexSize(0, length, source.length);
+        DoubleVector factor = DoubleVector.broadcast(DOUBLES, scalar);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, source, i)
+                    .fma(factor, DoubleVector.fromArray(DOUBLES, target, i))
+                    .intoArray(target, i);
+        }
+        for (; i < length; i++) {
+            target[i] = Math.fma(source[i], scalar, target[i]);
+        }
+    }
+
+    /**
+     * Clamps each element of the column within the given bounds.
+     *
+     * @param target the column to be updated
+     * @param min    the lower bound
+     * @param max    the upper bound
+     * @param length the number of elements to process
+     * @throws IllegalArgumentException  if the lower bound is greater than the upper bound
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static void clamp(float[] target, float min, float max, int length) {
+        if (min > max) {
+            throw new IllegalArgumentException("Lower bound " + min + " is greater than upper bound " + max);
+        }
+        Objects.checkFromIndexSize(0, length, target.length);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, target, i)
+                    .max(min)
+                    .min(max)
+                    .intoArray(target, i);
+        }
+        for (; i < length; i++) {
+            target[i] = Math.min(Math.max(target[i], min), max);
+        }
+    }
+
+    /**
+     * Clamps each element of the column within the given bounds.
+     *
+     * @param target the column to be updated
+     * @param min    the lower bound
+     * @param max    the upper bound
+     * @param length the number of elements to process
+     * @throws IllegalArgumentException  if the lower bound is greater than the upper bound
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static void clamp(double[] target, double min, double max, int length) {
+        if (min > max) {
+            throw new IllegalArgumentException("Lower bound " + min + " is greater than upper bound " + max);
+        }
+        Objects.checkFromIndexSize(0, length, target.length);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, target, i)
+                    .max(min)
+                    .min(max)
+                    .intoArray(target, i);
+        }
+        for (; i < length; i++) {
+            target[i] = Math.min(Math.max(target[i], min), max);
+        }
+    }
+
+    /**
+     * Provides the sum of the elements of the column. Lanes are summed independently and reduced at the end, so the
+     * result can differ from a sequential sum in the last bits.
+     *
+     * @param source the column
+     * @param length the number of elements to process
+     * @return the sum, 0 if the length is 0
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static float sum(float[] source, int length) {
+        Objects.checkFromIndexSize(0, length, source.length);
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            acc = acc.add(FloatVector.fromArray(FLOATS, source, i));
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += source[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Provides the sum of the elements of the column. Lanes are summed independently and reduced at the end, so the
+     * result can differ from a sequential sum in the last bits.
+     *
+     * @param source the column
+     * @param length the number of elements to process
+     * @return the sum, 0 if the length is 0
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static double sum(double[] source, int length) {
+        Objects.checkFromIndexSize(0, length, source.length);
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += DOUBLES.length()) {
+            acc = acc.add(DoubleVector.fromArray(DOUBLES, source, i));
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += source[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Provides the minimum element of the column, following {@link Math#min(float, float)} for NaN and signed zeros.
+     *
+     * @param source the column
+     * @param length the number of elements to process
+     * @return the minimum, {@link Float#POSITIVE_INFINITY} if the length is 0
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static float min(float[] source, int length) {
+        Objects.checkFromIndexSize(0, length, source.length);
+        FloatVector acc = FloatVector.broadcast(FLOATS, Float.POSITIVE_INFINITY);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            acc = acc.min(FloatVector.fromArray(FLOATS, source, i));
+        }
+        float min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < length; i++) {
+            min = Math.min(min, source[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Provides the minimum element of the column, following {@link Math#min(double, double)} for NaN and signed zeros.
+     *
+     * @param source the column
+     * @param length the number of elements to process
+     * @return the minimum, {@link Double#POSITIVE_INFINITY} if the length is 0
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static double min(double[] source, int length) {
+        Objects.checkFromIndexSize(0, length, source.length);
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.POSITIVE_INFINITY);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += DOUBLES.length()) {
+            acc = acc.min(DoubleVector.fromArray(DOUBLES, source, i));
+        }
+        double min = acc.reduceLanes(VectorOperators.MIN);
+        for (; i < length; i++) {
+            min = Math.min(min, source[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Provides the maximum element of the column, following {@link Math#max(float, float)} for NaN and signed zeros.
+     *
+     * @param source the column
+     * @param length the number of elements to process
+     * @return the maximum, {@link Float#NEGATIVE_INFINITY} if the length is 0
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static float max(float[] source, int length) {
+        Objects.checkFromIndexSize(0, length, source.length);
+        FloatVector acc = FloatVector.broadcast(FLOATS, Float.NEGATIVE_INFINITY);
+        int bound = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            acc = acc.max(FloatVector.fromArray(FLOATS, source, i));
+        }
+        float max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            max = Math.max(max, source[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Provides the maximum element of the column, following {@link Math#max(double, double)} for NaN and signed zeros.
+     *
+     * @param source the column
+     * @param length the number of elements to process
+     * @return the maximum, {@link Double#NEGATIVE_INFINITY} if the length is 0
+     * @throws IndexOutOfBoundsException if the length exceeds the column
+     */
+    public static double max(double[] source, int length) {
+        Objects.checkFromIndexSize(0, length, source.length);
+        DoubleVector acc = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+        int bound = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += DOUBLES.length()) {
+            acc = acc.max(DoubleVector.fromArray(DOUBLES, source, i));
+        }
+        double max = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            max = Math.max(max, source[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,10 @@
+/*
+ * Copyright (c) 2021 Enrico Stara
+ * This code is licensed under the MIT license. See the LICENSE file in the project root for license terms.
+ */
+
+module dev.dominion.ecs.vector {
+    requires jdk.incubator.vector;
+
+    exports dev.dominion.ecs.vector;
+}
@@ -0,0 +1,90 @@
+package dev.dominion.ecs.test.vector;
+
+import dev.dominion.ecs.vector.ColumnKernels;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class ColumnKernelsTest {
+    private static final int LENGTH = 1_003;
+
+    private static float[] floats(int seed) {
+        Random random = new Random(seed);
+        float[] array = new float[LENGTH + 5];
+        for (int i = 0; i < array.length; i++) array[i] = random.nextFloat() * 200 - 100;
+        return array;
+    }
+
+    private static double[] doubles(int seed) {
+        Random random = new Random(seed);
+        double[] array = new double[LENGTH + 5];
+        for (int i = 0; i < array.length; i++) array[i] = random.nextDouble() * 200 - 100;
+        return array;
+    }
+
+    @Test
+    void fma() {
+        float[] target = floats(1), source = floats(2), expected = target.clone();
+        for (int i = 0; i < LENGTH; i++) expected[i] = Math.fma(source[i], 0.016f, expected[i]);
+        ColumnKernels.fma(target, source, 0.016f, LENGTH);
+        Assertions.assertArrayEquals(expected, target);
+
+        double[] dTarget = doubles(1), dSource = doubles(2), dExpected = dTarget.clone();
+        for (int i = 0; i < LENGTH; i++) dExpected[i] = Math.fma(dSource[i], 0.016, dExpected[i]);
+        ColumnKernels.fma(dTarget, dSource, 0.016, LENGTH);
+        Assertions.assertArrayEquals(dExpected, dTarget);
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class,
+                () -> ColumnKernels.fma(new float[8], new float[4], 1f, 8));
+    }
+
+    @Test
+    void clamp() {
+        float[] target = floats(3), expected = target.clone();
+        for (int i = 0; i < LENGTH; i++) expected[i] = Math.min(Math.max(expected[i], -10f), 10f);
+        ColumnKernels.clamp(target, -10f, 10f, LENGTH);
+        Assertions.assertArrayEquals(expected, target);
+
+        double[] dTarget = doubles(3), dExpected = dTarget.clone();
+        for (int i = 0; i < LENGTH; i++) dExpected[i] = Math.min(Math.max(dExpected[i], -10), 10);
+        ColumnKernels.clamp(dTarget, -10, 10, LENGTH);
+        Assertions.assertArrayEquals(dExpected, dTarget);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ColumnKernels.clamp(new float[8], 1f, -1f, 8));
+    }
+
+    @Test
+    void sum() {
+        float[] source = floats(4);
+        double expected = 0;
+        for (int i = 0; i < LENGTH; i++) expected += source[i];
+        Assertions.assertEquals(expected, ColumnKernels.sum(source, LENGTH), 1e-2);
+        Assertions.assertEquals(0f, ColumnKernels.sum(source, 0));
+
+        double[] dSource = doubles(4);
+        double dExpected = 0;
+        for (int i = 0; i < LENGTH; i++) dExpected += dSource[i];
+        Assertions.assertEquals(dExpected, ColumnKernels.sum(dSource, LENGTH), 1e-9);
+    }
+
+    @Test
+    void minMax() {
+        float[] source = floats(5);
+        source[LENGTH - 1] = -500f;
+        source[LENGTH / 2] = 500f;
+        source[LENGTH] = -1000f;
+        Assertions.assertEquals(-500f, ColumnKernels.min(source, LENGTH));
+        Assertions.assertEquals(500f, ColumnKernels.max(source, LENGTH));
+        Assertions.assertEquals(Float.POSITIVE_INFINITY, ColumnKernels.min(source, 0));
+        Assertions.assertEquals(Float.NEGATIVE_INFINITY, ColumnKernels.max(source, 0));
+
+        double[] dSource = doubles(5);
+        dSource[0] = -500;
+        dSource[LENGTH - 1] = 500;
+        dSource[LENGTH + 1] = 1000;
+        Assertions.assertEquals(-500, ColumnKernels.min(dSource, LENGTH));
+        Assertions.assertEquals(500, ColumnKernels.max(dSource, LENGTH));
+    }
+}
@@ -0,0 +1,5 @@
+open module dev.dominion.ecs.test.vector {
+    requires dev.dominion.ecs.vector;
+    requires org.junit.jupiter.api;
+    requires org.junit.jupiter.engine;
+}